@@ -0,0 +1,53 @@
+package earthmessenger.bench;
+
+import earthmessenger.Alien;
+import earthmessenger.EarthMessenger;
+import earthmessenger.Player;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one alien's whole test: greet, start and four answers, where the last
+ * answer also builds the verdict in getTestResult.
+ *
+ * A test can only be taken once per game, so every operation sets up a new game;
+ * compare with WorldBenchmark.load to see the test on its own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlienBenchmark {
+
+    @Param({"pass", "fail"})
+    public String outcome;
+
+    private String[] answers;
+
+    @Setup
+    public void chooseAnswers() {
+        answers = outcome.equals("pass")
+                ? new String[]{"the letter m", "ton", "a", "c"}
+                : new String[]{"no idea", "a feather", "d", "a"};
+    }
+
+    @Benchmark
+    public String fullTest() {
+        EarthMessenger game = new EarthMessenger("Bench", Transcript.DISCARD);
+        Player player = game.getPlayer();
+        game.load(player);
+        player.setCurrentLocation(game.getLocation("The Blue Spire"));
+
+        Alien corn = player.getCurrentLocation().getOccupant();
+        corn.greet(player);
+        corn.startTest(player);
+        String result = null;
+        for (String answer : answers) {
+            result = corn.checkAnswer(player, answer);
+        }
+        return result;
+    }
+}
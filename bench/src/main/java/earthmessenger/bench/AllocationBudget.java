@@ -0,0 +1,118 @@
+package earthmessenger.bench;
+
+import earthmessenger.GameSession;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Checks that no command allocates more than a fixed number of bytes.
+ *
+ * Every run of a command gets a fresh game from the CommandMix, so each run takes the
+ * path where the command does what it says, not the error path a repeated "take pizza"
+ * ends up on. The thread's allocation counter (ThreadMXBean.getCurrentThreadAllocatedBytes)
+ * is read right before and after the command, so creating and preparing the game is not
+ * counted. Runs are first repeated untimed until the JIT has compiled them; bytes per
+ * command is the measured total divided by the number of measured runs.
+ *
+ * The budget covers the whole command: parsing, running it and building its reply. On a
+ * fresh game that includes building what the command reaches first (the location "enter"
+ * walks into, the question "start" asks), which is why the default budget is 1 KB rather
+ * than a few hundred bytes.
+ *
+ * Prints one line per command and exits with status 1 if any command is over budget,
+ * so a build script can run it after the benchmarks.
+ *
+ * USAGE:
+ *   java -jar bench/target/benchmarks.jar budget [options]
+ *
+ * OPTIONS:
+ *   --budget B       bytes allowed per command (default 1024)
+ *   --warmup N       untimed runs of each command first (default 20000)
+ *   --runs N         measured runs of each command (default 10000)
+ *   --commands a,b   commands to check, from the CommandMix (default: one of every verb,
+ *                    plus bad input)
+ */
+public final class AllocationBudget {
+
+    private static final List<String> DEFAULT_COMMANDS = Arrays.asList(
+            "go north", "GO   North", "enter", "exit", "take pizza", "get water bottle",
+            "use pizza", "look", "examine", "inventory", "i", "greet", "start", "help",
+            "play message", "open compartments", "xyzzy", "take unicorn", "  take  a  LARGE  unicorn ");
+
+    private long budget = 1024;
+    private int warmup = 20000;
+    private int runs = 10000;
+    private List<String> commands = DEFAULT_COMMANDS;
+
+    /**
+     * Runs the check; also reached with "budget" as the first argument of the
+     * benchmarks jar (see Benchmarks).
+     */
+    public static void main(String[] args) {
+        AllocationBudget check = new AllocationBudget();
+        check.parseArguments(args);
+        if (!check.run()) {
+            System.exit(1);
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--budget":
+                    budget = Long.parseLong(args[++i]);
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--runs":
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+                case "--commands":
+                    commands = Arrays.asList(args[++i].split(","));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    /**
+     * Measures every command and prints the results.
+     *
+     * @return true if every command is within budget
+     */
+    private boolean run() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported()) {
+            throw new IllegalStateException("This JVM does not count allocated bytes per thread");
+        }
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        boolean withinBudget = true;
+        System.out.printf("%-30s %10s%n", "command", "bytes/cmd");
+        for (String command : commands) {
+            String[] setup = CommandMix.setup(command);
+            long total = 0;
+            for (int i = 0; i < warmup + runs; i++) {
+                GameSession session = CommandMix.newSession(setup);
+                long before = threads.getCurrentThreadAllocatedBytes();
+                session.handle(command);
+                long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+                if (i >= warmup) {
+                    total += allocated;
+                }
+            }
+            long bytes = total / runs;
+            boolean over = bytes > budget;
+            withinBudget &= !over;
+            System.out.printf("%-30s %10d%s%n", "\"" + command + "\"", bytes, over ? "  OVER BUDGET" : "");
+        }
+        System.out.println(withinBudget
+                ? "All commands within " + budget + " bytes."
+                : "Some commands allocate more than " + budget + " bytes.");
+        return withinBudget;
+    }
+}
@@ -0,0 +1,38 @@
+package earthmessenger.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Arrays;
+
+/**
+ * Runs the benchmarks with the GC profiler always on, so every result reports the
+ * allocation rate (gc.alloc.rate.norm = bytes per operation) next to its throughput.
+ *
+ * Usage:
+ *   mvn -B package
+ *   java -jar bench/target/benchmarks.jar                  (everything)
+ *   java -jar bench/target/benchmarks.jar CommandParser    (one class, regular JMH options)
+ *   java -jar bench/target/benchmarks.jar budget [options] (AllocationBudget instead of JMH)
+ */
+public final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("budget")) {
+            AllocationBudget.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
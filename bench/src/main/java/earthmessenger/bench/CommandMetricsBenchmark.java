@@ -0,0 +1,35 @@
+package earthmessenger.bench;
+
+import earthmessenger.CommandMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of recording one command in the CommandMetrics, on top of the two System.nanoTime()
+ * calls CommandParser.parse() makes to time it. Both must stay a small fraction of a
+ * command's own cost (see CommandParserBenchmark) for the metrics to be always on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandMetricsBenchmark {
+
+    private final CommandMetrics metrics = CommandMetrics.shared();
+    private long nanos;
+
+    @Benchmark
+    public void record() {
+        // Spread over a few buckets like real latencies
+        metrics.record(CommandMetrics.Verb.TAKE, 200 + (nanos++ & 0xFFF));
+    }
+
+    @Benchmark
+    public long nanoTimePair() {
+        long start = System.nanoTime();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,95 @@
+package earthmessenger.bench;
+
+import earthmessenger.GameSession;
+
+import java.util.Map;
+
+/**
+ * One command of every verb, each with the transcript lines that bring a fresh game to
+ * where it does what the player asked.
+ *
+ * Most commands only succeed once, or only in the right place ("go north" from The Nexus,
+ * "start" after greeting Corn), so a benchmark that repeats a command on one game soon
+ * measures its error path instead. newSession() gives every run its own game.
+ *
+ * Example usage:
+ *   GameSession session = CommandMix.newSession("use pizza");
+ *   session.handle("use pizza");
+ */
+final class CommandMix {
+
+    private static final String[] CORN_PASSED = {
+            "@location The Blue Spire", "enter", "greet", "start", "the letter m", "ton", "a", "c"
+    };
+
+    // Transcript lines that put a fresh game where each input succeeds. The last inputs
+    // are error paths on purpose: an unknown verb, unknown nouns, and the water bottle,
+    // which the world's item name keeps the player from taking.
+    private static final Map<String, String[]> SETUP = Map.ofEntries(
+            Map.entry("go north", new String[]{"@location The Nexus"}),
+            Map.entry("GO   North", new String[]{"@location The Nexus"}),
+            Map.entry("enter", new String[]{"@location The Blue Spire"}),
+            Map.entry("exit", CORN_PASSED),
+            Map.entry("take pizza", new String[]{"open compartments"}),
+            Map.entry("use pizza", new String[]{"open compartments", "take pizza", "microwave pizza"}),
+            Map.entry("look", new String[]{}),
+            Map.entry("examine", new String[]{}),
+            Map.entry("inventory", new String[]{"take phone", "open compartments", "take pizza"}),
+            Map.entry("i", new String[]{"take phone", "open compartments", "take pizza"}),
+            Map.entry("greet", new String[]{"@location The Blue Spire", "enter"}),
+            Map.entry("start", new String[]{"@location The Blue Spire", "enter", "greet"}),
+            Map.entry("help", new String[]{}),
+            Map.entry("play message", new String[]{"take phone"}),
+            Map.entry("open compartments", new String[]{}),
+            Map.entry("xyzzy", new String[]{}),
+            Map.entry("take unicorn", new String[]{}),
+            Map.entry("  take  a  LARGE  unicorn ", new String[]{}),
+            Map.entry("get water bottle", new String[]{"open compartments"})
+    );
+
+    private CommandMix() {
+    }
+
+    /**
+     * Gets the lines that prepare a game for a command.
+     *
+     * @param command The command as typed
+     * @return The transcript lines to play first
+     * @throws IllegalArgumentException If the command is not in the mix
+     */
+    static String[] setup(String command) {
+        String[] setup = SETUP.get(command);
+        if (setup == null) {
+            throw new IllegalArgumentException("No setup for \"" + command + "\"");
+        }
+        return setup;
+    }
+
+    /**
+     * Creates a headless game and plays a command's setup lines against it.
+     *
+     * @param setup The lines from setup()
+     * @return A game ready for the command
+     */
+    static GameSession newSession(String[] setup) {
+        GameSession session = Transcript.newSession();
+        for (String line : setup) {
+            if (Transcript.isDirective(line)) {
+                Transcript.apply(session, line);
+            } else {
+                session.handle(line);
+            }
+        }
+        return session;
+    }
+
+    /**
+     * Creates a headless game ready for a command.
+     *
+     * @param command The command as typed
+     * @return A game where the command does what it says
+     */
+    static GameSession newSession(String command) {
+        return newSession(setup(command));
+    }
+}
@@ -0,0 +1,50 @@
+package earthmessenger.bench;
+
+import earthmessenger.GameSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of parsing and running one command line, per verb, on the path where the verb does
+ * what the player asked.
+ *
+ * Every invocation gets its own game, brought into the state its command needs by the
+ * CommandMix. JMH leaves that setup out of the score.
+ *
+ * The last three inputs measure error paths on purpose: an unknown verb, an unknown noun,
+ * and the water bottle, which the world's item name keeps the player from taking.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommandParserBenchmark {
+
+    @Param({
+            "go north", "enter", "exit", "take pizza", "use pizza",
+            "look", "examine", "inventory", "i", "greet", "start", "help",
+            "play message", "open compartments", "xyzzy", "take unicorn", "get water bottle"
+    })
+    public String input;
+
+    private String[] setup;
+    private GameSession session;
+
+    @Setup(Level.Trial)
+    public void chooseSetup() {
+        setup = CommandMix.setup(input);
+    }
+
+    @Setup(Level.Invocation)
+    public void newGame() {
+        session = CommandMix.newSession(setup);
+    }
+
+    @Benchmark
+    public String parse() {
+        return session.handle(input);
+    }
+}
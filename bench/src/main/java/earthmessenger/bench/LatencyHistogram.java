@@ -0,0 +1,100 @@
+package earthmessenger.bench;
+
+/**
+ * A fixed-size latency histogram with about 6% precision.
+ *
+ * Values (nanoseconds) are put in log-linear buckets: each power of two is split into
+ * 16 equal sub-buckets, so 1024 counters cover everything up to Long.MAX_VALUE.
+ * Recording is a couple of bit operations and one array increment. A histogram is meant
+ * to be written by one thread; merge() combines per-thread histograms afterwards.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[1024];
+    private long total;
+    private long max;
+
+    /**
+     * Records one measurement.
+     *
+     * @param nanos The measured latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[indexOf(value)]++;
+        total++;
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Adds all measurements of another histogram to this one.
+     *
+     * @param other The histogram to add
+     */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @return Number of recorded measurements
+     */
+    public long getCount() {
+        return total;
+    }
+
+    /**
+     * @return The largest recorded value in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Gets the value below which the given fraction of measurements fall.
+     *
+     * @param percentile Between 0 and 100, e.g. 99.9
+     * @return The latency in nanoseconds (upper edge of the bucket), or 0 if empty
+     */
+    public long getPercentile(double percentile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return Math.min(upperEdge(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    private static long upperEdge(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        long edge = ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+        return edge < 0 ? Long.MAX_VALUE : edge;   // the last buckets overflow a long
+    }
+}
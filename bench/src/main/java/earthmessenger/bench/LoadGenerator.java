@@ -0,0 +1,293 @@
+package earthmessenger.bench;
+
+import earthmessenger.Command;
+import earthmessenger.CommandGrammar;
+import earthmessenger.GameSession;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless load generator: drives many in-process game sessions through recorded
+ * transcripts and reports throughput and per-verb latency.
+ *
+ * Every simulated player runs on its own virtual thread, plays its transcript from a new
+ * session, and starts over until the run ends. Narrative plays without pauses and output
+ * is discarded, so only the engine's own work is measured.
+ *
+ * Latency is measured from the moment a command was due to be sent, not from when the
+ * thread got around to sending it. With --think-ms above zero, a player that falls
+ * behind schedule therefore sees the queueing delay a real player would.
+ *
+ * USAGE:
+ *   java -cp bench/target/benchmarks.jar earthmessenger.bench.LoadGenerator [options]
+ *
+ * OPTIONS:
+ *   --sessions N        concurrent players (default 64)
+ *   --seconds S         length of each run (default 10)
+ *   --warmup-seconds W  untimed run first, so the JIT has compiled the engine (default 5)
+ *   --think-ms T        pause between one player's commands (default 0: flat out)
+ *   --transcripts a,b   transcripts to replay, round-robin (default winning-run,failing-run)
+ *   --find-knee         double the session count from 1 until latency degrades
+ *   --max-sessions N    upper limit for --find-knee (default 65536)
+ *   --degrade-factor F  p99 growth over the single-session run that counts as degraded (default 2)
+ */
+public final class LoadGenerator {
+
+    private int sessions = 64;
+    private int seconds = 10;
+    private int warmupSeconds = 5;
+    private long thinkNanos = 0;
+    private List<Transcript> transcripts = new ArrayList<>();
+    private boolean findKnee = false;
+    private int maxSessions = 65536;
+    private double degradeFactor = 2.0;
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        generator.parseArguments(args);
+        generator.warmUp();
+        if (generator.findKnee) {
+            generator.findKnee();
+        } else {
+            generator.run(generator.sessions).print(System.out);
+        }
+    }
+
+    private void parseArguments(String[] args) {
+        String transcriptNames = "winning-run,failing-run";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sessions":
+                    sessions = Integer.parseInt(args[++i]);
+                    break;
+                case "--seconds":
+                    seconds = Integer.parseInt(args[++i]);
+                    break;
+                case "--warmup-seconds":
+                    warmupSeconds = Integer.parseInt(args[++i]);
+                    break;
+                case "--think-ms":
+                    thinkNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(args[++i]));
+                    break;
+                case "--transcripts":
+                    transcriptNames = args[++i];
+                    break;
+                case "--find-knee":
+                    findKnee = true;
+                    break;
+                case "--max-sessions":
+                    maxSessions = Integer.parseInt(args[++i]);
+                    break;
+                case "--degrade-factor":
+                    degradeFactor = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        for (String name : transcriptNames.split(",")) {
+            transcripts.add(Transcript.load(name.trim()));
+        }
+    }
+
+    /**
+     * Plays for a while without reporting, so measurements start with compiled code.
+     */
+    private void warmUp() throws Exception {
+        if (warmupSeconds > 0) {
+            run(Runtime.getRuntime().availableProcessors(), warmupSeconds);
+        }
+    }
+
+    /**
+     * Doubles the number of sessions until p99 latency grows past the degrade factor
+     * (compared with a single session) or throughput stops growing for two steps in a row.
+     */
+    private void findKnee() throws Exception {
+        Report baseline = null;
+        Report previous = null;
+        int flatSteps = 0;
+        for (int count = 1; count <= maxSessions; count *= 2) {
+            Report report = run(count);
+            System.out.println(report.summary());
+            if (baseline == null) {
+                baseline = report;
+            }
+            boolean latencyDegraded = report.overall.getPercentile(99)
+                    > degradeFactor * Math.max(1, baseline.overall.getPercentile(99));
+            if (previous != null && report.commandsPerSecond() < previous.commandsPerSecond() * 1.05) {
+                flatSteps++;
+            } else {
+                flatSteps = 0;
+            }
+            boolean throughputFlat = flatSteps >= 2;
+            if (latencyDegraded || throughputFlat) {
+                System.out.println();
+                System.out.println("Latency degrades at about " + count + " sessions ("
+                        + (latencyDegraded ? "p99 above " + degradeFactor + "x the single-session p99"
+                                           : "throughput stopped growing") + ").");
+                report.print(System.out);
+                return;
+            }
+            previous = report;
+        }
+        System.out.println("No degradation up to " + maxSessions + " sessions.");
+    }
+
+    /**
+     * Runs the given number of simulated players for the configured time.
+     *
+     * @param sessionCount Number of concurrent players
+     * @return The combined measurements
+     */
+    private Report run(int sessionCount) throws Exception {
+        return run(sessionCount, seconds);
+    }
+
+    /**
+     * Runs the given number of simulated players for the given time.
+     *
+     * @param sessionCount Number of concurrent players
+     * @param runSeconds How long to run
+     * @return The combined measurements
+     */
+    private Report run(int sessionCount, int runSeconds) throws Exception {
+        CountDownLatch ready = new CountDownLatch(sessionCount);
+        CountDownLatch go = new CountDownLatch(1);
+        long durationNanos = TimeUnit.SECONDS.toNanos(runSeconds);
+
+        List<Future<Map<String, LatencyHistogram>>> results = new ArrayList<>();
+        long start;
+        try (ExecutorService players = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessionCount; i++) {
+                Transcript transcript = transcripts.get(i % transcripts.size());
+                results.add(players.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    return play(transcript, durationNanos);
+                }));
+            }
+            ready.await();
+            start = System.nanoTime();
+            go.countDown();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Report report = new Report(sessionCount, elapsed);
+        for (Future<Map<String, LatencyHistogram>> result : results) {
+            report.add(result.get());
+        }
+        return report;
+    }
+
+    /**
+     * One simulated player: replays the transcript in new sessions until time is up.
+     *
+     * @return Latency per verb
+     */
+    private Map<String, LatencyHistogram> play(Transcript transcript, long durationNanos) {
+        Map<String, LatencyHistogram> byVerb = new HashMap<>();
+        CommandGrammar grammar = CommandGrammar.shared();
+        long start = System.nanoTime();
+        long end = start + durationNanos;
+        long due = start;
+
+        while (System.nanoTime() < end) {
+            GameSession session = Transcript.newSession();
+            for (String line : transcript.getLines()) {
+                if (Transcript.isDirective(line)) {
+                    Transcript.apply(session, line);
+                    continue;
+                }
+                if (thinkNanos > 0) {
+                    due += thinkNanos;
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                } else {
+                    due = System.nanoTime();
+                }
+
+                String verb = verbOf(grammar, session, line);
+                session.handle(line);
+                long latency = System.nanoTime() - due;
+                byVerb.computeIfAbsent(verb, v -> new LatencyHistogram()).record(latency);
+
+                if (System.nanoTime() >= end) {
+                    break;
+                }
+            }
+        }
+        return byVerb;
+    }
+
+    /**
+     * Labels a command line the way the game will treat it.
+     */
+    private static String verbOf(CommandGrammar grammar, GameSession session, String line) {
+        Command command = grammar.resolve(line);
+        if (command.isSpecial()) {
+            return command.getText();
+        }
+        if (session.getGame().getPlayer().getCurrentQuestion() != null) {
+            return "answer";
+        }
+        return command.getAction();
+    }
+
+    /**
+     * The combined measurements of one run.
+     */
+    private static final class Report {
+        private final int sessions;
+        private final long elapsedNanos;
+        private final Map<String, LatencyHistogram> byVerb = new TreeMap<>();
+        private final LatencyHistogram overall = new LatencyHistogram();
+
+        Report(int sessions, long elapsedNanos) {
+            this.sessions = sessions;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        void add(Map<String, LatencyHistogram> playerResults) {
+            for (Map.Entry<String, LatencyHistogram> entry : playerResults.entrySet()) {
+                byVerb.computeIfAbsent(entry.getKey(), v -> new LatencyHistogram()).merge(entry.getValue());
+                overall.merge(entry.getValue());
+            }
+        }
+
+        double commandsPerSecond() {
+            return overall.getCount() / (elapsedNanos / 1e9);
+        }
+
+        String summary() {
+            return String.format("%7d sessions  %,14.0f commands/s  p50 %9.1f us  p99 %9.1f us  p999 %9.1f us",
+                    sessions, commandsPerSecond(),
+                    micros(overall.getPercentile(50)), micros(overall.getPercentile(99)),
+                    micros(overall.getPercentile(99.9)));
+        }
+
+        void print(java.io.PrintStream out) {
+            out.println(summary());
+            out.println();
+            out.printf("%-22s %12s %12s %12s %12s %12s%n", "verb", "count", "p50 us", "p99 us", "p999 us", "max us");
+            for (Map.Entry<String, LatencyHistogram> entry : byVerb.entrySet()) {
+                LatencyHistogram h = entry.getValue();
+                out.printf("%-22s %,12d %12.1f %12.1f %12.1f %12.1f%n", entry.getKey(), h.getCount(),
+                        micros(h.getPercentile(50)), micros(h.getPercentile(99)),
+                        micros(h.getPercentile(99.9)), micros(h.getMax()));
+            }
+        }
+
+        private static double micros(long nanos) {
+            return nanos / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package earthmessenger.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a complete scripted game, from a new session to the last chamber's verdict.
+ * The recorded run is resources/transcripts/winning-run.txt.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlaythroughBenchmark {
+
+    private Transcript winningRun;
+
+    @Setup
+    public void loadTranscript() {
+        winningRun = Transcript.load("winning-run");
+    }
+
+    @Benchmark
+    public int winningRun() {
+        return winningRun.play(Transcript.newSession());
+    }
+}
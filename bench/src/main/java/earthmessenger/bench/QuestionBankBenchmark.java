@@ -0,0 +1,68 @@
+package earthmessenger.bench;
+
+import earthmessenger.Alien;
+import earthmessenger.AlienTemplate;
+import earthmessenger.QuestionBank;
+import earthmessenger.SessionState;
+import earthmessenger.WorldLoader;
+import earthmessenger.WorldTemplate;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of drawing one game's test from question banks of the given size: the draw
+ * itself, which should not allocate at all, and creating the Alien that holds it.
+ * gc.alloc.rate.norm shows the bytes allocated per operation staying flat as the bank grows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuestionBankBenchmark {
+
+    @Param({"4", "1000", "100000"})
+    public int bankSize;
+
+    private QuestionBank bank;
+    private AlienTemplate alien;
+    private final int[] picks = new int[4];
+    private final SessionState state = new SessionState(1);
+    private long seed;
+
+    @Setup
+    public void setUp() throws IOException {
+        WorldTemplate world = WorldLoader.load(new ByteArrayInputStream(generate(bankSize)), "generated");
+        bank = world.getBank("logic");
+        alien = world.getStart().getOccupant();
+    }
+
+    @Benchmark
+    public int[] draw() {
+        bank.draw(seed++, picks);
+        return picks;
+    }
+
+    @Benchmark
+    public Alien createAlien() {
+        return new Alien(alien, state, 0, seed++);
+    }
+
+    /**
+     * Writes one room guarded by an alien drawing four questions from a logic bank.
+     */
+    private static byte[] generate(int questions) {
+        StringBuilder sb = new StringBuilder("location Room\n    long A room.\n    occupant Corn\n    start\n"
+                + "alien Corn logic\n    draw 4\nbank logic\n");
+        for (int i = 0; i < questions; i++) {
+            sb.append("    question What comes after ").append(i).append("?\n")
+                    .append("    answers ").append(i + 1).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
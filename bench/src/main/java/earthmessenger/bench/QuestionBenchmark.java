@@ -0,0 +1,70 @@
+package earthmessenger.bench;
+
+import earthmessenger.Question;
+import earthmessenger.WorldTemplate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering a question and of checking an answer against it.
+ *
+ * Uses Marshmallow's questions: the second is open answer and forgives typos, the third
+ * multiple choice.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QuestionBenchmark {
+
+    private Question openQuestion;
+    private Question multipleChoice;
+
+    @Setup
+    public void findQuestions() {
+        openQuestion = WorldTemplate.shared().getLocation("The Living Garden")
+                .getOccupant().getQuestions().get(1);
+        multipleChoice = WorldTemplate.shared().getLocation("The Living Garden")
+                .getOccupant().getQuestions().get(2);
+    }
+
+    @Benchmark
+    public String getQuestionTextOpen() {
+        return openQuestion.getQuestionText();
+    }
+
+    @Benchmark
+    public String getQuestionTextMultipleChoice() {
+        return multipleChoice.getQuestionText();
+    }
+
+    @Benchmark
+    public boolean checkAnswerCorrect() {
+        return openQuestion.checkAnswer("  Comfort ");
+    }
+
+    @Benchmark
+    public boolean checkAnswerLastSynonym() {
+        // the last acceptable answer, the worst case of the old linear scan
+        return openQuestion.checkAnswer("empathy");
+    }
+
+    @Benchmark
+    public boolean checkAnswerTypo() {
+        // not an exact answer: goes through the typo-tolerant BK-tree search
+        return openQuestion.checkAnswer("frendship");
+    }
+
+    @Benchmark
+    public boolean checkAnswerWrong() {
+        return openQuestion.checkAnswer("nothing at all");
+    }
+
+    @Benchmark
+    public boolean checkAnswerLetter() {
+        return multipleChoice.checkAnswer("b");
+    }
+}
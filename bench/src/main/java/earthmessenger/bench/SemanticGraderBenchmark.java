@@ -0,0 +1,81 @@
+package earthmessenger.bench;
+
+import earthmessenger.AnswerIndex;
+import earthmessenger.SemanticGrader;
+import earthmessenger.WordVectors;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of grading one open answer by meaning, which runs inline in Alien.checkAnswer and
+ * should stay around a microsecond.
+ *
+ * The word vectors are random (50000 words), written to a temporary file and
+ * memory-mapped like a real table; only the speed is of interest here, not the scores.
+ * The fork adds jdk.incubator.vector, so the dot products run on the Vector API.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector"})
+public class SemanticGraderBenchmark {
+
+    private static final int WORDS = 50000;
+    private static final String[] ANSWERS = {
+            "comfort", "support", "company", "love", "friendship", "presence", "empathy"
+    };
+
+    @Param({"100", "300"})
+    public int dimensions;
+
+    @Param({"solace", "being there for them"})
+    public String answer;
+
+    private Path table;
+    private SemanticGrader grader;
+    private String cleanAnswer;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path text = Files.createTempFile("vectors", ".txt");
+        table = Files.createTempFile("vectors", ".bin");
+        Random random = new Random(42);
+        try (BufferedWriter out = Files.newBufferedWriter(text, StandardCharsets.UTF_8)) {
+            String[] vocabulary = {"comfort", "support", "company", "love", "friendship", "presence",
+                    "empathy", "solace", "being", "there", "for", "them"};
+            for (int i = 0; i < WORDS; i++) {
+                out.write(i < vocabulary.length ? vocabulary[i] : "w" + i);
+                for (int d = 0; d < dimensions; d++) {
+                    out.write(' ');
+                    out.write(Float.toString((float) random.nextGaussian()));
+                }
+                out.newLine();
+            }
+        }
+        WordVectors.main(new String[]{text.toString(), table.toString()});
+        Files.delete(text);
+        grader = new SemanticGrader(WordVectors.open(table), Arrays.asList(ANSWERS));
+        cleanAnswer = AnswerIndex.normalize(answer);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        grader = null;
+        Files.deleteIfExists(table);
+    }
+
+    @Benchmark
+    public float score() {
+        return grader.score(cleanAnswer);
+    }
+}
@@ -0,0 +1,126 @@
+package earthmessenger.bench;
+
+import earthmessenger.GameSession;
+import earthmessenger.OutputSink;
+import earthmessenger.PlaybackScheduler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A recorded playthrough: the lines a player typed, in order.
+ *
+ * FORMAT (one entry per line):
+ * - blank lines and lines starting with '#' are ignored
+ * - "@location <name>" moves the player straight to a location
+ * - anything else is a command typed by the player
+ *
+ * Example usage:
+ *   Transcript run = Transcript.load("winning-run");
+ *   run.play(Transcript.newSession());
+ */
+public final class Transcript {
+
+    private static final String LOCATION_DIRECTIVE = "@location ";
+
+    /** Discards everything the game prints; for single-threaded benchmarks. */
+    public static final OutputSink DISCARD = OutputSink.discard();
+
+    private final String name;
+    private final List<String> lines;
+
+    private Transcript(String name, List<String> lines) {
+        this.name = name;
+        this.lines = Collections.unmodifiableList(lines);
+    }
+
+    /**
+     * Loads a transcript from the bench module's resources/transcripts folder.
+     *
+     * @param name The transcript name, without the .txt extension
+     * @return The transcript
+     */
+    public static Transcript load(String name) {
+        String resource = "/transcripts/" + name + ".txt";
+        try (InputStream in = Transcript.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("No such transcript: " + resource);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    lines.add(line);
+                }
+            }
+            return new Transcript(name, lines);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates a headless session: output is discarded and narrative plays without pauses.
+     *
+     * @return A fresh session on the spaceship
+     */
+    public static GameSession newSession() {
+        GameSession session = new GameSession("Bench", OutputSink.discard());
+        session.getGame().setPlayback(PlaybackScheduler.immediate());
+        return session;
+    }
+
+    /**
+     * Plays the whole transcript against a session.
+     *
+     * @param session The session to drive
+     * @return The combined length of all responses, so the work cannot be optimized away
+     */
+    public int play(GameSession session) {
+        int total = 0;
+        for (String line : lines) {
+            if (isDirective(line)) {
+                apply(session, line);
+            } else {
+                total += session.handle(line).length();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @param line A transcript line
+     * @return True if the line is a directive rather than a player command
+     */
+    public static boolean isDirective(String line) {
+        return line.startsWith(LOCATION_DIRECTIVE);
+    }
+
+    /**
+     * Carries out a directive line against a session.
+     *
+     * @param session The session
+     * @param line The directive
+     */
+    public static void apply(GameSession session, String line) {
+        String location = line.substring(LOCATION_DIRECTIVE.length()).trim();
+        session.getGame().getPlayer().setCurrentLocation(session.getGame().getLocation(location));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getLines() {
+        return lines;
+    }
+}
@@ -0,0 +1,25 @@
+package earthmessenger.bench;
+
+import earthmessenger.EarthMessenger;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of setting up one new game: EarthMessenger construction plus load().
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorldBenchmark {
+
+    @Benchmark
+    public EarthMessenger load() {
+        EarthMessenger game = new EarthMessenger("Bench", Transcript.DISCARD);
+        game.load(game.getPlayer());
+        return game;
+    }
+}
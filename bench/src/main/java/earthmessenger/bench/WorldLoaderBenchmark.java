@@ -0,0 +1,73 @@
+package earthmessenger.bench;
+
+import earthmessenger.WorldLoader;
+import earthmessenger.WorldTemplate;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of loading a world content file: the shipped world.txt, and generated worlds of
+ * the given number of rooms, each with an alien asking one multiple choice question.
+ * The file is held in memory so only parsing and building are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorldLoaderBenchmark {
+
+    @Param({"shipped", "1000", "20000"})
+    public String world;
+
+    private byte[] content;
+
+    @Setup
+    public void setUp() throws IOException {
+        if (world.equals("shipped")) {
+            try (InputStream in = WorldTemplate.class.getResourceAsStream("/earthmessenger/world.txt")) {
+                content = in.readAllBytes();
+            }
+        } else {
+            content = generate(Integer.parseInt(world));
+        }
+    }
+
+    @Benchmark
+    public WorldTemplate load() throws IOException {
+        return WorldLoader.load(new ByteArrayInputStream(content), world);
+    }
+
+    /**
+     * Writes a ring of rooms, each connected to its neighbours and guarded by its own alien.
+     */
+    private static byte[] generate(int rooms) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < rooms; i++) {
+            sb.append("location Room ").append(i).append('\n')
+                    .append("    long A generated room, number ").append(i).append(", with a little description.\n")
+                    .append("    long A second line of description.\n")
+                    .append("    command poke wall = poke wall\n")
+                    .append("    connect north = Room ").append((i + 1) % rooms).append('\n')
+                    .append("    connect south = Room ").append((i + rooms - 1) % rooms).append('\n')
+                    .append("    occupant Alien").append(i).append('\n');
+            if (i == 0) {
+                sb.append("    start\n");
+            }
+        }
+        for (int i = 0; i < rooms; i++) {
+            sb.append("alien Alien").append(i).append(" logic\n")
+                    .append("    question What comes after ").append(i).append("?\n")
+                    .append("    option ").append(i + 1).append('\n')
+                    .append("    option ").append(i - 1).append('\n')
+                    .append("    answers a | ").append(i + 1).append(" | the next number\n");
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
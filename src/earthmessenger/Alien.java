@@ -1,3 +1,5 @@
+package earthmessenger;
+
 /**
  * Represents an alien who tests the player in a specific chamber.
  *
@@ -23,56 +25,78 @@
  * The alien evaluates the player's response and contributes to the final judgment.
  *
  * Aliens are instantiated with different data (name, role, questions) but
- * share the same behavior.
+ * share the same behavior. That data lives in an AlienTemplate shared by every game;
+ * an Alien is a view of one player's progress through the test, which is packed into the
+ * word of the alien's location in the game's SessionState.
  *
  * STATE TRACKING:
  * - hasMetPlayer: Has the player entered this chamber?
  * - testCompleted: Has the player finished all questions?
  * - currentQuestion: Which question are we on? (0-3)
+ * An alien drawing from a QuestionBank picks its questions from the game's seed,
+ * so the same game always gets the same test, even when resumed.
  * Example usage:
- *   Alien zyx = new Alien("Zyx", "logic", "What came first, chicken or egg?", acceptableAnswers);
- *   String greeting = zyx.greet();
+ *   Alien zyx = new Alien(new AlienTemplate("Zyx", "logic", questions));
+ *   String greeting = zyx.greet(player);
  *   String question = zyx.askQuestion();
  *   boolean passed = zyx.checkAnswer(playerAnswer);
  */
 import java.util.*;
 public class Alien{
+private AlienTemplate template;
 private String name;
-private String role;
-private List<Question> questions;//we have a list of question(s)
-    //game tracking
-private int trustLevel;
-private int currentQuestion;
-private boolean hasMetPlayer;
-private boolean testCompleted;
+private List<Question> questions;//we have a list of question(s), shared via the template
+private int[] picks;//for an alien drawing from a bank: this game's questions, as indices into the bank
+    //game tracking: trust level, current question and the met/completed flags live in the
+    //game's SessionState, in the word of the alien's location
+private SessionState state;
+private int slot;
 private String greeting;
 
+    // Trust at which a test is passed
+    static final int PASSING_TRUST = 10;
+    // Trust at which an alien approves of the player in the final judgment
+    static final int APPROVING_TRUST = 15;
+
  /**
-     * Creates a new Alien with a name, chamber type, and list of questions.
+     * Creates one game's copy of an alien from its shared name, chamber type and questions.
      *Chamber names and alien's name are not revealing to the player to prevent mind biasing
-     * @param name The alien's name (e.g., "Corn", "Marshmallow", "Water")
-     * @param role The type of test ("logic", "empathy", or "trust")
-     * @param questions List of Question objects to ask the player
+     * @param template The alien's name, role and questions
+     */
+ public Alien(AlienTemplate template) {
+     this(template, new SessionState(1), 0, 0);
+ }
+
+ /**
+     * Creates one game's copy of an alien, drawing its questions with the game's seed
+     * if it takes them from a bank.
+     *
+     * @param template The alien's name, role and questions
+     * @param state The game's packed state, where the alien's progress is kept
+     * @param slot The id of the alien's location, whose word in the state it shares
+     * @param seed The game's seed (see EarthMessenger.getSeed())
      */
- public Alien(String name, String role, List<Question> questions) {
-     this.name = name;
-     this.role = role;
-     this.greeting = greeting;
-     this.questions = questions;
-     this.trustLevel = 0;
-     this.currentQuestion = 0;
-     this.hasMetPlayer = false;
-     this.testCompleted = false;
+ public Alien(AlienTemplate template, SessionState state, int slot, long seed) {
+     this.template = template;
+     this.state = state;
+     this.slot = slot;
+     this.name = template.getName();
+     this.questions = template.getQuestions();
+     if (template.getBank() != null) {
+         picks = new int[template.getTestSize()];
+         template.getBank().draw(seed + name.hashCode() * 0x9E3779B97F4A7C15L, picks);
+     }
  }
     /**
      * First greeting when player enters the chamber.
      * Sets hasMetPlayer to true and introduces the alien and their purpose.
      *
+     * @param player The player being greeted
      * @return A formatted greeting message
      */
-    public String greet() {
-        hasMetPlayer = true;
-        System.out.println("hello");
+    public String greet(Player player) {
+        state.set(slot, SessionState.ALIEN_MET, true);
+        player.getGame().getOut().println("hello");
         return "";
     }
     /**
@@ -81,35 +105,35 @@ private String greeting;
      * @return Message indicating test has begun and the first question
      */
     public String startTest(Player player) {
-        if (testCompleted) {
+        if (isTestCompleted()) {
             return name + " has already tested you.";
         }
 
-        return "\"Let us begin...\"\n\n" + askQuestion(player);
+        player.getGame().getOut().print("\"Let us begin...\"\n\n");
+        return askQuestion(player);
     }
 
     /**
-     * Returns the current question text.
-     * Shows question number and the question content (with options if multiple choice).
+     * Shows the current question card.
+     * Writes the question number and the question content (with options if multiple choice)
+     * to the game's output; both come pre-encoded from the RenderCache and the Question.
      *
-     * @return Formatted question string, or message if no questions remain
+     * @return Empty string once the card is written, or message if no questions remain
      */
     public String askQuestion(Player player) {
         // Check if we have questions left
-        if (currentQuestion >= questions.size()) {
+        if (getQuestionsAnswered() >= getTotalQuestions()) {
             return "No more questions.";
         }
 
         // Get current question
-        Question q = questions.get(currentQuestion);
+        Question q = question(getQuestionsAnswered());
         player.setCurrentQuestion(q);
 
-        String questionNumber = "Question " + (currentQuestion + 1) + " of " + questions.size();
-
-        return "───────────────────────────────────────────────────────\n" +
-                questionNumber + "\n" +
-                "───────────────────────────────────────────────────────\n" +
-                q.getQuestionText();
+        OutputSink out = player.getGame().getOut();
+        out.write(RenderCache.questionHeader(getQuestionsAnswered() + 1, getTotalQuestions()));
+        out.write(q.getQuestionTextBytes());
+        return "";
     }
     /**
      * Evaluates the player's answer to the current question.
@@ -125,12 +149,12 @@ private String greeting;
      */
     public String checkAnswer(Player player, String playerAnswer) {
         // Make sure we have questions
-        if (currentQuestion >= questions.size()) {
+        if (getQuestionsAnswered() >= getTotalQuestions()) {
             return "There are no more questions to answer.";
         }
 
         // Get current question
-        Question q = questions.get(currentQuestion);
+        Question q = question(getQuestionsAnswered());
 
         // Check if answer is correct
         boolean correct = q.checkAnswer(playerAnswer);
@@ -139,22 +163,22 @@ private String greeting;
 
         // Update trust level
         if (correct) {
-            trustLevel = trustLevel + 10;
+            state.setTrustLevel(slot, getTrustLevel() + 10);
         } else {
-            trustLevel = trustLevel - 5;
+            state.setTrustLevel(slot, getTrustLevel() - 5);
         }
 
         // Move to next question
-        currentQuestion = currentQuestion + 1;
+        state.setQuestionsAnswered(slot, getQuestionsAnswered() + 1);
 
         // Check if test is finished
-        if (currentQuestion >= questions.size()) {
-            testCompleted = true;
+        if (getQuestionsAnswered() >= getTotalQuestions()) {
+            state.set(slot, SessionState.ALIEN_TESTED, true);
             player.setCurrentQuestion(null);
-            player.getCurrentLocation().setCompleted(true);
             response = response + "\n" + getTestResult(player);
         } else {
-            response = response + "\n" + askQuestion(player);
+            player.getGame().getOut().print(response + "\n");
+            response = askQuestion(player);
         }
 
         return response;
@@ -171,31 +195,26 @@ private String greeting;
         private String getTestResult(Player player) {
             String result = "═══════════════════════════════════════════════════════\n";
             result = result + name + " steps back and studies you carefully.\n\n";
+            boolean passed = getTrustLevel() >= PASSING_TRUST;
 
-            if (trustLevel >= 20) {
+            if (getTrustLevel() >= 20) {
                 result = result + "\"You have proven yourself worthy.\n";
                 result = result + "I will speak in your favor.\"\n";
-                player.getGame().addToChambersPassed();
-                player.getCurrentLocation().setHasBeenPassed(true);
 
-            } else if (trustLevel >= 10) {
+            } else if (passed) {
                 result = result + "\"You are... acceptable.\n";
                 result = result + "I will not oppose you.\"\n";
-                player.getGame().addToChambersPassed();
-                player.getCurrentLocation().setHasBeenPassed(true);
             } else {
                 result = result + "\"I am disappointed.\n";
                 result = result + "You have failed this test.\"\n";
             }
 
-            result = result + "\nTrust Level: " + trustLevel;
+            result = result + "\nTrust Level: " + getTrustLevel();
             result = result + "\n═══════════════════════════════════════════════════════\n";
-            boolean allCompleted = player.getGame().getLocations()
-                    .values()
-                    .stream()
-                    .allMatch(Location::hasBeenCompleted);
+            GameStateTracker tracker = player.getGame().getTracker();
+            tracker.chamberCompleted(player.getCurrentLocation(), passed, approves());
 
-            if(allCompleted) {
+            if(player.getGame().isGameOver()) {   // the tracker has just decided the verdict
                 result += player.getGame().getOutro();
             }
             else{
@@ -226,13 +245,28 @@ private String greeting;
 //
 //            return name + " is waiting for your answer.";
 //        }
+        /**
+         * Puts this alien back to a saved point of its test, e.g. when resuming a game.
+         *
+         * @param trustLevel The trust level reached
+         * @param questionsAnswered How many questions the player has answered
+         * @param hasMetPlayer Whether the player has met this alien
+         * @param testCompleted Whether the test is finished
+         */
+        public void restore(int trustLevel, int questionsAnswered, boolean hasMetPlayer, boolean testCompleted) {
+            state.setTrustLevel(slot, trustLevel);
+            state.setQuestionsAnswered(slot, questionsAnswered);
+            state.set(slot, SessionState.ALIEN_MET, hasMetPlayer);
+            state.set(slot, SessionState.ALIEN_TESTED, testCompleted);
+        }
+
         // ===== GETTER METHODS =====
 
         /**
          * @return Current trust level (-20 to 40 range)
          */
         public int getTrustLevel() {
-            return trustLevel;
+            return state.getTrustLevel(slot);
         }
 
         /**
@@ -246,42 +280,60 @@ private String greeting;
          * @return The role ("logic", "empathy", or "trust")
          */
         public String getRole() {
-            return role;
+            return template.getRole();
         }
 
         /**
          * @return True if player has met this alien
          */
         public boolean hasMetPlayer() {
-            return hasMetPlayer;
+            return state.is(slot, SessionState.ALIEN_MET);
         }
 
         /**
          * @return True if all questions have been answered
          */
         public boolean isTestCompleted() {
-            return testCompleted;
+            return state.is(slot, SessionState.ALIEN_TESTED);
         }
 
         /**
          * @return True if there are more questions to ask
          */
         public boolean hasMoreQuestions() {
-            return currentQuestion < questions.size();
+            return getQuestionsAnswered() < getTotalQuestions();
+        }
+
+        /**
+         * @return The question the player is on, or null once all are answered
+         */
+        public Question getCurrentQuestion() {
+            return hasMoreQuestions() ? question(getQuestionsAnswered()) : null;
         }
 
         /**
          * @return Number of questions answered so far
          */
         public int getQuestionsAnswered() {
-            return currentQuestion;
+            return state.getQuestionsAnswered(slot);
         }
 
         /**
          * @return Total number of questions this alien has
          */
         public int getTotalQuestions() {
-            return questions.size();
+            return picks != null ? picks.length : questions.size();
+        }
+
+        /**
+         * @param index Position in this game's test
+         * @return The question asked at that position
+         */
+        private Question question(int index) {
+            if (picks == null) {
+                return questions.get(index);
+            }
+            return template.getBank().get(picks[index]);
         }
 
         /**
@@ -292,6 +344,6 @@ private String greeting;
          * @return True if test is complete and trust level is 15 or higher
          */
         public boolean approves() {
-            return testCompleted && trustLevel >= 15;
+            return isTestCompleted() && getTrustLevel() >= APPROVING_TRUST;
         }
     }
\ No newline at end of file
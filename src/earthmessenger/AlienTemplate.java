@@ -0,0 +1,82 @@
+package earthmessenger;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The shared, unchanging part of an alien: its name, role and questions.
+ *
+ * One AlienTemplate exists per alien for the whole JVM. Each game wraps it in an Alien,
+ * which only holds that player's progress (trust level, current question, ...).
+ *
+ * An alien either always asks the same questions, or draws a few from the QuestionBank
+ * of its role, different ones in each game.
+ */
+public final class AlienTemplate {
+
+    private final String name;
+    private final String role;
+    private final List<Question> questions;
+    private final QuestionBank bank;
+    private final int draw;
+
+    /**
+     * Creates the definition of an alien that always asks the same questions.
+     *
+     * @param name The alien's name (e.g., "Corn", "Marshmallow", "Water")
+     * @param role The type of test ("logic", "empathy", or "trust")
+     * @param questions The questions the alien asks, in order
+     */
+    public AlienTemplate(String name, String role, List<Question> questions) {
+        this.name = name;
+        this.role = role;
+        this.questions = Collections.unmodifiableList(questions);
+        this.bank = null;
+        this.draw = 0;
+    }
+
+    /**
+     * Creates the definition of an alien that draws its questions from a bank.
+     *
+     * @param name The alien's name
+     * @param role The type of test ("logic", "empathy", or "trust")
+     * @param bank The bank of the alien's role
+     * @param draw How many questions each game's test has
+     */
+    public AlienTemplate(String name, String role, QuestionBank bank, int draw) {
+        this.name = name;
+        this.role = role;
+        this.questions = Collections.emptyList();
+        this.bank = bank;
+        this.draw = draw;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    /**
+     * @return The questions the alien asks, or every question it may draw from
+     */
+    public List<Question> getQuestions() {
+        return bank != null ? bank.asList() : questions;
+    }
+
+    /**
+     * @return The bank the alien draws from, or null if it always asks the same questions
+     */
+    public QuestionBank getBank() {
+        return bank;
+    }
+
+    /**
+     * @return How many questions one test has
+     */
+    public int getTestSize() {
+        return bank != null ? draw : questions.size();
+    }
+}
@@ -0,0 +1,257 @@
+package earthmessenger;
+
+import java.util.*;
+
+/**
+ * The acceptable answers of one question, prepared once for fast checking.
+ *
+ * Answers are normalized when the index is built (lower case, trimmed, single spaces),
+ * so checking an exact answer is one hash lookup however many synonyms a question has.
+ *
+ * A typo is one edit: inserting, deleting or replacing a character, or swapping two
+ * neighbouring ones (optimal string alignment distance). So "comfrot" is one typo from
+ * "comfort", and "the letterm", with its space dropped, one from "the letter m".
+ *
+ * For typo-tolerant checking the answers are also kept in a BK-tree: a tree where each
+ * child hangs off its parent by their edit distance. Because Levenshtein distance obeys
+ * the triangle inequality, a search for words within k edits of the input only has to
+ * visit children whose distance to their parent is within k of the input's distance to
+ * that parent, so most of the tree is skipped. The tree is ordered by Levenshtein
+ * distance, which counts a swap as two edits; it is searched twice as wide and the
+ * answers it finds are checked with swaps counting as one.
+ *
+ * Short answers are never forgiven a typo, because one edit usually turns them into
+ * another word ("not" and "nut", "hope" and "rope"). Only answers with at least
+ * MIN_TYPO_LETTERS letters, not counting spaces, go into the tree, and they allow one typo
+ * per LETTERS_PER_TYPO letters, so "comfrot" matches "comfort" but "b" never matches "c".
+ *
+ * Example usage:
+ *   AnswerIndex index = new AnswerIndex(Arrays.asList("comfort", "the letter m", "hope"));
+ *   index.matches(AnswerIndex.normalize("Comfrot"), 2);      // true: two letters swapped
+ *   index.matches(AnswerIndex.normalize("the letterm"), 2);  // true: a space dropped
+ *   index.matches(AnswerIndex.normalize("rope"), 2);         // false: too short to forgive
+ */
+public final class AnswerIndex {
+
+    public static final int MIN_TYPO_LETTERS = 6;
+    private static final int LETTERS_PER_TYPO = 5;
+
+    private final Set<String> answers;
+    private final Node root;
+
+    /**
+     * Builds the index.
+     *
+     * @param acceptableAnswers The answers as written by the content author
+     */
+    public AnswerIndex(Collection<String> acceptableAnswers) {
+        this.answers = new HashSet<>();
+        Node tree = null;
+        for (String answer : acceptableAnswers) {
+            String clean = normalize(answer);
+            if (!answers.add(clean) || !forgivesTypos(clean)) {
+                continue;
+            }
+            if (tree == null) {
+                tree = new Node(clean);
+            } else {
+                tree.add(clean);
+            }
+        }
+        this.root = tree;
+    }
+
+    /**
+     * Cleans up an answer: lower case, no surrounding spaces, single spaces between words.
+     *
+     * @param answer The raw answer
+     * @return The normalized answer
+     */
+    public static String normalize(String answer) {
+        if (isNormalized(answer)) {
+            return answer;   // the common case: nothing to copy
+        }
+        StringBuilder clean = new StringBuilder(answer.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < answer.length(); i++) {
+            char c = answer.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = clean.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                clean.append(' ');
+                pendingSpace = false;
+            }
+            clean.append(Character.toLowerCase(c));
+        }
+        return clean.toString();
+    }
+
+    private static boolean isNormalized(String answer) {
+        int last = answer.length() - 1;
+        for (int i = 0; i <= last; i++) {
+            char c = answer.charAt(i);
+            if (Character.isWhitespace(c)) {
+                if (c != ' ' || i == 0 || i == last || answer.charAt(i + 1) == ' ') {
+                    return false;
+                }
+            } else if (Character.toLowerCase(c) != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks a normalized answer against the index.
+     *
+     * @param cleanAnswer The player's answer, already normalized
+     * @param maxTypos How many edits (insert, delete, replace or swap letters) to forgive; 0 for exact
+     * @return True if the answer is acceptable
+     */
+    public boolean matches(String cleanAnswer, int maxTypos) {
+        if (answers.contains(cleanAnswer)) {
+            return true;
+        }
+        if (maxTypos <= 0 || root == null) {
+            return false;
+        }
+        return root.findWithin(cleanAnswer, maxTypos);
+    }
+
+    /**
+     * @return Number of distinct acceptable answers
+     */
+    public int size() {
+        return answers.size();
+    }
+
+    /**
+     * Checks that a normalized answer is long enough to forgive a typo in.
+     */
+    private static boolean forgivesTypos(String answer) {
+        return letters(answer) >= MIN_TYPO_LETTERS;
+    }
+
+    /**
+     * @return The length of a normalized answer, not counting spaces
+     */
+    private static int letters(String answer) {
+        int letters = 0;
+        for (int i = 0; i < answer.length(); i++) {
+            if (answer.charAt(i) != ' ') {
+                letters++;
+            }
+        }
+        return letters;
+    }
+
+    /**
+     * Optimal string alignment distance between two strings: Levenshtein distance, with
+     * a swap of two neighbouring characters counting as one edit.
+     */
+    static int typos(String a, String b) {
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    current[j] = Math.min(current[j], beforePrevious[j - 2] + 1);
+                }
+            }
+            int[] swap = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Levenshtein distance between two strings.
+     */
+    static int distance(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * A BK-tree node: one answer plus its children keyed by their distance to it.
+     */
+    private static final class Node {
+        private final String answer;
+        private final int typoLimit;   // typos the answer can absorb, however many are asked for
+        private int[] distances = new int[0];
+        private Node[] children = new Node[0];
+
+        Node(String answer) {
+            this.answer = answer;
+            this.typoLimit = letters(answer) / LETTERS_PER_TYPO;
+        }
+
+        void add(String other) {
+            Node node = this;
+            while (true) {
+                int d = distance(node.answer, other);
+                Node child = node.child(d);
+                if (child == null) {
+                    node.distances = Arrays.copyOf(node.distances, node.distances.length + 1);
+                    node.children = Arrays.copyOf(node.children, node.children.length + 1);
+                    node.distances[node.distances.length - 1] = d;
+                    node.children[node.children.length - 1] = new Node(other);
+                    return;
+                }
+                node = child;
+            }
+        }
+
+        boolean findWithin(String input, int maxTypos) {
+            int d = distance(answer, input);
+            int allowed = Math.min(maxTypos, typoLimit);
+            // A swap is two Levenshtein edits but one typo
+            if (d <= allowed || d <= 2 * allowed && typos(answer, input) <= allowed) {
+                return true;
+            }
+            // Only subtrees whose distance to this node lies within d +/- 2 * maxTypos can hold a match
+            for (int i = 0; i < children.length; i++) {
+                if (Math.abs(distances[i] - d) <= 2 * maxTypos && children[i].findWithin(input, maxTypos)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private Node child(int d) {
+            for (int i = 0; i < distances.length; i++) {
+                if (distances[i] == d) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,529 @@
+package earthmessenger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Re-grades recorded answers against a world, offline, to see how a change to the
+ * acceptable answers would move the aliens' pass rates.
+ *
+ * The log is read in blocks of whole lines. Each block is graded on a ForkJoinPool, split
+ * in halves down to a few thousand lines per task, and its counts are added to the
+ * totals. Blocks come from a small pool of buffers, two per thread: the reader waits for
+ * a free one, so memory stays the same however long the log is, and the threads are never
+ * short of work.
+ *
+ * LOG FORMAT:
+ * One UTF-8 line per finished test, fields separated by tabs:
+ *   alien  question  answer  question  answer ...
+ * The alien is its name in the world file. A question is its number among the alien's
+ * questions (or its bank's), counting from 1 in world file order. Empty lines and lines
+ * starting with # are ignored; lines naming an unknown alien or question, or with a
+ * different number of answers than the alien's test has, are counted and skipped.
+ *
+ * A test is scored as Alien.checkAnswer does (+10 for a right answer, -5 for a wrong one)
+ * and passed or approved at the trust levels Alien.getTestResult uses.
+ *
+ * Usage: BatchGrader LOG [--baseline WORLD] [--threads N]
+ * Grades against the world the game would load (see WorldTemplate); with --baseline it
+ * also grades against another world file and prints both rates side by side.
+ *
+ * Example usage:
+ *   BatchGrader grader = new BatchGrader(WorldTemplate.shared());
+ *   BatchGrader.Tally tally = grader.grade(Path.of("answers.log"), ForkJoinPool.commonPool());
+ *   tally.getPassed(0);   // tests the first alien passed
+ */
+public final class BatchGrader {
+
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int LEAF_SIZE = 1 << 15;
+
+    private final AlienTemplate[] aliens;
+    private final Question[][] questions;   // each alien's questions, looked up once for the grading loop
+    private final Map<String, Integer> alienIndex = new HashMap<>();
+
+    /**
+     * Prepares to grade against a world's aliens.
+     *
+     * @param world The world whose questions and acceptable answers are used
+     */
+    public BatchGrader(WorldTemplate world) {
+        List<AlienTemplate> found = new ArrayList<>();
+        for (LocationTemplate location : world.getLocations()) {
+            AlienTemplate alien = location.getOccupant();
+            if (alien != null && !alienIndex.containsKey(alien.getName())) {
+                alienIndex.put(alien.getName(), found.size());
+                found.add(alien);
+            }
+        }
+        this.aliens = found.toArray(new AlienTemplate[0]);
+        this.questions = new Question[aliens.length][];
+        for (int i = 0; i < aliens.length; i++) {
+            questions[i] = aliens[i].getQuestions().toArray(new Question[0]);
+        }
+    }
+
+    /**
+     * @return The aliens graded, in world order; Tally indices refer to this array
+     */
+    public AlienTemplate[] getAliens() {
+        return aliens.clone();
+    }
+
+    /**
+     * Grades every record of a log.
+     *
+     * @param log The answer log
+     * @param pool Where the grading runs; its parallelism decides how many blocks are read ahead
+     * @return The counts for the whole log
+     * @throws IOException If the log cannot be read or holds a line longer than a block
+     */
+    public Tally grade(Path log, ForkJoinPool pool) throws IOException {
+        try (InputStream in = Files.newInputStream(log)) {
+            return grade(in, pool);
+        }
+    }
+
+    /**
+     * Grades every record read from a stream.
+     *
+     * @param in The answer log
+     * @param pool Where the grading runs; its parallelism decides how many blocks are read ahead
+     * @return The counts for the whole log
+     * @throws IOException If the log cannot be read or holds a line longer than a block
+     */
+    public Tally grade(InputStream in, ForkJoinPool pool) throws IOException {
+        int buffers = 2 * pool.getParallelism();
+        BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            free.add(new byte[BLOCK_SIZE]);
+        }
+        Tally total = new Tally(aliens);
+        Throwable[] failure = new Throwable[1];
+
+        byte[] block = take(free);
+        int length = 0;
+        while (true) {
+            int read = in.read(block, length, block.length - length);
+            if (read > 0) {
+                length += read;
+                if (length < block.length) {
+                    continue;
+                }
+            }
+            boolean end = read < 0;
+            int cut = end ? length : lastLineEnd(block, length);
+            if (cut < 0) {
+                throw new IOException("A line of the answer log is longer than " + BLOCK_SIZE + " bytes");
+            }
+            byte[] next = end ? null : take(free);
+            if (next != null) {
+                System.arraycopy(block, cut, next, 0, length - cut);
+            }
+            if (cut > 0) {
+                pool.execute(new Block(block, cut, total, free, failure));
+            } else {
+                free.add(block);
+            }
+            if (end) {
+                break;
+            }
+            length -= cut;
+            block = next;
+        }
+
+        // Every buffer back in the pool means every block has been graded
+        for (int i = 0; i < buffers; i++) {
+            take(free);
+        }
+        synchronized (failure) {
+            if (failure[0] instanceof RuntimeException) {
+                throw (RuntimeException) failure[0];
+            } else if (failure[0] != null) {
+                throw new IllegalStateException("Grading failed", failure[0]);
+            }
+        }
+        return total;
+    }
+
+    private static byte[] take(BlockingQueue<byte[]> free) throws IOException {
+        try {
+            return free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while grading", e);
+        }
+    }
+
+    /**
+     * @return The index just past the last newline before length, or -1 if there is none
+     */
+    private static int lastLineEnd(byte[] bytes, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * One block read from the log: grades it, adds its counts to the totals and gives
+     * the buffer back to the reader.
+     */
+    private final class Block implements Runnable {
+        private final byte[] bytes;
+        private final int length;
+        private final Tally total;
+        private final BlockingQueue<byte[]> free;
+        private final Throwable[] failure;
+
+        Block(byte[] bytes, int length, Tally total, BlockingQueue<byte[]> free, Throwable[] failure) {
+            this.bytes = bytes;
+            this.length = length;
+            this.total = total;
+            this.free = free;
+            this.failure = failure;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Tally tally = new Lines(bytes, 0, length).invoke();
+                synchronized (total) {
+                    total.add(tally);
+                }
+            } catch (Throwable e) {
+                synchronized (failure) {
+                    if (failure[0] == null) {
+                        failure[0] = e;
+                    }
+                }
+            } finally {
+                free.add(bytes);
+            }
+        }
+    }
+
+    /**
+     * Whole lines of a block, graded in halves until small enough.
+     */
+    private final class Lines extends RecursiveTask<Tally> {
+        private final byte[] bytes;
+        private final int from;
+        private final int to;
+
+        Lines(byte[] bytes, int from, int to) {
+            this.bytes = bytes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (to - from > LEAF_SIZE) {
+                // Split after the newline nearest the middle
+                int middle = from + (to - from) / 2;
+                while (middle < to && bytes[middle - 1] != '\n') {
+                    middle++;
+                }
+                if (middle < to) {
+                    Lines second = new Lines(bytes, middle, to);
+                    second.fork();
+                    Tally tally = new Lines(bytes, from, middle).compute();
+                    tally.add(second.join());
+                    return tally;
+                }
+            }
+            Tally tally = new Tally(aliens);
+            int start = from;
+            while (start < to) {
+                int end = start;
+                while (end < to && bytes[end] != '\n') {
+                    end++;
+                }
+                gradeLine(bytes, start, end, tally);
+                start = end + 1;
+            }
+            return tally;
+        }
+    }
+
+    /**
+     * Grades one record, from start to end (exclusive, newline not included).
+     */
+    private void gradeLine(byte[] bytes, int start, int end, Tally tally) {
+        if (end > start && bytes[end - 1] == '\r') {
+            end--;
+        }
+        if (end == start || bytes[start] == '#') {
+            return;
+        }
+        int field = fieldEnd(bytes, start, end);
+        Integer index = alienIndex.get(new String(bytes, start, field - start, StandardCharsets.UTF_8));
+        if (index == null) {
+            tally.skipped++;
+            return;
+        }
+        AlienTemplate alien = aliens[index];
+        Question[] questions = this.questions[index];
+
+        // Check the whole record before counting any of it
+        int answers = 0;
+        for (int i = field; i < end; ) {
+            int numberEnd = fieldEnd(bytes, i + 1, end);
+            int number = parseNumber(bytes, i + 1, numberEnd);
+            if (number < 1 || number > questions.length || numberEnd == end) {
+                tally.skipped++;
+                return;
+            }
+            answers++;
+            i = fieldEnd(bytes, numberEnd + 1, end);
+        }
+        if (answers != alien.getTestSize()) {
+            tally.skipped++;
+            return;
+        }
+
+        int trust = 0;
+        for (int i = field; i < end; ) {
+            int numberEnd = fieldEnd(bytes, i + 1, end);
+            int question = parseNumber(bytes, i + 1, numberEnd) - 1;
+            int answerEnd = fieldEnd(bytes, numberEnd + 1, end);
+            String answer = new String(bytes, numberEnd + 1, answerEnd - numberEnd - 1, StandardCharsets.UTF_8);
+            tally.answered[index][question]++;
+            if (questions[question].checkAnswer(answer)) {
+                tally.correct[index][question]++;
+                trust += 10;
+            } else {
+                trust -= 5;
+            }
+            i = answerEnd;
+        }
+        tally.tests[index]++;
+        if (trust >= Alien.PASSING_TRUST) {
+            tally.passed[index]++;
+        }
+        if (trust >= Alien.APPROVING_TRUST) {
+            tally.approved[index]++;
+        }
+    }
+
+    private static int fieldEnd(byte[] bytes, int start, int end) {
+        while (start < end && bytes[start] != '\t') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * @return The decimal number from start to end, or -1 if it is not one
+     */
+    private static int parseNumber(byte[] bytes, int start, int end) {
+        if (start >= end || end - start > 9) {
+            return -1;
+        }
+        int number = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            number = number * 10 + digit;
+        }
+        return number;
+    }
+
+    /**
+     * Counts of one grading run, indexed like getAliens() and each alien's getQuestions().
+     */
+    public static final class Tally {
+        private final long[] tests;
+        private final long[] passed;
+        private final long[] approved;
+        private final long[][] answered;
+        private final long[][] correct;
+        private long skipped;
+
+        Tally(AlienTemplate[] aliens) {
+            tests = new long[aliens.length];
+            passed = new long[aliens.length];
+            approved = new long[aliens.length];
+            answered = new long[aliens.length][];
+            correct = new long[aliens.length][];
+            for (int i = 0; i < aliens.length; i++) {
+                answered[i] = new long[aliens[i].getQuestions().size()];
+                correct[i] = new long[aliens[i].getQuestions().size()];
+            }
+        }
+
+        void add(Tally other) {
+            for (int i = 0; i < tests.length; i++) {
+                tests[i] += other.tests[i];
+                passed[i] += other.passed[i];
+                approved[i] += other.approved[i];
+                for (int q = 0; q < answered[i].length; q++) {
+                    answered[i][q] += other.answered[i][q];
+                    correct[i][q] += other.correct[i][q];
+                }
+            }
+            skipped += other.skipped;
+        }
+
+        public long getTests(int alien) {
+            return tests[alien];
+        }
+
+        /**
+         * @return Tests of the alien ending at a trust level of at least 10
+         */
+        public long getPassed(int alien) {
+            return passed[alien];
+        }
+
+        /**
+         * @return Tests of the alien ending at a trust level of at least 15
+         */
+        public long getApproved(int alien) {
+            return approved[alien];
+        }
+
+        public long getAnswered(int alien, int question) {
+            return answered[alien][question];
+        }
+
+        public long getCorrect(int alien, int question) {
+            return correct[alien][question];
+        }
+
+        /**
+         * @return Lines that could not be graded
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+    }
+
+    /**
+     * Prints the pass rates of each alien and the share of right answers to each question
+     * that was answered, with the baseline's in brackets if there is one.
+     *
+     * @param out Where to print
+     * @param tally The counts to report
+     * @param baseline The same log graded against another world, or null
+     */
+    public void print(PrintStream out, Tally tally, Tally baseline) {
+        for (int a = 0; a < aliens.length; a++) {
+            AlienTemplate alien = aliens[a];
+            out.println(alien.getName() + " (" + alien.getRole() + "): " + tally.getTests(a) + " tests, passed "
+                    + rate(tally.getPassed(a), tally.getTests(a), baseline == null ? -1 : baseline.getPassed(a), a, baseline)
+                    + ", approved "
+                    + rate(tally.getApproved(a), tally.getTests(a), baseline == null ? -1 : baseline.getApproved(a), a, baseline));
+            Question[] questions = this.questions[a];
+            for (int q = 0; q < questions.length; q++) {
+                if (tally.getAnswered(a, q) == 0) {
+                    continue;
+                }
+                String text = questions[q].getText();
+                if (text.length() > 60) {
+                    text = text.substring(0, 57) + "...";
+                }
+                String line = "  " + (q + 1) + ". " + percent(tally.getCorrect(a, q), tally.getAnswered(a, q)) + " right";
+                if (baseline != null) {
+                    line = line + " [" + percent(baseline.getCorrect(a, q), baseline.getAnswered(a, q)) + "]";
+                }
+                out.println(line + " of " + tally.getAnswered(a, q) + "  " + text);
+            }
+        }
+        if (tally.getSkipped() > 0) {
+            out.println(tally.getSkipped() + " lines skipped: unknown alien or question, or wrong number of answers");
+        }
+    }
+
+    private static String rate(long count, long total, long baselineCount, int alien, Tally baseline) {
+        String rate = percent(count, total);
+        if (baseline != null) {
+            rate = rate + " [" + percent(baselineCount, baseline.getTests(alien)) + "]";
+        }
+        return rate;
+    }
+
+    private static String percent(long count, long total) {
+        return total == 0 ? "-" : String.format("%.1f%%", 100.0 * count / total);
+    }
+
+    /**
+     * Usage: BatchGrader LOG [--baseline WORLD] [--threads N]
+     */
+    public static void main(String[] args) throws IOException {
+        Path log = null;
+        Path baselineWorld = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--baseline") && i + 1 < args.length) {
+                baselineWorld = Path.of(args[++i]);
+            } else if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (log == null && !args[i].startsWith("--")) {
+                log = Path.of(args[i]);
+            } else {
+                log = null;
+                break;
+            }
+        }
+        if (log == null) {
+            System.err.println("Usage: BatchGrader LOG [--baseline WORLD] [--threads N]");
+            System.exit(2);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            long started = System.nanoTime();
+            BatchGrader grader = new BatchGrader(WorldTemplate.shared());
+            BatchGrader.Tally tally = grader.grade(log, pool);
+            BatchGrader.Tally baseline = null;
+            if (baselineWorld != null) {
+                // Graded against the current world's aliens, so both tallies line up
+                BatchGrader old = new BatchGrader(WorldLoader.load(baselineWorld));
+                if (!sameShape(grader, old)) {
+                    System.err.println("The baseline world has different aliens or questions");
+                    System.exit(1);
+                }
+                baseline = old.grade(log, pool);
+            }
+            grader.print(System.out, tally, baseline);
+            System.err.printf("Graded in %.1f s on %d threads%n", (System.nanoTime() - started) / 1e9, threads);
+        } catch (UncheckedIOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static boolean sameShape(BatchGrader a, BatchGrader b) {
+        if (a.aliens.length != b.aliens.length) {
+            return false;
+        }
+        for (int i = 0; i < a.aliens.length; i++) {
+            if (!a.aliens[i].getName().equals(b.aliens[i].getName())
+                    || a.aliens[i].getQuestions().size() != b.aliens[i].getQuestions().size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
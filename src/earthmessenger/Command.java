@@ -0,0 +1,81 @@
+package earthmessenger;
+
+/**
+ * A player command resolved by the CommandGrammar.
+ *
+ * Commands are built once when the grammar is compiled and shared by every session,
+ * so resolving an input line never creates a new Command.
+ *
+ * A command carries:
+ * - action: the command type ("move", "take", "look", ...), "special" for a location
+ *   specific phrase, "play" for "play message", or "unknown"
+ * - noun: the direction or item the action applies to (may be null)
+ * - text: the canonical phrase that was matched (e.g. "open door")
+ *
+ * Example usage:
+ *   Command command = CommandGrammar.shared().resolve("Take   Pizza");
+ *   command.getAction();  // "take"
+ *   command.getNoun();    // Noun.PIZZA
+ */
+public final class Command {
+
+    /** Returned when the first word of the input is not a known verb. */
+    public static final Command UNKNOWN = new Command("unknown", null, "", false);
+
+    private final String action;
+    private final CommandParser.Noun noun;
+    private final String text;
+    private final boolean unrecognizedParameters;
+    private final Command withUnrecognizedParameters;
+
+    Command(String action, CommandParser.Noun noun, String text, boolean unrecognizedParameters) {
+        this.action = action;
+        this.noun = noun;
+        this.text = text;
+        this.unrecognizedParameters = unrecognizedParameters;
+        this.withUnrecognizedParameters = unrecognizedParameters
+                ? this
+                : new Command(action, null, text, true);
+    }
+
+    /**
+     * Gets the variant of this verb used when the words after it are not recognizable.
+     * Built once per verb, so the error path does not allocate either.
+     *
+     * @return The same action flagged with unrecognized parameters
+     */
+    Command withUnrecognizedParameters() {
+        return withUnrecognizedParameters;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    public CommandParser.Noun getNoun() {
+        return noun;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return True if this is a location-specific phrase such as "open door"
+     */
+    public boolean isSpecial() {
+        return action.equals("special");
+    }
+
+    /**
+     * @return True if the verb was recognized but the words after it were not
+     */
+    public boolean hasUnrecognizedParameters() {
+        return unrecognizedParameters;
+    }
+
+    @Override
+    public String toString() {
+        return action + (noun != null ? " " + noun.getName() : "");
+    }
+}
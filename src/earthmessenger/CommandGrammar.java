@@ -0,0 +1,218 @@
+package earthmessenger;
+
+import java.util.*;
+
+/**
+ * The compiled command language of the game, shared by every session.
+ *
+ * All the phrases a player can type - verbs and their aliases, "verb noun" pairs for every
+ * Noun keyword, "play message" and the locations' special commands - are compiled once
+ * into a character trie. Each trie path ends in a pre-built Command.
+ *
+ * Resolving a line walks the input a single time: letters are lower-cased and runs of
+ * whitespace are treated as one space on the fly, so no substrings, arrays or lowercase
+ * copies are created and nothing is allocated on the way to the Command.
+ *
+ * Example usage:
+ *   Command command = CommandGrammar.shared().resolve("  GO   north ");
+ *   // command.getAction() is "move", command.getNoun() is Noun.NORTH
+ */
+public final class CommandGrammar {
+
+    private final Node root = new Node();
+
+    /**
+     * Gets the grammar shared by all sessions, compiling it on first use.
+     *
+     * @return The shared grammar
+     */
+    public static CommandGrammar shared() {
+        return Shared.INSTANCE;
+    }
+
+    // Compiled by the JVM's class initialization the first time shared() is called
+    private static final class Shared {
+        private static final CommandGrammar INSTANCE = new CommandGrammar(collectSpecialCommands());
+    }
+
+    /**
+     * Compiles the grammar.
+     *
+     * @param specialCommands The location-specific phrases (e.g. "open door") to recognize
+     */
+    public CommandGrammar(Collection<String> specialCommands) {
+        // The verbs map command aliases to their action names.
+        // Multiple input strings (e.g., "go", "move") map to the same action for easier processing.
+        Map<String, String> verbs = new LinkedHashMap<>();
+
+        // Movement commands
+        verbs.put("go", "move");
+        verbs.put("move", "move");
+        // "enter" has its own action: as an alias of "move" (as it once was) a bare "enter"
+        // had no direction and failed, though locations tell the player to type it
+        verbs.put("enter", "enter");
+        verbs.put("exit", "exit");
+
+        // Item interaction commands
+        verbs.put("take", "take");
+        verbs.put("get", "take");
+        verbs.put("use", "use");
+
+        // Observation commands
+        verbs.put("look", "look");
+        verbs.put("examine", "look");
+
+        // Inventory commands
+        verbs.put("inventory", "inventory");
+        verbs.put("i", "inventory");
+
+        // Puzzle/interaction commands
+        verbs.put("answer", "answer");
+        verbs.put("greet", "greet");
+        verbs.put("start", "start");
+
+        // Utility commands
+        verbs.put("help", "help");
+
+        for (Map.Entry<String, String> verb : verbs.entrySet()) {
+            Command verbCommand = new Command(verb.getValue(), null, verb.getKey(), false);
+            Node verbNode = insert(verb.getKey(), verbCommand);
+            verbNode.verb = verbCommand;
+
+            // Every "verb noun" pair gets its own pre-built command
+            for (CommandParser.Noun noun : CommandParser.Noun.values()) {
+                for (String keyword : noun.getKeywords()) {
+                    String phrase = verb.getKey() + " " + keyword.toLowerCase();
+                    insert(phrase, new Command(verb.getValue(), noun, phrase, false));
+                }
+            }
+        }
+
+        insert("play message", new Command("play", null, "play message", false));
+
+        // Location phrases win over a verb reading of the same words
+        for (String special : specialCommands) {
+            String phrase = normalize(special);
+            insert(phrase, new Command("special", null, phrase, false));
+        }
+    }
+
+    /**
+     * Resolves a raw input line to its command in a single pass over the characters.
+     *
+     * @param input The line exactly as the player typed it
+     * @return The matching command; a verb flagged with unrecognized parameters if only
+     * the first word matched; or Command.UNKNOWN
+     */
+    public Command resolve(String input) {
+        Node node = root;
+        Command verb = null;
+        boolean pendingSpace = false;
+        int length = input.length();
+        int i = 0;
+
+        // Skip leading whitespace
+        while (i < length && Character.isWhitespace(input.charAt(i))) {
+            i++;
+        }
+
+        for (; i < length; i++) {
+            char c = input.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+                continue;
+            }
+            if (pendingSpace) {
+                // A word just ended; remember it if it was a complete verb
+                if (node.verb != null) {
+                    verb = node.verb;
+                }
+                pendingSpace = false;
+                node = node.child(' ');
+                if (node == null) {
+                    break;
+                }
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+            node = node.child(c);
+            if (node == null) {
+                break;
+            }
+        }
+
+        if (node != null && node.command != null) {
+            return node.command;
+        }
+        return verb != null ? verb.withUnrecognizedParameters() : Command.UNKNOWN;
+    }
+
+    /**
+     * Adds a phrase to the trie.
+     *
+     * @param phrase Lower-case words separated by single spaces
+     * @param command The command the phrase resolves to
+     * @return The node where the phrase ends
+     */
+    private Node insert(String phrase, Command command) {
+        Node node = root;
+        for (int i = 0; i < phrase.length(); i++) {
+            node = node.childOrCreate(phrase.charAt(i));
+        }
+        node.command = command;
+        return node;
+    }
+
+    /**
+     * Lower-cases a phrase and collapses its whitespace the same way resolve() reads input.
+     */
+    private static String normalize(String phrase) {
+        return String.join(" ", phrase.trim().toLowerCase().split("\\s+"));
+    }
+
+    /**
+     * Gathers every special command phrase defined anywhere in the game world.
+     */
+    private static Collection<String> collectSpecialCommands() {
+        Set<String> phrases = new LinkedHashSet<>();
+        for (LocationTemplate location : WorldTemplate.shared().getLocations()) {
+            phrases.addAll(location.getSpecialCommands().keySet());
+        }
+        return phrases;
+    }
+
+    /**
+     * One trie node. Children are kept in two small parallel arrays because the
+     * fan-out of a command language is tiny; a linear scan beats hashing here.
+     */
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private Command command;    // set if a phrase ends here
+        private Command verb;       // set if a complete verb ends here
+
+        Node child(char c) {
+            char[] k = keys;
+            for (int i = 0; i < k.length; i++) {
+                if (k[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node childOrCreate(char c) {
+            Node existing = child(c);
+            if (existing != null) {
+                return existing;
+            }
+            Node created = new Node();
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = c;
+            children[children.length - 1] = created;
+            return created;
+        }
+    }
+}
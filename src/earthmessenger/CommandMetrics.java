@@ -0,0 +1,274 @@
+package earthmessenger;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts every command the games handle and how long each took, per verb.
+ *
+ * CommandParser.parse() records each command here. Recording takes no lock: every counter
+ * is a LongAdder, which spreads concurrent updates over per-thread cells, and each
+ * latency goes into a fixed histogram bucket chosen with one shift. So thousands of
+ * sessions can record at once without slowing each other down, and the metrics are
+ * always on.
+ *
+ * Histogram bucket 0 holds times under 128 ns and bucket k holds [128 << (k - 1), 128 << k);
+ * the last bucket catches everything from about 4.3 seconds up. Percentiles are reported as the upper
+ * bound of the bucket they fall in, so they are at most twice the real value.
+ *
+ * Read the numbers over JMX (see CommandMetricsMXBean) or as text with dump().
+ *
+ * Example usage:
+ *   long start = System.nanoTime();
+ *   ...
+ *   CommandMetrics.shared().record(CommandMetrics.Verb.TAKE, System.nanoTime() - start);
+ */
+public final class CommandMetrics implements CommandMetricsMXBean {
+
+    public static final String OBJECT_NAME = "earthmessenger:type=CommandMetrics";
+
+    private static final int BUCKETS = 27;
+    private static final int FIRST_BUCKET_SHIFT = 7;   // bucket 0 is under 128 ns
+
+    private static final CommandMetrics SHARED = new CommandMetrics();
+
+    /**
+     * What a command turned out to be, as far as the metrics are concerned.
+     */
+    public enum Verb {
+        MOVE("move"),
+        ENTER("enter"),
+        EXIT("exit"),
+        TAKE("take"),
+        USE("use"),
+        GREET("greet"),
+        START("start"),
+        LOOK("look"),
+        INVENTORY("inventory"),
+        HELP("help"),
+        PLAY("play"),
+        ANSWER("answer"),           // an answer to an alien's question
+        SPECIAL("special"),         // a location-specific command such as "open door"
+        INVALID("invalid");         // anything the game did not understand
+
+        private final String name;
+
+        Verb(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final Histogram[] histograms = new Histogram[Verb.values().length];
+    private volatile long startNanos;
+
+    private CommandMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * @return The metrics shared by every game in this JVM
+     */
+    public static CommandMetrics shared() {
+        return SHARED;
+    }
+
+    /**
+     * Makes the shared metrics visible over JMX. Safe to call more than once.
+     */
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(SHARED, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // Already registered
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Records one command.
+     *
+     * @param verb What the command was
+     * @param nanos How long it took to parse and run
+     */
+    public void record(Verb verb, long nanos) {
+        histograms[verb.ordinal()].record(nanos);
+    }
+
+    /**
+     * @param verb A verb
+     * @return How many times it ran
+     */
+    public long getCount(Verb verb) {
+        return histograms[verb.ordinal()].count();
+    }
+
+    @Override
+    public long getCommandCount() {
+        long total = 0;
+        for (Histogram histogram : histograms) {
+            total += histogram.count();
+        }
+        return total;
+    }
+
+    @Override
+    public double getUptimeSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Verb verb : Verb.values()) {
+            counts.put(verb.getName(), histograms[verb.ordinal()].count());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMeanMicros() {
+        Map<String, Double> means = new LinkedHashMap<>();
+        for (Verb verb : Verb.values()) {
+            means.put(verb.getName(), histograms[verb.ordinal()].meanNanos() / 1000.0);
+        }
+        return means;
+    }
+
+    @Override
+    public Map<String, Double> getP99Micros() {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        for (Verb verb : Verb.values()) {
+            percentiles.put(verb.getName(), histograms[verb.ordinal()].percentileNanos(0.99) / 1000.0);
+        }
+        return percentiles;
+    }
+
+    @Override
+    public Map<String, Double> getMaxMicros() {
+        Map<String, Double> maxima = new LinkedHashMap<>();
+        for (Verb verb : Verb.values()) {
+            maxima.put(verb.getName(), histograms[verb.ordinal()].maxNanos() / 1000.0);
+        }
+        return maxima;
+    }
+
+    @Override
+    public String dump() {
+        double seconds = getUptimeSeconds();
+        long total = getCommandCount();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Command metrics over %.1f s: %d commands, %.1f/s%n",
+                seconds, total, seconds > 0 ? total / seconds : 0.0));
+        sb.append(String.format("%-10s %10s %10s %10s %10s %10s %10s%n",
+                "verb", "count", "per sec", "mean us", "p50 us", "p99 us", "max us"));
+        for (Verb verb : Verb.values()) {
+            Histogram histogram = histograms[verb.ordinal()];
+            long count = histogram.count();
+            if (count == 0) {
+                continue;
+            }
+            sb.append(String.format("%-10s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    verb.getName(), count, count / seconds,
+                    histogram.meanNanos() / 1000.0,
+                    histogram.percentileNanos(0.50) / 1000.0,
+                    histogram.percentileNanos(0.99) / 1000.0,
+                    histogram.maxNanos() / 1000.0));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (Histogram histogram : histograms) {
+            histogram.reset();
+        }
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * One verb's count and latencies. Updates racing with a read or a reset may show up
+     * in some of the numbers and not yet in others; that is fine for monitoring.
+     */
+    private static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        Histogram() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos) {
+            int bucket = 64 - Long.numberOfLeadingZeros(nanos >>> FIRST_BUCKET_SHIFT);
+            buckets[Math.min(bucket, BUCKETS - 1)].increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        long count() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        double meanNanos() {
+            long count = count();
+            return count == 0 ? 0 : (double) totalNanos.sum() / count;
+        }
+
+        long maxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * @return The upper bound of the bucket holding the given fraction of the times,
+         *         never more than the slowest time seen
+         */
+        long percentileNanos(double fraction) {
+            long[] counts = new long[BUCKETS];
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+                count += counts[i];
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(fraction * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min((long) 1 << (FIRST_BUCKET_SHIFT + i), maxNanos());
+                }
+            }
+            return maxNanos();
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            totalNanos.reset();
+            maxNanos.reset();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package earthmessenger;
+
+import java.util.Map;
+
+/**
+ * The JMX view of CommandMetrics, registered as "earthmessenger:type=CommandMetrics".
+ *
+ * Maps are keyed by verb name ("move", "take", "answer", ...) and show up in JConsole
+ * and VisualVM as tables.
+ */
+public interface CommandMetricsMXBean {
+
+    /**
+     * @return Commands handled since the start or the last reset
+     */
+    long getCommandCount();
+
+    /**
+     * @return Seconds covered by the numbers, since the start or the last reset
+     */
+    double getUptimeSeconds();
+
+    /**
+     * @return How many times each verb ran
+     */
+    Map<String, Long> getCounts();
+
+    /**
+     * @return Each verb's mean parse-and-run time in microseconds
+     */
+    Map<String, Double> getMeanMicros();
+
+    /**
+     * @return Each verb's 99th percentile parse-and-run time in microseconds
+     */
+    Map<String, Double> getP99Micros();
+
+    /**
+     * @return Each verb's slowest parse-and-run time in microseconds
+     */
+    Map<String, Double> getMaxMicros();
+
+    /**
+     * @return The same numbers as a text table
+     */
+    String dump();
+
+    /**
+     * Starts counting again from zero.
+     */
+    void reset();
+}
@@ -1,53 +1,26 @@
+package earthmessenger;
+
 import java.util.*;
 
 public class CommandParser {
-    private Map<String, String> validCommands;  // Maps verbs to command types
     private Player player;
     private EarthMessenger game;
+    private CommandGrammar grammar;  // Compiled once, shared by all parsers
+    private CommandMetrics metrics;  // Counts and times every command, shared by all parsers
+    private final InputTokenizer tokens = new InputTokenizer();  // Reused for every line
+    private final StringBuilder reply = new StringBuilder();      // Reused to build error messages
 
     /**
      * Creates a CommandParser that can execute commands for the given player.
-     * Initializes the valid commands map with all recognized commands and their aliases.
+     * Recognized commands and their aliases live in the shared CommandGrammar.
      *
      * @param player The player object that will be modified by commands
      */
     public CommandParser(EarthMessenger game, Player player) {
         this.player = player;
         this.game = game;
-
-        // The validCommands map associates command aliases with their action names.
-        // Multiple input strings (e.g., "go", "move", "enter") map to the same action for easier processing.
-        validCommands = new HashMap<>();
-
-        // Movement commands
-        validCommands.put("go", "move");
-        validCommands.put("move", "move");
-        validCommands.put("enter", "move");
-        validCommands.put("exit", "exit");
-
-        // Item interaction commands
-        validCommands.put("take", "take");
-        validCommands.put("get", "take");
-        validCommands.put("use", "use");
-
-        // Observation commands
-        validCommands.put("look", "look");
-        validCommands.put("examine", "look");
-
-        // Inventory commands
-        validCommands.put("inventory", "inventory");
-        validCommands.put("i", "inventory");
-
-        // Puzzle/interaction commands
-        validCommands.put("answer", "answer");
-        validCommands.put("greet", "greet");
-        validCommands.put("start",  "start");
-
-        // Utility commands
-        validCommands.put("help", "help");
-        validCommands.put("play message", "play");
-
-
+        this.grammar = CommandGrammar.shared();
+        this.metrics = CommandMetrics.shared();
     }
 
     /**
@@ -80,6 +53,15 @@ public class CommandParser {
             return keywords[0];
         }
 
+        /**
+         * Gets every string form (keyword) of this noun.
+         *
+         * @return A copy of the keywords, primary keyword first
+         */
+        public String[] getKeywords() {
+            return keywords.clone();
+        }
+
         /**
          * Checks whether this noun matches the given item by comparing names.
          *
@@ -97,6 +79,24 @@ public class CommandParser {
             return false;
         }
 
+        /**
+         * Gets the item type this noun names.
+         *
+         * @return The item type, or null for a direction
+         */
+        public ItemType getItemType() {
+            switch (this) {
+                case PIZZA:
+                    return ItemType.PIZZA;
+                case IPHONE:
+                    return ItemType.IPHONE;
+                case WATERBOTTLE:
+                    return ItemType.WATER_BOTTLE;
+                default:
+                    return null;
+            }
+        }
+
         /**
          * Converts a string into the corresponding Noun enum constant.
          *
@@ -124,86 +124,161 @@ public class CommandParser {
      */
 
     public String parse(Scanner scanner, String input) {
+        return parse(input);
+    }
 
-        input = input.toLowerCase().trim();
-        String[] words = input.split("\\s+");
-
-        if (words.length == 0) return "Please enter a command...";
+    /**
+     * Parses input and executes the corresponding command.
+     * The input comes from whatever the session reads from (console or network).
+     * Every command is counted and timed in the shared CommandMetrics.
+     *
+     * @param input Raw player input string
+     * @return Result message to display to the player
+     */
+    public String parse(String input) {
+        long start = System.nanoTime();
+
+        // One pass over the input finds the pre-built command
+        Command command = grammar.resolve(input);
+        CommandMetrics.Verb verb = classify(command);
+        try {
+            return execute(verb, command, input);
+        } finally {
+            metrics.record(verb, System.nanoTime() - start);
+        }
+    }
 
+    /**
+     * Works out what a command does here: a location-specific command wins, then an
+     * answer to a pending question, then the verb itself.
+     *
+     * @param command The resolved command
+     * @return What to run, also the name it is counted under in the CommandMetrics
+     */
+    private CommandMetrics.Verb classify(Command command) {
         // Check if this is a location-specific special command
-        Location currentLocation = player.getCurrentLocation();
-        if (currentLocation.hasSpecialCommand(input)) {
-            return handleSpecialCommand(input, currentLocation);
+        if (command.isSpecial() && player.getCurrentLocation().hasSpecialCommand(command.getText())) {
+            return CommandMetrics.Verb.SPECIAL;
         }
         else if(player.getCurrentQuestion()!=null){
-            return currentLocation.getOccupant().checkAnswer(player, input);
-        }
-
-        String action = words[0];
-
-        if (input.equals("play message")) {
-            return playMessage();
+            return CommandMetrics.Verb.ANSWER;
         }
 
-        // Check if the action is valid and get its command type
-        if (!validCommands.containsKey(action)) {
-            return "This is not a valid command- type 'help' for more info :)";
+        if (command.getAction().equals("play")) {
+            return CommandMetrics.Verb.PLAY;
         }
-        action = validCommands.get(action);
-
-        String parameters = (words.length > 1)
-                ? input.substring(action.length()).trim()
-                : "";
 
-        Noun noun = null;
-        if (!parameters.isEmpty()) {
-            try {
-                noun = Noun.fromString(parameters);
-            } catch (IllegalArgumentException e) {
-                return "\"" + parameters + "\" is not recognizable.\nTry keeping commands simple. Type 'help' to see what you can do.";
-            }
+        // Check if the action is valid
+        if (command == Command.UNKNOWN || command.isSpecial() || command.hasUnrecognizedParameters()) {
+            return CommandMetrics.Verb.INVALID;
         }
 
         /*
         * "action" is the verb command and "noun" is expected to be
         *  a direction or item - depending on the command
         * */
-        // Todo: Debug waterBottle item and take water commmand
-        switch (action) {
+        switch (command.getAction()) {
             case "move":
             case "go":
-                return move(noun);
+                return CommandMetrics.Verb.MOVE;
             case "enter":
-                return enter();
+                return CommandMetrics.Verb.ENTER;
             case "exit":
-                return exit();
+                return CommandMetrics.Verb.EXIT;
             case "take":
-                return take(noun);
+                return CommandMetrics.Verb.TAKE;
             case "use":
-                return use(noun);
+                return CommandMetrics.Verb.USE;
             case "greet":
             case "talk":
-                return greet();
+                return CommandMetrics.Verb.GREET;
             case "start":
-                return startTest();
+                return CommandMetrics.Verb.START;
             case "look":
-                return player.getCurrentLocation().getLongDescription();
+                return CommandMetrics.Verb.LOOK;
             case "inventory":
-                return displayInventory();
+                return CommandMetrics.Verb.INVENTORY;
             case "help":
+                return CommandMetrics.Verb.HELP;
+            default:
+                return CommandMetrics.Verb.INVALID;
+        }
+    }
+
+    /**
+     * Runs a classified command.
+     *
+     * @param verb What the command does, from classify()
+     * @param command The resolved command
+     * @param input Raw player input string
+     * @return Result message to display to the player
+     */
+    private String execute(CommandMetrics.Verb verb, Command command, String input) {
+        Noun noun = command.getNoun();
+
+        // Todo: Debug waterBottle item and take water commmand
+        switch (verb) {
+            case SPECIAL:
+                return handleSpecialCommand(command.getText(), player.getCurrentLocation());
+            case ANSWER:
+                return player.getCurrentLocation().getOccupant().checkAnswer(player, input);
+            case PLAY:
+                return playMessage();
+            case MOVE:
+                return move(noun);
+            case ENTER:
+                return enter();
+            case EXIT:
+                return exit();
+            case TAKE:
+                return take(noun);
+            case USE:
+                return use(noun);
+            case GREET:
+                return greet();
+            case START:
+                return startTest();
+            case LOOK:
+                return player.getCurrentLocation().getLongDescription();
+            case INVENTORY:
+                return displayInventory();
+            case HELP:
                 return showHelp();
             default:
+                if (command != Command.UNKNOWN && !command.isSpecial() && command.hasUnrecognizedParameters()) {
+                    return unrecognizedParameters(input);
+                }
                 return "This is not a valid command- type 'help' for more info :)";
-    }}
+        }
+    }
+
+    /**
+     * Tells the player that the words after the verb mean nothing, quoting them back
+     * lower-cased. The words are copied straight from the input into a reused buffer, so
+     * the message itself is the only allocation.
+     *
+     * @param input Raw player input string
+     * @return The error message
+     */
+    private String unrecognizedParameters(String input) {
+        tokens.tokenize(input);
+        reply.setLength(0);
+        tokens.appendLowerCase(1, reply.append('"'));
+        return reply.append("\" is not recognizable.\nTry keeping commands simple. Type 'help' to see what you can do.")
+                .toString();
+    }
 
     /**
      * Moves the player in the specified direction.
      * Checks if there's a connected room in the specified direction and moves the player there.
      *
-     * @param direction The direction to move (NORTH, SOUTH, EAST, WEST, EXIT)
+     * @param direction The direction to move (NORTH, SOUTH, EAST, WEST, EXIT), or null if none was given
      * @return A message describing the movement result
      */
     public String move(Noun direction) {
+        if (direction == null) {
+            return "Go where? Try a direction, like \"go north\".";
+        }
         Location currentLocation = player.getCurrentLocation();
         String directionKey = direction.getName().toLowerCase();
 
@@ -221,6 +296,7 @@ public class CommandParser {
 
         // Move the player to the new location
         player.setCurrentLocation(nextLocation);
+        game.getTracker().locationReached(nextLocation);
         String response = nextLocation.getShortDescription();
 
         return response;
@@ -244,7 +320,7 @@ public class CommandParser {
             return "There is no one to speak to here...";
         }
         Alien occupant  = currentLocation.getOccupant();
-        return occupant.greet();
+        return occupant.greet(player);
     }
 
     public String startTest(){
@@ -267,6 +343,7 @@ public class CommandParser {
         if(currentLocation.hasBeenCompleted() && currentLocation.getConnectedRoom("exit") != null){
             Location exitRoom = currentLocation.getConnectedRoom("exit");
             player.setCurrentLocation(exitRoom);
+            game.getTracker().locationReached(exitRoom);
             String response =  "You exit " + currentLocation.getName() + " and arrive in " + exitRoom.getName() + ".";
             if(!exitRoom.isVisited()){
                 response += "\n" +  exitRoom.getLongDescription();
@@ -274,7 +351,7 @@ public class CommandParser {
             }
             return response;
         }
-        else if(currentLocation.getName()!="Spaceship"){
+        else if(!currentLocation.getName().equals("Spaceship")){
             return "The chamber’s wards hold firm. You may not depart until its trial is complete.";
         }
         else if(currentLocation.getName().equals("Spaceship")){
@@ -288,10 +365,13 @@ public class CommandParser {
     /**
      * Adds an item to the player's inventory.
      *
-     * @param itemType The item type to take
+     * @param itemType The item type to take, or null if none was given
      * @return A message confirming the item was taken
      */
     public String take(Noun itemType) {
+        if (itemType == null) {
+            return "Take what? Name the item, like \"take pizza\".";
+        }
         Location currentLocation = player.getCurrentLocation();
 
         // Find the matching item in the location using the noun's keywords
@@ -320,85 +400,51 @@ public class CommandParser {
     /**
      * Uses an item from the player's inventory.
      *
-     * @param itemType The item type to use
+     * @param itemType The item type to use, or null if none was given
      * @return A message describing the effect of using the item
      */
     public String use(Noun itemType) {
+        if (itemType == null) {
+            return "Use what? Name the item, like \"use pizza\".";
+        }
         player.useItem(itemType);
         String response = "You have used " + itemType.keywords[0];
         return response;
     }
 
     /**
-     * Displays the player's inventory in a formatted string.
+     * Displays the player's inventory.
+     * The frame and each item's entry come pre-encoded from the RenderCache and are
+     * written straight to the game's output.
      *
-     * @return A formatted inventory list or a message if empty
+     * @return Empty string, the inventory has been written to the output
      */
     public String displayInventory() {
-        List<Item> inventory = player.getInventory();
+        Inventory inventory = player.getInventory();
+        OutputSink out = game.getOut();
 
         if (inventory.isEmpty()) {
-            return "═══════════════════════════════════════════════════════\n" +
-                    "                    INVENTORY                          \n" +
-                    "═══════════════════════════════════════════════════════\n" +
-                    "   Your inventory is empty.                            \n" +
-                    "═══════════════════════════════════════════════════════";
+            out.write(RenderCache.INVENTORY_EMPTY);
+            return "";
         }
 
-        StringBuilder response = new StringBuilder();
-        response.append("═══════════════════════════════════════════════════════\n");
-        response.append("                    INVENTORY                          \n");
-        response.append("═══════════════════════════════════════════════════════\n");
-
-        for (Item item : inventory) {
-            response.append("  ").append(item.getGraphic()).append(" ").append(item.getName()).append("\n");
-            response.append("     ").append(item.getDescription()).append("\n");
-            response.append("\n");
+        out.write(RenderCache.INVENTORY_HEADER);
+        for (int i = 0; i < inventory.size(); i++) {
+            out.write(RenderCache.inventoryLine(inventory.get(i)));
         }
-
-        response.append("═══════════════════════════════════════════════════════");
-
-        return response.toString();
+        out.write(RenderCache.INVENTORY_FOOTER);
+        return "";
     }
 
     /**
      * Shows available commands and location-specific actions.
+     * Each location's help screen is rendered once, in the RenderCache.
      *
-     * @return A formatted help message
+     * @return Empty string, the help screen has been written to the output
      */
     public String showHelp() {
-        StringBuilder help = new StringBuilder();
-
-        help.append("\n═══════════════════════════════════════════════════════\n");
-        help.append("                 AVAILABLE COMMANDS                    \n");
-        help.append("═══════════════════════════════════════════════════════\n\n");
-
-        help.append("MOVEMENT:\n");
-        help.append("  • go [direction] - Move in a direction (north/south/east/west)\n");
-        help.append("  • enter/exit - Enter or leave a location\n\n");
-
-        help.append("ITEMS:\n");
-        help.append("  • take [item] - Pick up an item\n");
-        help.append("  • use [item] - Use an item from your inventory\n");
-        help.append("  • inventory (i) - View what you're carrying\n\n");
-
-        help.append("INFORMATION:\n");
-        help.append("  • look - Examine your surroundings in detail\n");
-        help.append("  • help - Show this message\n\n");
-
-        // Show location-specific commands
-        Location currentLocation = player.getCurrentLocation();
-        List<String> specialCommands = currentLocation.getSpecialCommandDescriptions();
-
-        if (!specialCommands.isEmpty()) {
-            help.append("SPECIAL ACTIONS (here):\n");
-            for (String cmd : specialCommands) {
-                help.append("  • ").append(cmd).append("\n");
-            }
-            help.append("\n");
-        }
-        help.append("═══════════════════════════════════════════════════════\n");
-        return help.toString();
+        game.getOut().write(RenderCache.help(player.getCurrentLocation()));
+        return "";
     }
 
     /**
@@ -407,7 +453,7 @@ public class CommandParser {
      * @return Empty string if message was played, or an error message
      */
     public String playMessage() {
-        Item phone = player.getItemFromInventory("iphone");
+        Item phone = player.getItem(Noun.IPHONE);
         if (phone != null) {
             phone.use(player);
             return "";
@@ -442,16 +488,13 @@ public class CommandParser {
      * @return Result message after executing the special command
      */
     private String handleSpaceshipCommands(String command) {
-        Pizza pizza = (Pizza) player.getItemFromInventory("pizza");
-        Item water = (WaterBottle) player.getItemFromInventory("water");
-        Item phone = (IPhone) player.getItemFromInventory("phone");
+        Pizza pizza = (Pizza) player.getItem(Noun.PIZZA);
+        Item water = player.getItem(Noun.WATERBOTTLE); // by type, so a carried bottle is found
         boolean compartmentsOpened = player.getCurrentLocation().hasBeenSearched();
-        boolean spaceshipCompleted = player.getCurrentLocation().hasBeenSearched() && player.hasListenedToMessage()
-                                && player.getHungerLevel()!=5 && player.getThirstLevel()!=5;
         switch (command) {
             case "unlock door":
             case "open door":
-                if (player.getHungerLevel()==5 && player.getThirstLevel()==5 && player.hasListenedToMessage()) {
+                if (checkSpaceshipTask()) {
                     return "You unlock the door. You can now exit the spaceship.";
                 } else {
                     String response = "";
@@ -491,9 +534,7 @@ public class CommandParser {
                 if (pizza!=null) {
                     if (!pizza.isFrozen()){
                         pizza.use(player);
-                        if(spaceshipCompleted) {
-                            game.setChambersPassed(game.getChambersPassed() + 1);
-                        }
+                        checkSpaceshipTask();
                         return "You eat the warm pizza. You immediately feel stronger.";
                     } else {
                         return "The pizza is frozen solid. Maybe you should microwave it first.";
@@ -508,9 +549,7 @@ public class CommandParser {
                 }
                 if (water!=null) {
                     water.use(player);
-                    if(spaceshipCompleted) {
-                        game.setChambersPassed(game.getChambersPassed() + 1);
-                    }
+                    checkSpaceshipTask();
                     return "You drink the water. Your thirst is quenched.";
                 } else {
                     return "You don't have a water bottle... maybe check the compartments.";
@@ -522,4 +561,19 @@ public class CommandParser {
             default:
                 return "You can't do that here.";
         }
-    }}
\ No newline at end of file
+    }
+
+    /**
+     * Completes the spaceship once the player has eaten, drunk and listened to the
+     * message, so its door lets them out.
+     *
+     * @return true if the spaceship task is done
+     */
+    private boolean checkSpaceshipTask() {
+        if (player.getHungerLevel()==5 && player.getThirstLevel()==5 && player.hasListenedToMessage()) {
+            game.getTracker().spaceshipTaskCompleted(player.getCurrentLocation());
+            return true;
+        }
+        return false;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,450 @@
+package earthmessenger;
+
+/**
+ * The main controller class that manages the Earth Messenger text adventure game.
+ *
+ * This class controls the entire game experience: initializing the game world,
+ * processing player commands, tracking game state, and determining win/lose conditions.
+ *
+ * GAME DESCRIPTION:
+ * You wake up alone on a one-person ship—all humans have gone extinct, and you were
+ * cryogenically frozen as humanity's last hope. Your ship has arrived at a distant planet
+ * that scientists discovered could sustain human life. When you exit your vessel, you find
+ * yourself on an alien world inhabited by a human-like species that has been studying Earth
+ * through its abandoned structures and media for decades.
+ * Three alien scholars await you in separate chambers scattered across the planet's surface.
+ * Each will test a different aspect of your character. You must prove you are truly the last
+ * human from Earth and that your intentions are pure. Only if you pass their trials will
+ * they welcome you and help preserve what remains of humanity.
+ *
+ * GAME STATE TRACKING (see GameStateTracker):
+ * - chambersPassed: Counts how many chambers player has passed (0-3)
+ * - gameWon: True if aliens accept the player
+ * - gameLost: True if aliens reject the player
+ * The game is over once the last chamber's test ends and the verdict is decided.
+ *
+ * Each EarthMessenger instance is one self-contained game: its own world, player and
+ * output stream. Run with "--server [port]" to host many games at once (see GameServer),
+ * adding "--journal directory" to save games so players can resume them, or "--loops n"
+ * to serve them from n selector threads (see TelnetServer).
+ *
+ */
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class EarthMessenger {
+    private Player player;
+    private Location[] locations;   // this game's rooms, indexed by template id; null until first reached
+    private CommandParser parser;
+    private boolean gameOver = false;
+    private volatile OutputSink out; // read by the PlaybackScheduler as each step is due
+    private PlaybackScheduler playback;
+    private long seed;              // picks the questions aliens draw from their banks
+    private SessionState state;     // every location's, alien's and item's progress, packed
+    private GameStateTracker tracker; // completion counts and the verdict, kept up to date
+
+    public EarthMessenger(String playerName) {
+        this(playerName, OutputSink.console());
+    }
+
+    /**
+     * Creates a game whose output is written to the given sink instead of the console.
+     *
+     * @param playerName The player's name
+     * @param out Where everything the game prints for this player goes
+     */
+    public EarthMessenger(String playerName, OutputSink out) {
+        this.player = new Player(playerName, this);
+        this.out = out;
+        this.playback = PlaybackScheduler.shared();
+        this.seed = ThreadLocalRandom.current().nextLong();
+        this.state = new SessionState(WorldTemplate.shared().size());
+        this.tracker = new GameStateTracker(state, WorldTemplate.shared());
+        // The final judgment ends the game, won or lost
+        this.tracker.addListener(new GameStateTracker.Listener() {
+            @Override
+            public void gameDecided(boolean won) {
+                gameOver = true;
+            }
+        });
+    }
+
+    /**
+     * Main class for the Earth Messenger game.
+     * Creates a new game instance and runs the game loop.
+     */
+
+    public static void main(String[] args) throws java.io.IOException {
+
+        // Server mode: host many independent games over TCP instead of the console
+        // Usage: --server [port] [--journal directory] [--max-sessions n] [--idle-minutes n] [--loops n | --http]
+        // With --loops the connections are served by n selector loops (TelnetServer)
+        // instead of a virtual thread each; with --http the server speaks JSON over HTTP
+        // (HttpApiServer)
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = GameServer.DEFAULT_PORT;
+            SessionJournal journal = null;
+            int maxSessions = SessionRegistry.DEFAULT_MAX_SESSIONS;
+            long idleMillis = SessionRegistry.DEFAULT_IDLE_TIMEOUT_MILLIS;
+            int loops = 0;
+            boolean http = false;
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("--http")) {
+                    http = true;
+                } else if (args[i].equals("--loops") && i + 1 < args.length) {
+                    loops = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--journal") && i + 1 < args.length) {
+                    journal = new SessionJournal(java.nio.file.Path.of(args[++i]));
+                } else if (args[i].equals("--max-sessions") && i + 1 < args.length) {
+                    maxSessions = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--idle-minutes") && i + 1 < args.length) {
+                    idleMillis = Long.parseLong(args[++i]) * 60 * 1000;
+                } else {
+                    port = Integer.parseInt(args[i]);
+                }
+            }
+            SessionRegistry registry = new SessionRegistry(maxSessions, idleMillis);
+            if (http) {
+                new HttpApiServer(port, journal, registry).start();
+            } else if (loops > 0) {
+                new TelnetServer(port, journal, registry, loops).run();
+            } else {
+                new GameServer(port, journal, registry).run();
+            }
+            return;
+        }
+
+        Scanner scanner = new Scanner(System.in);
+        OutputSink out = OutputSink.console();
+
+        // Welcome message
+        printWelcome(out);
+        out.flush();
+        String playerName = scanner.nextLine().trim();
+        out.println();
+
+        // Initiate new game class object
+        EarthMessenger earthMessenger = new EarthMessenger(playerName, out);
+        if (earthMessenger.load(earthMessenger.player)) {
+            //earthMessenger.start();
+           earthMessenger.player.setCurrentLocation(earthMessenger.getLocation("The Blue Spire"));
+        }
+        // Game loop starts
+        CommandParser parser = new CommandParser(earthMessenger, earthMessenger.player);
+        while (!earthMessenger.isGameOver()) {
+            out.print("> ");
+            out.flush();
+            String input = scanner.nextLine();
+            // Everything the command prints and returns goes out in one write
+            out.lock();
+            try {
+                out.println(parser.parse(scanner, input));
+                out.flush();
+            } finally {
+                out.unlock();
+            }
+        }
+
+        scanner.close();
+    }
+
+    /**
+     * Prints the title banner and asks for the player's name.
+     *
+     * @param out The sink to print to
+     */
+    public static void printWelcome(OutputSink out) {
+        out.println("═══════════════════════════════════════════════════════");
+        out.println("           EARTH MESSENGER: THE LAST HUMAN             ");
+        out.println("═══════════════════════════════════════════════════════");
+        out.println();
+        out.print("Before we begin, what is your name? ");
+    }
+
+    public void start() {
+        displayIntro();
+    }
+
+    /**
+     * Sets up this game's world on top of the shared WorldTemplate.
+     * Only the starting location is created here; every other room (with its items and
+     * alien) is created the first time the player reaches it, see getLocation(int).
+     * Most players never see every room, so a game costs only what they visit.
+     *
+     * @param player The player to place at the starting location
+     * @return true once the world is ready
+     */
+    public boolean load(Player player) {
+        WorldTemplate world = WorldTemplate.shared();
+        locations = new Location[world.size()];
+        player.setCurrentLocation(getLocation(world.getStart().getId()));
+        return true;
+    }
+
+    /**
+     * The introduction narrative, with a pause where the player used to press Enter.
+     * Built once and shared by every game.
+     */
+    private static final TimedSequence INTRO = new TimedSequence()
+            .lines("───────────────────────────────────────────────────────",
+                    "",
+                    "A sharp jolt. Then silence.",
+                    "",
+                    "The cryogenic chamber hisses and the glass door swings open.",
+                    "Your muscles ache. Your head throbs.",
+                    "")
+            .pause(3000)
+            .lines("Where... where are you?",
+                    "",
+                    "Through the viewport, you see an almost familiar landscape.",
+                    "You are on the top of a hill, looking down into a green",
+                    "valley. You can see within the green there are shades of",
+                    "yellow, pink and purple dancing in the wind... flowers.",
+                    "",
+                    "It looks like the fields you remember playing in back home...",
+                    "")
+            .pause(4000)
+            .lines("You finally look up. The sky is vast and a light shade of",
+                    "blue. Enthralled by its beauty, you almost don't notice",
+                    "that there is more than one moon where the sun is supposed",
+                    "to be.",
+                    "",
+                    "Where is the sun?",
+                    "",
+                    "This isn't Earth.",
+                    "")
+            .pause(4000)
+            .lines("You turn around. The spaceship is tiny, barely large enough",
+                    "for one person. Storage compartments. A control panel with",
+                    "dead screens. Your cryopod, now open and empty.",
+                    "",
+                    "You are completely alone.",
+                    "")
+            .pause(3500)
+            .lines("Your throat is dry. Your stomach growls. Why were you",
+                    "frozen? How long have you been asleep? Where is everyone?",
+                    "",
+                    "The questions pile up, but there are no answers.",
+                    "")
+            .pause(3500)
+            .lines("───────────────────────────────────────────────────────",
+                    "",
+                    "You are in your spaceship. You need to figure out what's",
+                    "going on.",
+                    "",
+                    "Type 'help' to see available commands.",
+                    "");
+
+    /**
+     * Displays the introduction narrative to the player,
+     * setting the scene for the game.
+     * The narrative plays on the game's PlaybackScheduler, so this returns right away.
+     */
+    public void displayIntro() {
+        playback.play(INTRO, this);
+    }
+
+    /**
+     * Builds and returns the outro message when the game ends.
+     */
+    public String getOutro() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("═══════════════════════════════════════════════════════\n");
+        sb.append("                    FINAL JUDGMENT                     \n");
+        sb.append("═══════════════════════════════════════════════════════\n\n");
+
+        sb.append("The three beings gather before you.\n\n");
+        Alien logicAlien = getAlien("logic");
+        Alien empathyAlien = getAlien("empathy");
+        Alien trustAlien = getAlien("trust");
+        boolean gameWon = tracker.isGameWon();
+
+        // Corn (logic)
+        sb.append("Corn speaks first:\n");
+        if (logicAlien.approves()) {
+            sb.append("  \"Your logic is sound. I approve.\" (Trust: ")
+                    .append(logicAlien.getTrustLevel()).append(")\n\n");
+        } else {
+            sb.append("  \"Your reasoning is flawed. I reject you.\" (Trust: ")
+                    .append(logicAlien.getTrustLevel()).append(")\n\n");
+        }
+
+        // Marshmallow (empathy)
+        sb.append("Marshmallow speaks next:\n");
+        if (empathyAlien.approves()) {
+            sb.append("  \"Your heart is true. I approve.\" (Trust: ")
+                    .append(empathyAlien.getTrustLevel()).append(")\n\n");
+        } else {
+            sb.append("  \"Your empathy is lacking. I reject you.\" (Trust: ")
+                    .append(empathyAlien.getTrustLevel()).append(")\n\n");
+        }
+
+        // Water (trust)
+        sb.append("Water speaks last:\n");
+        if (trustAlien.approves()) {
+            sb.append("  \"You are trustworthy. I approve.\" (Trust: ")
+                    .append(trustAlien.getTrustLevel()).append(")\n\n");
+        } else {
+            sb.append("  \"I cannot trust you. I reject you.\" (Trust: ")
+                    .append(trustAlien.getTrustLevel()).append(")\n\n");
+        }
+
+        sb.append("───────────────────────────────────────────────────────\n\n");
+
+        // Final outcome
+        if (gameWon) {
+            sb.append("The three beings speak in unison:\n");
+            sb.append("\"You have proven yourself worthy, Earth Messenger.\"\n");
+            sb.append("\"You possess logic, empathy, and trust.\"\n");
+            sb.append("\"You are a complete human.\"\n");
+            sb.append("\"We welcome you to our world.\"\n");
+        } else {
+            sb.append("The three beings shake their heads.\n");
+            sb.append("\"A true human must have ALL three qualities:\"\n");
+            sb.append("\"Logic to think, empathy to feel, and trust to connect.\"\n");
+            sb.append("\"You are incomplete.\"\n");
+            sb.append("\"Return to the stars... alien\"\n");
+        }
+
+        sb.append("═══════════════════════════════════════════════════════");
+
+        return sb.toString();
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public OutputSink getOut() {
+        return out;
+    }
+
+    /**
+     * Redirects this game's output, e.g. once a resumed game has caught up silently.
+     *
+     * @param out Where everything the game prints for this player goes from now on
+     */
+    public void setOut(OutputSink out) {
+        this.out = out;
+    }
+
+    /**
+     * @return The random seed this game's aliens draw their questions with
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the seed aliens draw their questions with, e.g. when restoring a saved game.
+     * Aliens already met keep the questions they drew.
+     *
+     * @param seed The seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return The packed progress of this game's locations, aliens and items
+     */
+    public SessionState getState() {
+        return state;
+    }
+
+    /**
+     * @return What this game has completed so far, and whether it is won or lost
+     */
+    public GameStateTracker getTracker() {
+        return tracker;
+    }
+
+    public PlaybackScheduler getPlayback() {
+        return playback;
+    }
+
+    /**
+     * Chooses how timed narrative is played for this game, e.g. without pauses for
+     * headless runs.
+     *
+     * @param playback The scheduler to use
+     */
+    public void setPlayback(PlaybackScheduler playback) {
+        this.playback = playback;
+    }
+
+    /**
+     * Gets this game's copy of a location, creating it from the WorldTemplate the first
+     * time it is asked for.
+     *
+     * @param id The location's id in the WorldTemplate
+     * @return The location
+     */
+    public Location getLocation(int id) {
+        Location location = locations[id];
+        if (location == null) {
+            location = new Location(WorldTemplate.shared().getLocation(id), this);
+            locations[id] = location;
+        }
+        return location;
+    }
+
+    /**
+     * Gets this game's copy of a location only if the player has already reached it.
+     *
+     * @param id The location's id in the WorldTemplate
+     * @return The location, or null if it has not been created yet
+     */
+    public Location getLocationIfCreated(int id) {
+        return locations[id];
+    }
+
+    /**
+     * Checks whether the player has completed every location. A location that has not
+     * been created yet cannot have been completed.
+     *
+     * @return true if all locations are completed
+     */
+    public boolean allLocationsCompleted() {
+        return tracker.allLocationsCompleted();
+    }
+
+    /**
+     * Finds this game's alien giving the given test.
+     *
+     * @param role The test ("logic", "empathy" or "trust")
+     * @return The alien, or null if no location has one
+     */
+    private Alien getAlien(String role) {
+        for (LocationTemplate template : WorldTemplate.shared().getLocations()) {
+            AlienTemplate occupant = template.getOccupant();
+            if (occupant != null && occupant.getRole().equals(role)) {
+                return getLocation(template.getId()).getOccupant();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets this game's copy of a location.
+     *
+     * @param name The location's name
+     * @return The location, or null if there is no such location
+     */
+    public Location getLocation(String name) {
+        LocationTemplate template = WorldTemplate.shared().getLocation(name);
+        return template != null ? getLocation(template.getId()) : null;
+    }
+
+    public int getChambersPassed() {
+        return tracker.getChambersPassed();
+    }
+    public  boolean isGameOver(){
+        return this.gameOver;
+    }
+    public void setGameOver(boolean gameOver){
+        this.gameOver = gameOver;
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,220 @@
+package earthmessenger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Hosts many Earth Messenger games at once over a plain line-based TCP protocol.
+ *
+ * Every connection gets its own GameSession running on its own virtual thread.
+ * Virtual threads are cheap to create and park while waiting for input, so the number
+ * of players a node can hold is bounded by memory and cores, not by platform threads.
+ *
+ * PROTOCOL:
+ * - The server sends the welcome banner and asks for a name
+ * - The client sends one command per line (UTF-8)
+ * - The server answers each line and prints a "> " prompt, in one write per line
+ * - A line longer than MAX_LINE_CHARS is thrown away with a warning, so a client cannot
+ *   make the server buffer an endless line; a command that fails is reported and the
+ *   session goes on
+ * - The session ends when the game is over; if the client disconnects first, the game
+ *   waits for the player to come back under the same name
+ *
+ * Live sessions are kept in a SessionRegistry, so a player who comes back under the same
+ * name after a disconnect picks up their game where they left off. With a SessionJournal
+ * that also works after the game was passivated for being idle, or after a server restart.
+ *
+ * Per-command counts and latencies are published over JMX as
+ * "earthmessenger:type=CommandMetrics" (its dump operation prints them as a table), and
+ * printed to stderr when the server shuts down.
+ *
+ * Try it with:  nc localhost 7777
+ */
+public class GameServer {
+
+    public static final int DEFAULT_PORT = 7777;
+    public static final int MAX_LINE_CHARS = 1024;
+    private static final int BACKLOG = 1024;
+    private static final String TOO_LONG = new String("(too long)");   // compared by identity
+
+    private final int port;
+    private final SessionLobby lobby;
+
+    /**
+     * Creates a server that will listen on the given port of the loopback interface.
+     *
+     * @param port The TCP port to listen on
+     */
+    public GameServer(int port) {
+        this(port, null);
+    }
+
+    /**
+     * Creates a server that saves every game to the given journal.
+     *
+     * @param port The TCP port to listen on
+     * @param journal Where games are saved and resumed from, or null to keep them in memory only
+     */
+    public GameServer(int port, SessionJournal journal) {
+        this(port, journal, new SessionRegistry());
+    }
+
+    /**
+     * Creates a server that keeps its live sessions in the given registry.
+     *
+     * @param port The TCP port to listen on
+     * @param journal Where games are saved and resumed from, or null to keep them in memory only
+     * @param registry Holds the live sessions and passivates idle ones
+     */
+    public GameServer(int port, SessionJournal journal, SessionRegistry registry) {
+        this.port = port;
+        this.lobby = new SessionLobby(journal, registry);
+    }
+
+    /**
+     * Accepts connections forever, starting a virtual thread for each one.
+     *
+     * @throws IOException If the server socket cannot be opened
+     */
+    public void run() throws IOException {
+        try (ServerSocket server = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+             ExecutorService sessions = Executors.newVirtualThreadPerTaskExecutor()) {
+            System.out.println("Earth Messenger server listening on port " + port);
+            CommandMetrics.registerMBean();
+            Runtime.getRuntime().addShutdownHook(new Thread(
+                    () -> System.err.print(CommandMetrics.shared().dump()), "metrics-dump"));
+            while (!server.isClosed()) {
+                Socket socket = server.accept();
+                sessions.submit(() -> serve(socket));
+            }
+        }
+    }
+
+    /**
+     * Runs one player's game over the given connection until it ends.
+     *
+     * @param socket The client connection
+     */
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            OutputSink out = new OutputSink(socket.getOutputStream());
+
+            EarthMessenger.printWelcome(out);
+            out.flush();
+            StringBuilder line = new StringBuilder();
+            String playerName;
+            while ((playerName = readLine(in, line)) == TOO_LONG) {
+                reply(out, "That line is too long; nothing was done.", null);
+            }
+            if (playerName == null) {
+                return;
+            }
+            playerName = playerName.trim();
+            String sessionId = SessionJournal.toSessionId(playerName);
+
+            GameSession session;
+            try {
+                session = lobby.attach(sessionId, playerName, out);
+            } catch (SessionUnavailableException e) {
+                out.println(e.getMessage());
+                out.flush();
+                return;
+            }
+            try {
+                session.setPrompt("> ");
+                out.println();
+                out.println(session.getGame().getPlayer().getCurrentLocation().getLongDescription());
+                out.print("> ");
+                out.flush();
+
+                while (!session.isOver()) {
+                    String input = readLine(in, line);
+                    if (input == null) {
+                        break; // client went away
+                    }
+                    if (input == TOO_LONG) {
+                        reply(out, "That line is too long; nothing was done.", "> ");
+                        continue;
+                    }
+                    try {
+                        session.handle(input);
+                    } catch (UncheckedIOException e) {
+                        throw e;
+                    } catch (RuntimeException e) {
+                        System.err.println("Command \"" + input + "\" failed: " + e);
+                        reply(out, "Sorry, that command could not be run.", "> ");
+                    }
+                }
+            } finally {
+                lobby.detach(sessionId);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // The connection dropped; the session waits in the registry for the player
+        } catch (RuntimeException e) {
+            System.err.println("Session ended by error: " + e);
+        }
+    }
+
+    /**
+     * Reads a line of at most MAX_LINE_CHARS characters. A longer line is read to its end
+     * and thrown away, a character at a time, so it never takes more memory than that.
+     *
+     * @param in The connection
+     * @param line Scratch space, reused from line to line
+     * @return The line without its terminator, TOO_LONG if it was thrown away, or null if
+     *         the client went away
+     */
+    private static String readLine(BufferedReader in, StringBuilder line) throws IOException {
+        line.setLength(0);
+        boolean discarding = false;
+        int c;
+        while ((c = in.read()) >= 0 && c != '\n') {
+            if (discarding) {
+                continue;
+            }
+            if (line.length() == MAX_LINE_CHARS) {
+                discarding = true;
+            } else {
+                line.append((char) c);
+            }
+        }
+        if (c < 0 && line.length() == 0 && !discarding) {
+            return null;
+        }
+        if (discarding) {
+            return TOO_LONG;
+        }
+        if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+            line.setLength(line.length() - 1);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Sends the player a message that is not a game response, e.g. about a failed command.
+     *
+     * @param prompt The prompt to print after it, or null for none
+     */
+    private static void reply(OutputSink out, String message, String prompt) {
+        out.lock();
+        try {
+            out.println(message);
+            if (prompt != null) {
+                out.print(prompt);
+            }
+            out.flush();
+        } finally {
+            out.unlock();
+        }
+    }
+}
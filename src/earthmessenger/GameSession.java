@@ -0,0 +1,155 @@
+package earthmessenger;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * One player's game, isolated from every other game running in the same JVM.
+ *
+ * A session owns its own EarthMessenger world, Player and CommandParser, and all of its
+ * output goes to the sink it was created with. Nothing mutable is shared between
+ * sessions, so any number of them can run side by side.
+ *
+ * With a SessionJournal attached, every command the session runs is journaled so the
+ * game can be resumed after a restart (see SessionJournal.resume).
+ *
+ * Example usage:
+ *   GameSession session = new GameSession("Ada", OutputSink.console());
+ *   session.handle("look");     // prints the description in one write
+ */
+public class GameSession {
+
+    private final EarthMessenger game;
+    private final CommandParser parser;
+    private OutputSink out;
+    private String prompt;
+    private SessionJournal.Log journal;
+
+    /**
+     * Creates a new game for one player and places them on the spaceship.
+     *
+     * @param playerName The player's name
+     * @param out Where the game prints everything for this player
+     */
+    public GameSession(String playerName, OutputSink out) {
+        this.out = out;
+        this.game = new EarthMessenger(playerName, out);
+        game.load(game.getPlayer());
+        // One parser per session, reused for every command
+        this.parser = new CommandParser(game, game.getPlayer());
+    }
+
+    private GameSession(EarthMessenger game, OutputSink out) {
+        this.out = out;
+        this.game = game;
+        this.parser = new CommandParser(game, game.getPlayer());
+    }
+
+    /**
+     * Rebuilds a saved game from its snapshot and the commands run after it.
+     * The commands are replayed with their output discarded and without pauses, then
+     * the game is switched over to the given sink.
+     *
+     * @param snapshot The latest snapshot of the game
+     * @param commands The commands journaled after the snapshot, oldest first
+     * @param out Where the game prints from now on
+     * @return The session, in the state it was in after the last command
+     */
+    public static GameSession restore(SessionSnapshot snapshot, List<String> commands, OutputSink out) {
+        EarthMessenger game = new EarthMessenger(snapshot.getPlayerName(), OutputSink.discard());
+        game.load(game.getPlayer());
+        snapshot.restore(game);
+        game.setPlayback(PlaybackScheduler.immediate());
+
+        GameSession session = new GameSession(game, out);
+        for (String command : commands) {
+            session.parser.parse(command);
+        }
+        game.setOut(out);
+        game.setPlayback(PlaybackScheduler.shared());
+        return session;
+    }
+
+    /**
+     * Runs one line of player input and sends the whole response - including anything
+     * printed along the way and the prompt - to the sink in a single flush.
+     *
+     * @param input The raw line the player typed
+     * @return The text the command returned
+     */
+    public String handle(String input) {
+        out.lock();
+        try {
+            String response = parser.parse(input);
+            if (journal != null) {
+                journal.append(input, game);
+            }
+            out.println(response);
+            if (prompt != null && !isOver()) {
+                out.print(prompt);
+            }
+            out.flush();
+            return response;
+        } finally {
+            out.unlock();
+        }
+    }
+
+    /**
+     * Sets the text printed after every response, e.g. "> ".
+     *
+     * @param prompt The prompt, or null for none
+     */
+    public void setPrompt(String prompt) {
+        this.prompt = prompt;
+    }
+
+    /**
+     * Journals every command this session runs from now on.
+     *
+     * @param journal The session's journal, or null to stop journaling
+     */
+    public void setJournal(SessionJournal.Log journal) {
+        this.journal = journal;
+    }
+
+    public SessionJournal.Log getJournal() {
+        return journal;
+    }
+
+    /**
+     * Ends the session, forcing its journal to disk and closing it.
+     *
+     * @throws IOException If the journal cannot be closed
+     */
+    public void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * @return True once the game has ended for this player
+     */
+    public boolean isOver() {
+        return game.isGameOver();
+    }
+
+    public EarthMessenger getGame() {
+        return game;
+    }
+
+    public OutputSink getOut() {
+        return out;
+    }
+
+    /**
+     * Sends everything from now on to another sink, e.g. when the player reconnects.
+     *
+     * @param out The new sink
+     */
+    public void setOut(OutputSink out) {
+        this.out = out;
+        game.setOut(out);
+    }
+}
@@ -0,0 +1,262 @@
+package earthmessenger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a running tally of one game's progress, so "is every chamber done?" and
+ * "has the player won?" are answered from a few counters instead of a walk over the world.
+ *
+ * The game's code reports each step as it happens: an Alien when its test ends, the
+ * CommandParser when the spaceship task is done or the player reaches a room with no
+ * trial. The tracker marks the location in the SessionState, updates its counters and
+ * tells its listeners. Reporting the same step twice changes nothing.
+ *
+ * DERIVED STATE:
+ * - locations completed: rooms with no trial once reached, the spaceship once its task
+ *   is done, chambers once their test ends
+ * - chambers completed / passed: a chamber is a location with an alien; it is passed when
+ *   the alien's verdict is acceptable or better
+ * - won / lost: decided when the last chamber is completed; won if every alien approves
+ *
+ * A restored game's counters are rebuilt from its SessionState with recount().
+ *
+ * Example usage:
+ *   GameStateTracker tracker = game.getTracker();
+ *   tracker.addListener(new GameStateTracker.Listener() {
+ *       public void gameDecided(boolean won) { ... }
+ *   });
+ *   if (tracker.allChambersCompleted()) { ... }
+ */
+public final class GameStateTracker {
+
+    /**
+     * Told about each step of a game as it is made. Every method does nothing by default.
+     */
+    public interface Listener {
+
+        /**
+         * @param location A location that has just been completed, of any kind
+         */
+        default void locationCompleted(Location location) {
+        }
+
+        /**
+         * @param chamber A chamber whose test has just ended
+         * @param passed Whether the player passed it
+         */
+        default void chamberCompleted(Location chamber, boolean passed) {
+        }
+
+        /**
+         * @param spaceship The spaceship, now that the player has eaten, drunk and heard the message
+         */
+        default void spaceshipTaskCompleted(Location spaceship) {
+        }
+
+        /**
+         * Called once, when the last chamber is completed.
+         *
+         * @param won Whether every alien approves of the player
+         */
+        default void gameDecided(boolean won) {
+        }
+    }
+
+    private final SessionState state;
+    private final WorldTemplate world;
+    private final List<Listener> listeners = new ArrayList<>();
+    private int locationsCompleted;
+    private int chambersCompleted;
+    private int chambersPassed;
+    private int approvals;          // completed chambers whose alien approves
+    private boolean spaceshipTaskCompleted;
+
+    /**
+     * Creates the tracker of a game that has not started.
+     *
+     * @param state The game's packed progress
+     * @param world The world the game is played in
+     */
+    public GameStateTracker(SessionState state, WorldTemplate world) {
+        this.state = state;
+        this.world = world;
+    }
+
+    /**
+     * Reports that the player has reached a location. A room with no trial (no alien, no
+     * special commands) is completed by getting there.
+     *
+     * @param location The location reached
+     */
+    public void locationReached(Location location) {
+        if (!location.getTemplate().hasTrial()) {
+            complete(location);
+        }
+    }
+
+    /**
+     * Reports that an alien's test has ended, completing its chamber.
+     *
+     * @param chamber The chamber
+     * @param passed Whether the player passed the test
+     * @param approves Whether the alien approves of the player (see Alien.approves)
+     */
+    public void chamberCompleted(Location chamber, boolean passed, boolean approves) {
+        if (chamber.hasBeenCompleted()) {
+            return;
+        }
+        chamber.setHasBeenPassed(passed);
+        chambersCompleted++;
+        if (passed) {
+            chambersPassed++;
+        }
+        if (approves) {
+            approvals++;
+        }
+        complete(chamber);
+        for (Listener listener : listeners) {
+            listener.chamberCompleted(chamber, passed);
+        }
+        if (allChambersCompleted()) {
+            boolean won = isGameWon();
+            for (Listener listener : listeners) {
+                listener.gameDecided(won);
+            }
+        }
+    }
+
+    /**
+     * Reports that the player has eaten, drunk and heard the message, completing the spaceship.
+     *
+     * @param spaceship The spaceship
+     */
+    public void spaceshipTaskCompleted(Location spaceship) {
+        if (spaceshipTaskCompleted) {
+            return;
+        }
+        spaceshipTaskCompleted = true;
+        complete(spaceship);
+        for (Listener listener : listeners) {
+            listener.spaceshipTaskCompleted(spaceship);
+        }
+    }
+
+    private void complete(Location location) {
+        if (location.hasBeenCompleted()) {
+            return;
+        }
+        location.setCompleted(true);
+        locationsCompleted++;
+        for (Listener listener : listeners) {
+            listener.locationCompleted(location);
+        }
+    }
+
+    /**
+     * Rebuilds the counters from the SessionState, e.g. after a saved game is restored.
+     * The only call that looks at every location.
+     */
+    public void recount() {
+        locationsCompleted = 0;
+        chambersCompleted = 0;
+        chambersPassed = 0;
+        approvals = 0;
+        spaceshipTaskCompleted = false;
+        for (LocationTemplate template : world.getLocations()) {
+            int id = template.getId();
+            if (!state.is(id, SessionState.COMPLETED)) {
+                continue;
+            }
+            locationsCompleted++;
+            if (template.getOccupant() != null) {
+                chambersCompleted++;
+                if (state.is(id, SessionState.PASSED)) {
+                    chambersPassed++;
+                }
+                if (state.getTrustLevel(id) >= Alien.APPROVING_TRUST) {
+                    approvals++;
+                }
+            } else if (template.hasTrial()) {
+                spaceshipTaskCompleted = true;
+            }
+        }
+    }
+
+    /**
+     * @param listener Told about every step from now on
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener A listener added before
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return Number of locations completed, of any kind
+     */
+    public int getLocationsCompleted() {
+        return locationsCompleted;
+    }
+
+    /**
+     * @return Number of chambers whose test has ended
+     */
+    public int getChambersCompleted() {
+        return chambersCompleted;
+    }
+
+    /**
+     * @return Number of chambers the player passed
+     */
+    public int getChambersPassed() {
+        return chambersPassed;
+    }
+
+    /**
+     * @return Number of chambers in the world
+     */
+    public int getChamberCount() {
+        return world.getChamberCount();
+    }
+
+    /**
+     * @return true once the player has eaten, drunk and heard the message
+     */
+    public boolean isSpaceshipTaskCompleted() {
+        return spaceshipTaskCompleted;
+    }
+
+    /**
+     * @return true if every location in the world is completed
+     */
+    public boolean allLocationsCompleted() {
+        return locationsCompleted == world.size();
+    }
+
+    /**
+     * @return true if every chamber's test has ended
+     */
+    public boolean allChambersCompleted() {
+        return chambersCompleted > 0 && chambersCompleted == world.getChamberCount();
+    }
+
+    /**
+     * @return true if every chamber is completed and every alien approves
+     */
+    public boolean isGameWon() {
+        return allChambersCompleted() && approvals == chambersCompleted;
+    }
+
+    /**
+     * @return true if every chamber is completed and some alien does not approve
+     */
+    public boolean isGameLost() {
+        return allChambersCompleted() && approvals < chambersCompleted;
+    }
+}
@@ -0,0 +1,435 @@
+package earthmessenger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Lets web and mobile clients play over plain request/response HTTP with JSON bodies.
+ *
+ * API:
+ *   POST /sessions/{id}/commands   {"command": "look"}   (optionally "name": "Ada")
+ *   200  {"session": "ada", "output": "...", "location": "The Spaceship", "over": false}
+ *
+ * The first command for an id starts a game, named after "name" or else the id, or resumes
+ * it from the SessionJournal. Its output then begins with where the player is. Session ids
+ * are lower-case letters, digits, '-' and '_'. Errors come back as {"error": "..."}, with
+ * status 400 for a bad request, 404 for an unknown path, 409 while another request is
+ * running a command of the same game, 503 when the server is full, and 500 when the
+ * command fails or the game cannot be loaded or saved.
+ *
+ * Each request claims its session from the SessionRegistry and hands it back when it is
+ * done, so idle games are passivated as with the other front ends, and two commands of one
+ * game never run at the same time. The game's OutputSink copies whatever the command
+ * prints into the response's "output" string as it is flushed, escaping the UTF-8 bytes on
+ * the way into one byte buffer; no String or tree of the response is built. Nothing is
+ * sent until the command has finished, so a failure still gets its own status. Narrative
+ * is played at once while the request runs, since there is no connection to print it to
+ * later.
+ *
+ * Requests run on virtual threads, one per exchange.
+ *
+ * Try it with:
+ *   curl -d '{"command":"look"}' localhost:7777/sessions/ada/commands
+ */
+public class HttpApiServer {
+
+    public static final int MAX_REQUEST_BYTES = 4096;
+
+    private static final String PREFIX = "/sessions/";
+    private static final String SUFFIX = "/commands";
+    private static final int BACKLOG = 1024;
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private final int port;
+    private final SessionLobby lobby;
+
+    /**
+     * Creates a server that will listen on the given port of the loopback interface.
+     *
+     * @param port The TCP port to listen on
+     * @param journal Where games are saved and resumed from, or null to keep them in memory only
+     * @param registry Holds the live sessions and passivates idle ones
+     */
+    public HttpApiServer(int port, SessionJournal journal, SessionRegistry registry) {
+        this.port = port;
+        this.lobby = new SessionLobby(journal, registry);
+    }
+
+    /**
+     * Starts serving. Returns at once; the server runs until the JVM exits.
+     *
+     * @return The running server, e.g. to stop it
+     * @throws IOException If the port cannot be bound
+     */
+    public HttpServer start() throws IOException {
+        // The headers and the body go out in separate writes; without TCP_NODELAY the body
+        // waits for the client's delayed ACK, ~40 ms per request. Read when the first
+        // server is created, so it must be set before that.
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext(PREFIX, this::serve);
+        server.start();
+        System.out.println("Earth Messenger HTTP API listening on port " + port);
+        CommandMetrics.registerMBean();
+        Runtime.getRuntime().addShutdownHook(new Thread(
+                () -> System.err.print(CommandMetrics.shared().dump()), "metrics-dump"));
+        return server;
+    }
+
+    /**
+     * Handles one exchange.
+     */
+    private void serve(HttpExchange exchange) {
+        try (exchange) {
+            try {
+                respond(exchange);
+            } catch (SessionUnavailableException e) {
+                error(exchange, e.isServerFull() ? 503 : 409, e.getMessage());
+            } catch (IOException | UncheckedIOException e) {
+                // Nothing is sent before the command is done, so this is the journal failing
+                System.err.println("Request failed: " + e);
+                error(exchange, 500, "The game could not be loaded or saved");
+            } catch (RuntimeException e) {
+                System.err.println("Request ended by error: " + e);
+                error(exchange, 500, "The command could not be run");
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // The client went away; the exchange is closed
+        }
+    }
+
+    /**
+     * Checks the request, runs its command and sends the response. Sends nothing if it
+     * throws.
+     */
+    private void respond(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getRawPath();
+        if (!path.startsWith(PREFIX) || !path.endsWith(SUFFIX) || path.length() <= PREFIX.length() + SUFFIX.length()) {
+            error(exchange, 404, "Unknown path; commands go to POST /sessions/{id}/commands");
+            return;
+        }
+        if (!exchange.getRequestMethod().equals("POST")) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            error(exchange, 405, "Use POST");
+            return;
+        }
+        String sessionId = path.substring(PREFIX.length(), path.length() - SUFFIX.length());
+        if (!SessionJournal.toSessionId(sessionId).equals(sessionId)) {
+            error(exchange, 400, "A session id is up to 64 lower-case letters, digits, '-' and '_'");
+            return;
+        }
+
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_REQUEST_BYTES + 1);
+        }
+        if (body.length > MAX_REQUEST_BYTES) {
+            error(exchange, 413, "The request is larger than " + MAX_REQUEST_BYTES + " bytes");
+            return;
+        }
+        String command;
+        String name;
+        try {
+            command = stringMember(body, "command");
+            name = stringMember(body, "name");
+        } catch (IllegalArgumentException e) {
+            error(exchange, 400, "The body is not a JSON object: " + e.getMessage());
+            return;
+        }
+        if (command == null) {
+            error(exchange, 400, "The body has no \"command\" string");
+            return;
+        }
+
+        ByteArrayOutputStream response = run(sessionId, name != null ? name : sessionId, command);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, response.size());
+        try (OutputStream out = exchange.getResponseBody()) {
+            response.writeTo(out);
+        }
+    }
+
+    /**
+     * Runs a command of a session.
+     *
+     * @return The response body
+     */
+    private ByteArrayOutputStream run(String sessionId, String playerName, String command) throws IOException {
+        GameSession session = lobby.claim(sessionId, playerName, ResponseSink::new);
+        EarthMessenger game = session.getGame();
+        PlaybackScheduler playback = game.getPlayback();
+        try {
+            ResponseSink sink;
+            if (session.getOut() instanceof ResponseSink) {
+                sink = (ResponseSink) session.getOut();
+            } else {
+                // Left behind by another front end
+                sink = new ResponseSink();
+                session.setOut(sink);
+            }
+            game.setPlayback(PlaybackScheduler.immediate());
+
+            ByteArrayOutputStream response = new ByteArrayOutputStream();
+            JsonWriter json = new JsonWriter(response);
+            json.beginObject();
+            json.name("session").value(sessionId);
+            json.name("output").beginString();
+            sink.lock();
+            try {
+                sink.json = json;
+                if (!sink.started) {
+                    sink.println();
+                    sink.println(game.getPlayer().getCurrentLocation().getLongDescription());
+                }
+                session.handle(command);
+                sink.flush();
+                sink.started = true;   // only once the player has been sent it
+            } finally {
+                sink.json = null;
+                sink.unlock();
+            }
+            json.endString();
+            json.name("location").value(game.getPlayer().getCurrentLocation().getName());
+            json.name("over").value(session.isOver());
+            json.endObject();
+            json.close();
+            return response;
+        } finally {
+            game.setPlayback(playback);
+            lobby.detach(sessionId);
+        }
+    }
+
+    /**
+     * Sends an error, unless a response has already been started.
+     */
+    private static void error(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0);
+        JsonWriter json = new JsonWriter(exchange.getResponseBody());
+        json.beginObject();
+        json.name("error").value(message);
+        json.endObject();
+        json.close();
+    }
+
+    /**
+     * A session's sink while it is played over HTTP: each flush goes into the "output"
+     * string of the response being written, or nowhere between requests.
+     */
+    private static final class ResponseSink extends OutputSink {
+        JsonWriter json;   // set while a request runs, under the sink's lock
+        boolean started;   // the player has been told where they are
+
+        ResponseSink() {
+            super(OutputStream.nullOutputStream());
+        }
+
+        @Override
+        void send(ByteBuffer pending) throws IOException {
+            if (json != null) {
+                json.string(pending);
+            }
+        }
+    }
+
+    /**
+     * Reads one string member of a JSON object.
+     *
+     * @param body The object, as UTF-8
+     * @param name The member's name
+     * @return The member's value, or null if there is no such member or it is not a string
+     * @throws IllegalArgumentException If the body is not a JSON object
+     */
+    static String stringMember(byte[] body, String name) {
+        JsonReader reader = new JsonReader(body);
+        reader.skipSpace();
+        reader.expect('{');
+        String found = null;
+        reader.skipSpace();
+        if (!reader.consume('}')) {
+            do {
+                reader.skipSpace();
+                String member = reader.string();
+                reader.skipSpace();
+                reader.expect(':');
+                reader.skipSpace();
+                if (member.equals(name) && reader.peek() == '"') {
+                    found = reader.string();
+                } else {
+                    reader.skipValue();
+                }
+                reader.skipSpace();
+            } while (reader.consume(','));
+            reader.expect('}');
+        }
+        reader.skipSpace();
+        if (!reader.atEnd()) {
+            throw new IllegalArgumentException("text after the object");
+        }
+        return found;
+    }
+
+    /**
+     * Just enough of a JSON parser to read a request body.
+     */
+    private static final class JsonReader {
+        private final byte[] bytes;
+        private int position;
+
+        JsonReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        boolean atEnd() {
+            return position == bytes.length;
+        }
+
+        int peek() {
+            return atEnd() ? -1 : bytes[position];
+        }
+
+        void skipSpace() {
+            while (!atEnd() && (bytes[position] == ' ' || bytes[position] == '\t'
+                    || bytes[position] == '\n' || bytes[position] == '\r')) {
+                position++;
+            }
+        }
+
+        boolean consume(char c) {
+            if (peek() == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void expect(char c) {
+            if (!consume(c)) {
+                throw new IllegalArgumentException("expected '" + c + "' at byte " + position);
+            }
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder text = null;
+            int start = position;
+            while (true) {
+                if (atEnd()) {
+                    throw new IllegalArgumentException("unterminated string");
+                }
+                byte b = bytes[position];
+                if (b == '"') {
+                    String tail = new String(bytes, start, position - start, StandardCharsets.UTF_8);
+                    position++;
+                    return text == null ? tail : text.append(tail).toString();
+                }
+                if (b == '\\') {
+                    if (text == null) {
+                        text = new StringBuilder();
+                    }
+                    text.append(new String(bytes, start, position - start, StandardCharsets.UTF_8));
+                    position++;
+                    text.append(escaped());
+                    start = position;
+                } else if ((b & 0xFF) < 0x20) {
+                    throw new IllegalArgumentException("control character in a string");
+                } else {
+                    position++;
+                }
+            }
+        }
+
+        private char escaped() {
+            int c = atEnd() ? -1 : bytes[position++];
+            switch (c) {
+                case '"':
+                    return '"';
+                case '\\':
+                    return '\\';
+                case '/':
+                    return '/';
+                case 'b':
+                    return '\b';
+                case 'f':
+                    return '\f';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 't':
+                    return '\t';
+                case 'u':
+                    if (position + 4 > bytes.length) {
+                        throw new IllegalArgumentException("short \\u escape");
+                    }
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(bytes[position++], 16);
+                        if (digit < 0) {
+                            throw new IllegalArgumentException("bad \\u escape");
+                        }
+                        code = code << 4 | digit;
+                    }
+                    return (char) code;
+                default:
+                    throw new IllegalArgumentException("bad escape at byte " + position);
+            }
+        }
+
+        /**
+         * Skips any value: string, number, literal, object or array.
+         */
+        void skipValue() {
+            int c = peek();
+            if (c == '"') {
+                string();
+            } else if (c == '{' || c == '[') {
+                char close = c == '{' ? '}' : ']';
+                position++;
+                skipSpace();
+                if (consume(close)) {
+                    return;
+                }
+                do {
+                    skipSpace();
+                    if (close == '}') {
+                        string();
+                        skipSpace();
+                        expect(':');
+                        skipSpace();
+                    }
+                    skipValue();
+                    skipSpace();
+                } while (consume(','));
+                expect(close);
+            } else {
+                int start = position;
+                while (!atEnd() && (Character.isLetterOrDigit(bytes[position])
+                        || bytes[position] == '-' || bytes[position] == '+' || bytes[position] == '.')) {
+                    position++;
+                }
+                if (position == start) {
+                    throw new IllegalArgumentException("expected a value at byte " + position);
+                }
+            }
+        }
+    }
+}
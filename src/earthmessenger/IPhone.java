@@ -0,0 +1,72 @@
+package earthmessenger;
+
+/**
+ * Represents an iPhone item in the game.
+ * When used, it plays a recorded mission briefing message
+ * that sets the narrative for the player.
+ */
+public class IPhone extends Item {
+
+    /**
+     * The recorded message, with its dramatic pauses. Built once and shared by every game.
+     */
+    private static final TimedSequence BRIEFING = new TimedSequence()
+            .lines("\n═══════════════════════════════════════════════════════",
+                    "           📱 MISSION BRIEFING - PLAYING...           ",
+                    "═══════════════════════════════════════════════════════\n")
+            .pause(1000)
+            .lines("\n\"If you're hearing this... you made it. You're awake.\"")
+            .pause(2000)
+            .lines("\n\"Earth is gone. The evils of greed and corruption led",
+                    "us to destruction. Everyone is gone... but we managed",
+                    "to freeze you in time. You were chosen for your mental",
+                    "ability and youth. You had the best chance.\"")
+            .pause(2500)
+            .lines("\n\"The scientists at SpaceCorp have been studying Planet",
+                    "B360 for many years. Our studies showed this planet has",
+                    "all the right elements for potential human survival.",
+                    "We have sent you there as humanity's last hope.\"")
+            .pause(2500)
+            .lines("\n\"But there's something important you must know...\"")
+            .pause(2000)
+            .lines("\n\"The planet isn't empty. There's a species there...",
+                    "They are extremely intelligent and advanced.",
+                    "They've been studying us through our ruins and broadcasts for decades.",
+                    "They know what we were.")
+            .pause(2500)
+            .lines("\n\"Your mission is simple: convince them you're human.",
+                    "Convince them your intentions are pure. Convince them",
+                    "to let humanity, what's left of it, begin again.\"")
+            .pause(2000)
+            .lines("\n\"You are Earth's messenger. You are our last chance.\"")
+            .pause(2000)
+            .lines("\n\"Good luck.\"")
+            .pause(1500)
+            .lines("\n═══════════════════════════════════════════════════════\n");
+
+    /**
+     * Constructs a new IPhone item with a description and graphic(emoji).
+     * The iPhone contains a recorded message crucial to the storyline.
+     */
+    public IPhone() {
+        String description = "A sleek smartphone with a recorded message";
+        super("iphone", description, "\uD83D\uDCF1");
+    }
+
+    /**
+     * Plays the mission briefing message for the player.
+     * The message explains the backstory and sets the player's objective.
+     *
+     * The briefing plays on the game's PlaybackScheduler, so this returns right away and
+     * the player can keep typing while it plays. The player counts as having listened
+     * as soon as the message starts.
+     *
+     * @param player The player who is using the iPhone
+     */
+    @Override
+    public void use(Player player) {
+        player.setHasListenedToMessage(true);
+        EarthMessenger game = player.getGame();
+        game.getPlayback().play(BRIEFING, game);
+    }
+}
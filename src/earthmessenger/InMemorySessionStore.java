@@ -0,0 +1,54 @@
+package earthmessenger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps sessions' snapshots on the heap, e.g. for a server whose games need not survive a
+ * restart, or to try out code that saves games without touching the disk.
+ *
+ * Snapshots are immutable, so they are kept as they are given, not copied.
+ *
+ * Example usage:
+ *   SessionStore store = new InMemorySessionStore();
+ *   store.save("ada", SessionSnapshot.capture(game, sequence));
+ */
+public class InMemorySessionStore implements SessionStore {
+
+    private final Map<String, SessionSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    @Override
+    public SessionSnapshot load(String sessionId) {
+        return snapshots.get(sessionId);
+    }
+
+    @Override
+    public void save(String sessionId, SessionSnapshot snapshot) {
+        snapshots.put(sessionId, snapshot);
+    }
+
+    @Override
+    public boolean contains(String sessionId) {
+        return snapshots.containsKey(sessionId);
+    }
+
+    @Override
+    public boolean delete(String sessionId) {
+        return snapshots.remove(sessionId) != null;
+    }
+
+    /**
+     * @return How many sessions have a snapshot
+     */
+    public int size() {
+        return snapshots.size();
+    }
+
+    /**
+     * Forgets every snapshot.
+     */
+    @Override
+    public void close() {
+        snapshots.clear();
+    }
+}
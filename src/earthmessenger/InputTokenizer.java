@@ -0,0 +1,81 @@
+package earthmessenger;
+
+import java.util.Arrays;
+
+/**
+ * Splits a line of player input into words without copying it.
+ *
+ * Each parser owns one tokenizer and reuses it for every line. tokenize() scans the raw
+ * characters once and records where each word starts and ends in two int arrays, so no
+ * lowercase copy, substring or array of words is created. The arrays only grow when a
+ * line has more words than any line before it.
+ *
+ * Example usage:
+ *   InputTokenizer tokens = new InputTokenizer();
+ *   tokens.tokenize("  take  Water BOTTLE ");
+ *   tokens.appendLowerCase(1, new StringBuilder());   // "water bottle"
+ */
+public final class InputTokenizer {
+
+    private CharSequence input = "";
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+    private int count;
+
+    /**
+     * Finds the words of a line. Replaces the words of the previous line.
+     *
+     * @param input The line exactly as the player typed it
+     * @return The number of words
+     */
+    public int tokenize(CharSequence input) {
+        this.input = input;
+        count = 0;
+        int length = input.length();
+        int i = 0;
+        while (i < length) {
+            while (i < length && Character.isWhitespace(input.charAt(i))) {
+                i++;
+            }
+            if (i == length) {
+                break;
+            }
+            int start = i;
+            while (i < length && !Character.isWhitespace(input.charAt(i))) {
+                i++;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = i;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of words in the current line
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Appends the words from one index to the end of the line, lower-cased, keeping the
+     * spacing between them as typed. Used to quote the input back to the player.
+     *
+     * @param from Index of the first word
+     * @param to Where to append them
+     * @return to
+     */
+    public StringBuilder appendLowerCase(int from, StringBuilder to) {
+        if (from < count) {
+            for (int i = starts[from]; i < ends[count - 1]; i++) {
+                to.append(Character.toLowerCase(input.charAt(i)));
+            }
+        }
+        return to;
+    }
+}
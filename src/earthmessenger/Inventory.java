@@ -0,0 +1,134 @@
+package earthmessenger;
+
+import java.util.AbstractList;
+import java.util.EnumMap;
+
+/**
+ * The items a player carries, indexed by ItemType.
+ *
+ * A player holds at most one item of each type, so the inventory is an EnumMap from type
+ * to item: finding, adding and removing an item is an array access rather than a search
+ * by name. Seen as a List it keeps the order the items were picked up in, which is the
+ * order the "inventory" command shows them and a saved game stores them.
+ *
+ * Example usage:
+ *   Inventory inventory = player.getInventory();
+ *   Pizza pizza = (Pizza) inventory.get(ItemType.PIZZA);
+ *   if (inventory.contains(ItemType.IPHONE)) { ... }
+ */
+public class Inventory extends AbstractList<Item> {
+
+    private final EnumMap<ItemType, Item> items = new EnumMap<>(ItemType.class);
+    // The types held, in the order they were added
+    private final ItemType[] order = new ItemType[ItemType.count()];
+    private int size;
+
+    /**
+     * Gets the item of the given type.
+     *
+     * @param type The item type
+     * @return The item, or null if the player does not carry one
+     */
+    public Item get(ItemType type) {
+        return items.get(type);
+    }
+
+    /**
+     * Checks whether the player carries an item of the given type.
+     *
+     * @param type The item type
+     * @return true if the item is in the inventory
+     */
+    public boolean contains(ItemType type) {
+        return items.containsKey(type);
+    }
+
+    /**
+     * Adds an item at the end of the inventory.
+     *
+     * @param item The item to add
+     * @return true
+     * @throws IllegalArgumentException if the inventory already holds an item of that type
+     */
+    @Override
+    public boolean add(Item item) {
+        ItemType type = ItemType.of(item);
+        if (items.containsKey(type)) {
+            throw new IllegalArgumentException("Already carrying a " + item.getName());
+        }
+        items.put(type, item);
+        order[size++] = type;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes the item of the given type.
+     *
+     * @param type The item type
+     * @return The removed item, or null if the player did not carry one
+     */
+    public Item remove(ItemType type) {
+        Item item = items.remove(type);
+        if (item != null) {
+            int index = 0;
+            while (order[index] != type) {
+                index++;
+            }
+            System.arraycopy(order, index + 1, order, index, size - index - 1);
+            order[--size] = null;
+            modCount++;
+        }
+        return item;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Item item)) {
+            return false;
+        }
+        ItemType type = ItemType.of(item);
+        if (items.get(type) != item) {
+            return false;
+        }
+        remove(type);
+        return true;
+    }
+
+    @Override
+    public Item remove(int index) {
+        return remove(order[checkIndex(index)]);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Item item && items.get(ItemType.of(item)) == item;
+    }
+
+    @Override
+    public Item get(int index) {
+        return items.get(order[checkIndex(index)]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        items.clear();
+        for (int i = 0; i < size; i++) {
+            order[i] = null;
+        }
+        size = 0;
+        modCount++;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,93 @@
+package earthmessenger;
+
+        public abstract class Item {
+
+            protected String name;
+            protected String description;
+            protected String graphic;
+            // The item's state bits: its own until bind() moves them into the game's SessionState
+            private int ownBits;
+            private int[] words;
+            private int slot;
+
+            protected static final int USED = 1;
+
+            public Item(String name, String description,  String graphic) {
+                this.name = name;
+                this.description = description;
+                this.graphic = graphic;
+            }
+
+            /**
+             * Makes this item a view over its slot in a game's packed state, carrying over
+             * the state it has so far. Done by ItemType.create(SessionState).
+             *
+             * @param state The game's state
+             * @param slot The item's slot in it
+             */
+            void bind(SessionState state, int slot) {
+                int bits = getStateBits();
+                this.words = state.words();
+                this.slot = slot;
+                setStateBits(bits);
+            }
+
+            public String getName() {
+                return name;
+            }
+
+            public String getDescription() {
+                return description;
+            }
+            public String getGraphic() {
+                return graphic;
+            }
+
+            public boolean isUsed() {
+                return hasState(USED);
+            }
+
+            public void setUsed(boolean isUsed) {
+                setState(USED, isUsed);
+            }
+
+            /**
+             * Gets this item's progress packed into bits, so a saved game can store it in one int.
+             * Bit 0 is isUsed; subclasses keep the state they track in higher bits.
+             *
+             * @return The item's state bits
+             */
+            public int getStateBits() {
+                return words != null ? words[slot] : ownBits;
+            }
+
+            /**
+             * Restores the progress packed by getStateBits.
+             *
+             * @param bits The item's state bits
+             */
+            public void setStateBits(int bits) {
+                if (words != null) {
+                    words[slot] = bits;
+                } else {
+                    ownBits = bits;
+                }
+            }
+
+            protected boolean hasState(int bit) {
+                return (getStateBits() & bit) != 0;
+            }
+
+            protected void setState(int bit, boolean on) {
+                setStateBits(on ? getStateBits() | bit : getStateBits() & ~bit);
+            }
+
+            //each item is being used in its specific way، it it the
+            //behavior when the player uses item
+            public abstract void use(Player player);
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        }
@@ -0,0 +1,69 @@
+package earthmessenger;
+
+import java.util.function.Supplier;
+
+/**
+ * The kinds of items that exist in the game world.
+ *
+ * An item type is the shared definition of an item; each game creates its own Item
+ * from it, because items such as the pizza carry per-game state (frozen, eaten).
+ */
+public enum ItemType {
+    PIZZA(Pizza.class, Pizza::new),
+    IPHONE(IPhone.class, IPhone::new),
+    WATER_BOTTLE(WaterBottle.class, WaterBottle::new);
+
+    private final Class<? extends Item> itemClass;
+    private final Supplier<Item> factory;
+
+    // values() copies the array on every call; of() runs on every inventory change
+    private static final ItemType[] VALUES = values();
+
+    ItemType(Class<? extends Item> itemClass, Supplier<Item> factory) {
+        this.itemClass = itemClass;
+        this.factory = factory;
+    }
+
+    /**
+     * Finds the type an item was created from.
+     *
+     * @param item The item
+     * @return The item's type
+     */
+    public static ItemType of(Item item) {
+        for (ItemType type : VALUES) {
+            if (type.itemClass == item.getClass()) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown item: " + item.getName());
+    }
+
+    /**
+     * @return The number of item types
+     */
+    public static int count() {
+        return VALUES.length;
+    }
+
+    /**
+     * Creates a fresh item of this type for one game.
+     *
+     * @return A new item in its initial state
+     */
+    public Item create() {
+        return factory.get();
+    }
+
+    /**
+     * Creates a fresh item of this type whose state lives in a game's SessionState.
+     *
+     * @param state The game's state
+     * @return A new item in its initial state
+     */
+    public Item create(SessionState state) {
+        Item item = factory.get();
+        item.bind(state, state.itemSlot(this));
+        return item;
+    }
+}
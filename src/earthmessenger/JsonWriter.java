@@ -0,0 +1,223 @@
+package earthmessenger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes JSON straight to a stream, value by value, without building a tree first.
+ *
+ * Strings are encoded to UTF-8 and escaped in one pass into a small buffer, which goes to
+ * the stream whenever it fills up. A string can also be written in pieces that are
+ * already UTF-8 (beginString, string, endString), so a game's output can be copied into
+ * a response as it is flushed. Commas and colons are added where they belong; the caller
+ * only has to open and close objects in the right order.
+ *
+ * Example usage:
+ *   JsonWriter json = new JsonWriter(exchange.getResponseBody());
+ *   json.beginObject();
+ *   json.name("location").value("The Blue Spire");
+ *   json.name("over").value(false);
+ *   json.endObject();
+ *   json.close();         // {"location":"The Blue Spire","over":false}
+ */
+public final class JsonWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 4096;
+    private static final int MAX_DEPTH = 64;
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int count;
+    private final boolean[] hasValues = new boolean[MAX_DEPTH];   // per open object: a value was written
+    private int depth;
+
+    /**
+     * @param out Where the JSON goes; closed by close()
+     */
+    public JsonWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        if (depth == MAX_DEPTH) {
+            throw new IllegalStateException("JSON nested deeper than " + MAX_DEPTH);
+        }
+        hasValues[depth++] = false;
+        put('{');
+        return this;
+    }
+
+    public JsonWriter endObject() throws IOException {
+        depth--;
+        put('}');
+        return this;
+    }
+
+    /**
+     * Writes the name of the next member of the current object.
+     *
+     * @param name The member's name
+     */
+    public JsonWriter name(String name) throws IOException {
+        if (hasValues[depth - 1]) {
+            put(',');
+        }
+        hasValues[depth - 1] = true;
+        put('"');
+        escape(name);
+        put('"');
+        put(':');
+        return this;
+    }
+
+    /**
+     * @param value A string, or null for JSON null
+     */
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            putAscii("null");
+        } else {
+            put('"');
+            escape(value);
+            put('"');
+        }
+        return this;
+    }
+
+    public JsonWriter value(boolean value) throws IOException {
+        putAscii(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        putAscii(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Starts a string to be written in pieces with string(ByteBuffer).
+     */
+    public JsonWriter beginString() throws IOException {
+        put('"');
+        return this;
+    }
+
+    /**
+     * Adds UTF-8 text to the string begun by beginString(), escaping it on the way.
+     *
+     * @param utf8 The text; read from its position to its limit
+     */
+    public JsonWriter string(ByteBuffer utf8) throws IOException {
+        while (utf8.hasRemaining()) {
+            int b = utf8.get() & 0xFF;
+            if (b < 0x20 || b == '"' || b == '\\') {
+                escape((char) b);
+            } else {
+                put(b);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Ends the string begun by beginString().
+     */
+    public JsonWriter endString() throws IOException {
+        put('"');
+        return this;
+    }
+
+    /**
+     * Sends everything written so far to the stream.
+     */
+    public void flush() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Sends everything written so far and closes the stream.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+
+    /**
+     * Encodes a string as escaped UTF-8.
+     */
+    private void escape(String text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\') {
+                escape(c);
+            } else if (c < 0x80) {
+                put(c);
+            } else if (c < 0x800) {
+                put(0xC0 | (c >> 6));
+                put(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                put(0xF0 | (codePoint >> 18));
+                put(0x80 | ((codePoint >> 12) & 0x3F));
+                put(0x80 | ((codePoint >> 6) & 0x3F));
+                put(0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                put('?');   // unpaired surrogate, same as the JDK encoder
+            } else {
+                put(0xE0 | (c >> 12));
+                put(0x80 | ((c >> 6) & 0x3F));
+                put(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void escape(char c) throws IOException {
+        put('\\');
+        switch (c) {
+            case '"':
+                put('"');
+                break;
+            case '\\':
+                put('\\');
+                break;
+            case '\n':
+                put('n');
+                break;
+            case '\r':
+                put('r');
+                break;
+            case '\t':
+                put('t');
+                break;
+            default:
+                put('u');
+                put('0');
+                put('0');
+                put(HEX[c >> 4]);
+                put(HEX[c & 0xF]);
+                break;
+        }
+    }
+
+    private void putAscii(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            put(text.charAt(i));
+        }
+    }
+
+    private void put(int b) throws IOException {
+        if (count == buffer.length) {
+            flush();
+        }
+        buffer[count++] = (byte) b;
+    }
+}
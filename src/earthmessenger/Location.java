@@ -1,3 +1,5 @@
+package earthmessenger;
+
 /**
  * Represents a location in the game world that the player can visit.
  *
@@ -10,55 +12,53 @@
  *
  * All locations use the same location class with different data - no subclasses needed.
  *
+ * The unchanging data (name, descriptions, connections, special commands) lives in a
+ * LocationTemplate shared by every game. A Location is one game's view of it: it adds only
+ * that player's progress in the room, the items currently lying there and the room's alien.
+ * The progress flags themselves live in the game's SessionState; a Location only reads and
+ * writes its word there.
+ * A game creates its Locations only as the player reaches them (see EarthMessenger.getLocation).
+ *
  * Example usage:
- *   Room spaceship = new Room("Spaceship", "A small one-person spaceship...", false);
- *   spaceship.addItem(iphone);
- *   spaceship.addConnection("exit", planetSurface);
- *   String desc = spaceship.getDescription();
+ *   Location spaceship = game.getLocation("Spaceship");
+ *   spaceship.setSearched(true);
+ *   Location nexus = spaceship.getConnectedRoom("exit");
  */
 import java.util.*;
 public class Location {
 
-    private String name;
-    private String longDescription;
-    private String shortDescription;
+    private LocationTemplate template;
+    private EarthMessenger game;
     private List<Item> items;
     private List<Item> availableItems;
-    private Map<String, Location> connectedRooms;
-    private Map<String, String> specialCommands;
-    private boolean isOutside;
-    // is the player inside yet
-    private boolean playerEntered;
-    // has the player already visited the location
-    private boolean visited;
-    // has the player searched the location thoroughly (spaceship-specific)
-    private boolean hasBeenSearched;
-    // has the player passed the chambers test
-    private boolean hasBeenPassed;
-    // has the player completed all the required tasks of the location
-    private boolean hasBeenCompleted;
+    // The game's packed progress, and this location's word in it. The flags:
+    // PLAYER_ENTERED - is the player inside yet
+    // VISITED - has the player already visited the location
+    // SEARCHED - has the player searched the location thoroughly (spaceship-specific)
+    // PASSED - has the player passed the chambers test
+    // COMPLETED - has the player completed all the required tasks of the location
+    private SessionState state;
+    private int id;
 
     /**
-     * Constructs a new location with the given name and type.
-     * Initializes directional connections (north, south, east, west) to null.
+     * Constructs one game's view of a location, with the template's starting items.
+     * The alien occupant, if the template has one, is created when first asked for.
      *
-     * @param isOutside True if the location is outdoors, false if indoors
-     * @param name The name of the location
+     * @param template The shared location data
+     * @param game The game this location belongs to
      */
-    public Location(boolean isOutside, String name) {
-        this.name = name;
-        this.isOutside = isOutside;
-        this.connectedRooms = new HashMap<>();
-            addConnection("north", null);
-            addConnection("south", null);
-            addConnection("east", null);
-            addConnection("west", null);
+    public Location(LocationTemplate template, EarthMessenger game) {
+        this.template = template;
+        this.game = game;
+        this.state = game.getState();
+        this.id = template.getId();
         this.items = new ArrayList<>();
-        this.visited = false;
-        this.hasBeenSearched = false;
-        this.specialCommands = new HashMap<>();
         this.availableItems = new  ArrayList<>();
-        this.playerEntered = false;
+
+        List<ItemType> startingItems = template.getItems();
+        for (int i = 0; i < startingItems.size(); i++) {
+            addItem(startingItems.get(i).create(state), template.isItemAvailable(i));
+        }
     }
 
     /**
@@ -91,6 +91,15 @@ public class Location {
         return items;
     }
 
+    /**
+     * Gets the items in the location the player is allowed to take.
+     *
+     * @return A list of items
+     */
+    public List<Item> getAvailableItems() {
+        return availableItems;
+    }
+
     /**
      * Checks if the specified item is available or not
      *
@@ -111,92 +120,82 @@ public class Location {
      * @return boolean
      */
     public boolean hasBeenSearched() {
-        return hasBeenSearched;
+        return state.is(id, SessionState.SEARCHED);
     }
 
     public void setSearched(boolean searched) {
-        hasBeenSearched = searched;
+        state.set(id, SessionState.SEARCHED, searched);
     }
 
     public boolean hasBeenCompleted() {
-        return hasBeenCompleted;
+        return state.is(id, SessionState.COMPLETED);
     }
     public void setCompleted(boolean completed) {
-        hasBeenCompleted = completed;
+        state.set(id, SessionState.COMPLETED, completed);
     }
 
     public boolean isVisited() {
-        return visited;
+        return state.is(id, SessionState.VISITED);
     }
     public void setVisited(boolean visited) {
-        this.visited = visited;
+        state.set(id, SessionState.VISITED, visited);
     }
     public boolean hasPlayerEntered() {
-        return playerEntered;
+        return state.is(id, SessionState.PLAYER_ENTERED);
     }
     public void setPlayerEntered(boolean playerEntered) {
-        this.playerEntered = playerEntered;
+        state.set(id, SessionState.PLAYER_ENTERED, playerEntered);
     }
 
     public boolean hasBeenPassed() {
-        return hasBeenPassed;
+        return state.is(id, SessionState.PASSED);
     }
     public void setHasBeenPassed(boolean hasBeenPassed) {
-        this.hasBeenPassed = hasBeenPassed;
+        state.set(id, SessionState.PASSED, hasBeenPassed);
     }
     /**
-     * Gets the name of the location.
+     * Gets the shared data this location is a view of.
      *
-     * @return The location name
-     */
-    public String getName() {
-        return name;
-    }
-
-    /**
-     * Gets the long description of the location.
-     *
-     * @return The long description
+     * @return The location template
      */
-    public String getLongDescription() {
-        return longDescription;
+    public LocationTemplate getTemplate() {
+        return template;
     }
 
     /**
-     * Sets the long description of the location.
+     * Gets the location's id in the WorldTemplate.
      *
-     * @param longDescription The detailed description
+     * @return The location id
      */
-    public void setLongDescription(String longDescription) {
-        this.longDescription = longDescription;
+    public int getId() {
+        return template.getId();
     }
 
     /**
-     * Gets the short description of the location.
+     * Gets the name of the location.
      *
-     * @return The short description
+     * @return The location name
      */
-    public String getShortDescription() {
-        return shortDescription;
+    public String getName() {
+        return template.getName();
     }
 
     /**
-     * Sets the short description of the location.
+     * Gets the long description of the location.
      *
-     * @param shortDescription The brief description
+     * @return The long description
      */
-    public void setShortDescription(String shortDescription) {
-        this.shortDescription = shortDescription;
+    public String getLongDescription() {
+        return template.getLongDescription();
     }
 
     /**
-     * Adds a special command unique to this location.
+     * Gets the short description of the location.
      *
-     * @param input The command input string
-     * @param command The mapped action for the command
+     * @return The short description
      */
-    public void addSpecialCommand(String input, String command) {
-        this.specialCommands.put(input, command);
+    public String getShortDescription() {
+        return template.getShortDescription();
     }
 
     /**
@@ -206,26 +205,25 @@ public class Location {
      * @return true if the command exists, false otherwise
      */
     public boolean hasSpecialCommand(String command) {
-        return this.specialCommands.containsKey(command);
+        return template.getSpecialCommands().containsKey(command);
     }
 
     /**
-     * Gets the list of special command descriptions for this location.
+     * Gets the phrases a player can type to trigger this location's special commands.
      *
-     * @return A list of special command descriptions
+     * @return The special command inputs
      */
-    public List<String> getSpecialCommandDescriptions() {
-        return new ArrayList<>(specialCommands.values()); // Return list of descriptions
+    public Set<String> getSpecialCommandInputs() {
+        return template.getSpecialCommands().keySet();
     }
 
     /**
-     * Adds a connection from this location to another.
+     * Gets the list of special command descriptions for this location.
      *
-     * @param direction The direction or action command (e.g., "north", "exit")
-     * @param location The connected location
+     * @return A list of special command descriptions
      */
-    public void addConnection(String direction, Location location) {
-        connectedRooms.put(direction.toLowerCase(), location);
+    public List<String> getSpecialCommandDescriptions() {
+        return template.getSpecialCommandDescriptions(); // Shared, read-only list of descriptions
     }
 
     /**
@@ -235,18 +233,18 @@ public class Location {
      * @return true if a connected room exists, false otherwise
      */
     public boolean hasConnection(String direction) {
-        return connectedRooms.containsKey(direction.toLowerCase())
-                && connectedRooms.get(direction.toLowerCase()) != null;
+        return template.getConnection(direction.toLowerCase()) != null;
     }
 
     /**
-     * Gets the connected room in the given direction.
+     * Gets this game's copy of the room connected in the given direction.
      *
      * @param direction The direction to move
      * @return The connected location, or null if none exists
      */
     public Location getConnectedRoom(String direction) {
-        return connectedRooms.get(direction.toLowerCase());
+        LocationTemplate connected = template.getConnection(direction.toLowerCase());
+        return connected != null ? game.getLocation(connected.getId()) : null;
     }
 
     /**
@@ -254,14 +252,14 @@ public class Location {
      */
     private Alien roomOccupant;
 
-    public void addOccupant(Alien alien){
-        this.roomOccupant = alien;
-    }
     public Alien getOccupant() {
+        if (roomOccupant == null && template.getOccupant() != null) {
+            roomOccupant = new Alien(template.getOccupant(), state, id, game.getSeed());
+        }
         return roomOccupant;
     }
     public boolean hasOccupant(){
-        return roomOccupant != null;
+        return template.getOccupant() != null;
     }
 }
 
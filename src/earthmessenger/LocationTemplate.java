@@ -0,0 +1,174 @@
+package earthmessenger;
+
+import java.util.*;
+
+/**
+ * The shared, unchanging part of a location: name, descriptions, connections,
+ * special commands, the items it starts with and its alien occupant.
+ *
+ * Templates are built once per JVM by the WorldLoader and are only modified while the
+ * world is being built. Each game wraps them in Location objects, which hold just the
+ * player's progress in that room (visited, searched, completed, current items, ...).
+ */
+public final class LocationTemplate {
+
+    private final int id;
+    private final String name;
+    private boolean isOutside;
+    private String longDescription;
+    private String shortDescription;
+    private final Map<String, LocationTemplate> connections;
+    private final Map<String, String> specialCommands;
+    private final List<String> specialCommandDescriptions;
+    private final List<ItemType> items;
+    private final List<Boolean> itemsAvailable;
+    private AlienTemplate occupant;
+
+    // Read-only views handed out by the getters, created once
+    private final Map<String, LocationTemplate> connectionsView;
+    private final Map<String, String> specialCommandsView;
+    private final List<String> specialCommandDescriptionsView;
+    private final List<ItemType> itemsView;
+
+    /**
+     * Constructs a new location template.
+     *
+     * @param id The location's index in its WorldTemplate
+     * @param isOutside True if the location is outdoors, false if indoors
+     * @param name The name of the location
+     */
+    public LocationTemplate(int id, boolean isOutside, String name) {
+        this.id = id;
+        this.isOutside = isOutside;
+        this.name = name;
+        this.connections = new LinkedHashMap<>();
+        this.specialCommands = new LinkedHashMap<>();
+        this.specialCommandDescriptions = new ArrayList<>();
+        this.items = new ArrayList<>();
+        this.itemsAvailable = new ArrayList<>();
+        this.connectionsView = Collections.unmodifiableMap(connections);
+        this.specialCommandsView = Collections.unmodifiableMap(specialCommands);
+        this.specialCommandDescriptionsView = Collections.unmodifiableList(specialCommandDescriptions);
+        this.itemsView = Collections.unmodifiableList(items);
+    }
+
+    // -------------------- Building the world --------------------
+
+    public void setOutside(boolean isOutside) {
+        this.isOutside = isOutside;
+    }
+
+    public void setLongDescription(String longDescription) {
+        this.longDescription = longDescription;
+    }
+
+    public void setShortDescription(String shortDescription) {
+        this.shortDescription = shortDescription;
+    }
+
+    /**
+     * Adds a connection from this location to another.
+     *
+     * @param direction The direction or action command (e.g., "north", "exit")
+     * @param location The connected location
+     */
+    public void addConnection(String direction, LocationTemplate location) {
+        connections.put(direction.toLowerCase(), location);
+    }
+
+    /**
+     * Adds a special command unique to this location.
+     *
+     * @param input The command input string
+     * @param command The mapped action for the command
+     */
+    public void addSpecialCommand(String input, String command) {
+        specialCommands.put(input, command);
+        specialCommandDescriptions.add(command);
+    }
+
+    /**
+     * Places an item in the location at the start of every game.
+     *
+     * @param item The kind of item
+     * @param isAvailable Whether the item is in plain sight
+     */
+    public void addItem(ItemType item, boolean isAvailable) {
+        items.add(item);
+        itemsAvailable.add(isAvailable);
+    }
+
+    public void addOccupant(AlienTemplate alien) {
+        this.occupant = alien;
+    }
+
+    // -------------------- Reading the world --------------------
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isOutside() {
+        return isOutside;
+    }
+
+    public String getLongDescription() {
+        return longDescription;
+    }
+
+    public String getShortDescription() {
+        return shortDescription;
+    }
+
+    /**
+     * Gets the location connected in the given direction.
+     *
+     * @param direction The direction, already lower-cased
+     * @return The connected location, or null if there is none
+     */
+    public LocationTemplate getConnection(String direction) {
+        return connections.get(direction);
+    }
+
+    public Map<String, LocationTemplate> getConnections() {
+        return connectionsView;
+    }
+
+    public Map<String, String> getSpecialCommands() {
+        return specialCommandsView;
+    }
+
+    /**
+     * @return The descriptions of the special commands, one per input, in the order added
+     */
+    public List<String> getSpecialCommandDescriptions() {
+        return specialCommandDescriptionsView;
+    }
+
+    public List<ItemType> getItems() {
+        return itemsView;
+    }
+
+    /**
+     * @param index Position of the item in getItems()
+     * @return Whether that item starts in plain sight
+     */
+    public boolean isItemAvailable(int index) {
+        return itemsAvailable.get(index);
+    }
+
+    public AlienTemplate getOccupant() {
+        return occupant;
+    }
+
+    /**
+     * @return true if the player has something to do here: an alien's test or special commands
+     */
+    public boolean hasTrial() {
+        return occupant != null || !specialCommands.isEmpty();
+    }
+}
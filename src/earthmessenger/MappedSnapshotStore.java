@@ -0,0 +1,557 @@
+package earthmessenger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the latest SessionSnapshot of any number of sessions in one memory-mapped file:
+ * the SessionStore for a single machine's local disk.
+ *
+ * The file is a hash table of fixed-size records indexed by session id (open addressing,
+ * linear probing), so finding a session is a hash and a few byte compares in mapped
+ * memory, and loading or saving it is a single copy of SessionSnapshot.SIZE bytes.
+ * Nothing is parsed and nothing is read at startup: a million parked sessions take
+ * about a quarter of a gigabyte on disk and nothing on the heap.
+ *
+ * FILE LAYOUT:
+ * - A 64 byte header: magic, version, snapshot size, capacity, used and deleted slot counts
+ * - capacity records, each holding:
+ *     status (free, used or deleted), session id length, the session id (64 bytes),
+ *     then two copies of the session's snapshot
+ *
+ * A save overwrites the older of the two copies and forces it to disk before returning;
+ * a load picks the newest copy whose checksum is intact. A save torn by a crash therefore
+ * leaves the previous snapshot readable. A session's first save also forces the slot it
+ * claims, and a delete forces the slot's status, so neither is undone by a crash.
+ *
+ * DEFERRED FORCES:
+ * A store opened with deferForces leaves all of that to flush() and flush(sessionId), so
+ * a WriteBehindSessionStore writing a batch of sessions pays for one round of forces per
+ * batch instead of one per save. Until its record is forced, a session's later saves
+ * overwrite the same unforced copy, so a crash still leaves the last forced snapshot.
+ * Only use it when something calls flush(), as a WriteBehindSessionStore does.
+ *
+ * When three quarters of the slots are in use or deleted, the table is rebuilt into a new
+ * file that then replaces the old one: twice as large if it is at least half full of
+ * sessions, the same size otherwise (clearing out the deleted slots). Saves and loads of different sessions run in parallel; each
+ * session must only be saved by one thread at a time.
+ *
+ * Example usage:
+ *   try (MappedSnapshotStore store = new MappedSnapshotStore(Path.of("saves/snapshots.dat"))) {
+ *       store.save("ada", SessionSnapshot.capture(game, sequence));
+ *       SessionSnapshot snapshot = store.load("ada");
+ *   }
+ *   SessionStore batched = new WriteBehindSessionStore(new MappedSnapshotStore(file, DEFAULT_CAPACITY, true));
+ */
+public class MappedSnapshotStore implements SessionStore {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int MAGIC = 0x454D5353; // "EMSS"
+    private static final int VERSION = 2;   // 2: snapshots keep location ids as ints
+    private static final int HEADER_SIZE = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_SNAPSHOT_SIZE = 8;
+    private static final int H_CAPACITY = 12;
+    private static final int H_USED = 16;
+    private static final int H_DELETED = 20;
+
+    private static final int MAX_ID_LENGTH = 64;
+    private static final int STATUS = 0;
+    private static final int ID_LENGTH = 1;
+    private static final int ID = 2;
+    private static final int COPIES = 72;
+    private static final int RECORD_SIZE = COPIES + 2 * align(SessionSnapshot.SIZE);
+
+    private static final byte FREE = 0;
+    private static final byte USED = 1;
+    private static final byte DELETED = 2;
+
+    // A mapped buffer is at most 2 GB, so the records are mapped in chunks of whole records
+    private static final int RECORDS_PER_CHUNK = Integer.highestOneBit(Integer.MAX_VALUE / RECORD_SIZE);
+    private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(RECORDS_PER_CHUNK);
+
+    private final Path file;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final boolean deferForces;
+    private final Map<Long, String> unforced = new ConcurrentHashMap<>();   // slot -> session, written since forced
+    private boolean headerUnforced;   // guarded by the write lock
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] chunks;
+    private int capacity;
+
+    /**
+     * Opens the store in the given file, creating it if needed.
+     *
+     * @param file The store's file
+     * @throws IOException If the file cannot be opened or was written for a different world
+     */
+    public MappedSnapshotStore(Path file) throws IOException {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Opens the store in the given file, creating it with room for the given number of
+     * sessions if needed.
+     *
+     * @param file The store's file
+     * @param initialCapacity How many slots a new file starts with; rounded up to a power of two
+     * @throws IOException If the file cannot be opened or was written for a different world
+     */
+    public MappedSnapshotStore(Path file, int initialCapacity) throws IOException {
+        this(file, initialCapacity, false);
+    }
+
+    /**
+     * Opens the store in the given file, creating it with room for the given number of
+     * sessions if needed, and chooses when saves reach the disk.
+     *
+     * @param file The store's file
+     * @param initialCapacity How many slots a new file starts with; rounded up to a power of two
+     * @param deferForces True to force saves and deletes to disk only in flush(), false to
+     *                    force each one before it returns
+     * @throws IOException If the file cannot be opened or was written for a different world
+     */
+    public MappedSnapshotStore(Path file, int initialCapacity, boolean deferForces) throws IOException {
+        this.file = file;
+        this.deferForces = deferForces;
+        if (Files.exists(file)) {
+            open(file);
+        } else {
+            Path temp = create(file, Integer.highestOneBit(Math.max(16, initialCapacity - 1) << 1));
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            open(file);
+        }
+    }
+
+    /**
+     * Loads a session's latest snapshot.
+     *
+     * @param sessionId The session id
+     * @return The snapshot, or null if the session has none
+     */
+    @Override
+    public SessionSnapshot load(String sessionId) {
+        byte[] id = encode(sessionId);
+        lock.readLock().lock();
+        try {
+            long slot = find(id);
+            if (slot < 0) {
+                return null;
+            }
+            MappedByteBuffer chunk = chunk(slot);
+            int base = offset(slot);
+            SessionSnapshot first = copy(chunk, base + COPIES);
+            SessionSnapshot second = copy(chunk, base + COPIES + align(SessionSnapshot.SIZE));
+            if (first == null || (second != null && second.getSequence() > first.getSequence())) {
+                return second;
+            }
+            return first;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Saves a session's snapshot over the older of its two copies and forces it to disk,
+     * unless forces are deferred to flush().
+     *
+     * @param sessionId The session id
+     * @param snapshot The snapshot to save
+     * @throws IOException If the table has to grow and the new file cannot be written
+     */
+    @Override
+    public void save(String sessionId, SessionSnapshot snapshot) throws IOException {
+        byte[] id = encode(sessionId);
+        lock.readLock().lock();
+        try {
+            long slot = find(id);
+            if (slot >= 0) {
+                write(slot, sessionId, snapshot);
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            long slot = find(id);
+            if (slot < 0) {
+                if ((header.getInt(H_USED) + header.getInt(H_DELETED) + 1) * 4L > capacity * 3L) {
+                    rebuild(header.getInt(H_USED) * 2 >= capacity ? capacity * 2 : capacity);
+                }
+                slot = insert(id);
+                // write() only forces the copy it fills in; the slot's status and id, and the
+                // other copy cleared of a deleted session's data, must be on disk too
+                if (deferForces) {
+                    unforced.put(slot, sessionId);
+                    headerUnforced = true;
+                } else {
+                    chunk(slot).force(offset(slot), RECORD_SIZE);
+                    header.force();
+                }
+            }
+            write(slot, sessionId, snapshot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether a session has a snapshot.
+     *
+     * @param sessionId The session id
+     * @return true if load would find one
+     */
+    @Override
+    public boolean contains(String sessionId) {
+        byte[] id = encode(sessionId);
+        lock.readLock().lock();
+        try {
+            return find(id) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a session's snapshot.
+     *
+     * @param sessionId The session id
+     * @return true if the session had one
+     */
+    @Override
+    public boolean delete(String sessionId) {
+        byte[] id = encode(sessionId);
+        lock.writeLock().lock();
+        try {
+            long slot = find(id);
+            if (slot < 0) {
+                return false;
+            }
+            chunk(slot).put(offset(slot) + STATUS, DELETED);
+            header.putInt(H_USED, header.getInt(H_USED) - 1);
+            header.putInt(H_DELETED, header.getInt(H_DELETED) + 1);
+            if (deferForces) {
+                unforced.put(slot, sessionId);
+                headerUnforced = true;
+            } else {
+                chunk(slot).force(offset(slot) + STATUS, 1);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces every save and delete not forced yet to disk. Only has work to do when
+     * forces are deferred.
+     */
+    @Override
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            for (long slot : unforced.keySet()) {
+                chunk(slot).force(offset(slot), RECORD_SIZE);
+            }
+            unforced.clear();
+            forceHeader();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces one session's saves and deletes not forced yet to disk, leaving other sessions'
+     * for flush().
+     *
+     * @param sessionId The session id
+     */
+    @Override
+    public void flush(String sessionId) {
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, String> e : unforced.entrySet()) {
+                if (e.getValue().equals(sessionId)) {
+                    chunk(e.getKey()).force(offset(e.getKey()), RECORD_SIZE);
+                    unforced.remove(e.getKey());
+                }
+            }
+            forceHeader();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void forceHeader() {
+        if (headerUnforced) {
+            header.force();
+            headerUnforced = false;
+        }
+    }
+
+    /**
+     * @return How many sessions have a snapshot
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return header.getInt(H_USED);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return How many sessions the table has slots for
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Forces everything to disk and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel.isOpen()) {
+                for (long slot : unforced.keySet()) {
+                    chunk(slot).force(offset(slot), RECORD_SIZE);
+                }
+                unforced.clear();
+                header.force();
+                channel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the slot holding a session id.
+     *
+     * @return The slot, or -1 if the id is not in the table
+     */
+    private long find(byte[] id) {
+        long mask = capacity - 1;
+        for (long slot = hash(id) & mask, probes = 0; probes < capacity; slot = (slot + 1) & mask, probes++) {
+            MappedByteBuffer chunk = chunk(slot);
+            int base = offset(slot);
+            byte status = chunk.get(base + STATUS);
+            if (status == FREE) {
+                return -1;
+            }
+            if (status == USED && sameId(chunk, base, id)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Claims the first free or deleted slot on the id's probe path. Called under the write lock.
+     */
+    private long insert(byte[] id) {
+        long mask = capacity - 1;
+        long slot = hash(id) & mask;
+        while (true) {
+            MappedByteBuffer chunk = chunk(slot);
+            int base = offset(slot);
+            byte status = chunk.get(base + STATUS);
+            if (status != USED) {
+                if (unforced.remove(slot) != null) {
+                    chunk.force(base, RECORD_SIZE);   // a deferred delete must not be undone by the reuse
+                }
+                if (status == DELETED) {
+                    header.putInt(H_DELETED, header.getInt(H_DELETED) - 1);
+                }
+                // A new session starts with two empty copies
+                for (int i = COPIES; i < RECORD_SIZE; i++) {
+                    chunk.put(base + i, (byte) 0);
+                }
+                chunk.put(base + ID_LENGTH, (byte) id.length);
+                chunk.put(base + ID, id);
+                chunk.put(base + STATUS, USED);
+                header.putInt(H_USED, header.getInt(H_USED) + 1);
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void write(long slot, String sessionId, SessionSnapshot snapshot) {
+        MappedByteBuffer chunk = chunk(slot);
+        int base = offset(slot);
+        int first = base + COPIES;
+        int second = first + align(SessionSnapshot.SIZE);
+        SessionSnapshot current = copy(chunk, first);
+        SessionSnapshot other = copy(chunk, second);
+
+        // Overwrite whichever copy is damaged or older, so the newer one survives a torn write
+        int target;
+        if (current == null) {
+            target = first;
+        } else if (other == null) {
+            target = second;
+        } else {
+            target = current.getSequence() <= other.getSequence() ? first : second;
+            if (unforced.containsKey(slot)) {
+                // The newer copy is not forced yet: keep the older, forced one until flush()
+                target = target == first ? second : first;
+            }
+        }
+        chunk.put(target, snapshot.toBytes());
+        if (deferForces) {
+            unforced.put(slot, sessionId);
+        } else {
+            chunk.force(target, SessionSnapshot.SIZE);
+        }
+    }
+
+    private static SessionSnapshot copy(MappedByteBuffer chunk, int offset) {
+        byte[] bytes = new byte[SessionSnapshot.SIZE];
+        chunk.get(offset, bytes);
+        return SessionSnapshot.wrap(bytes);
+    }
+
+    /**
+     * Writes every used record into a new table of the given capacity and swaps it in.
+     * Called under the write lock.
+     */
+    private void rebuild(int newCapacity) throws IOException {
+        int oldCapacity = capacity;
+        MappedByteBuffer[] oldChunks = chunks;
+        FileChannel oldChannel = channel;
+
+        Path temp = create(file, newCapacity);
+        header.force();
+        unforced.clear();   // the new file is forced whole before it replaces this one
+        open(temp);
+        byte[] record = new byte[RECORD_SIZE];
+        for (long slot = 0; slot < oldCapacity; slot++) {
+            MappedByteBuffer chunk = oldChunks[(int) (slot >>> CHUNK_SHIFT)];
+            int base = (int) (slot & (RECORDS_PER_CHUNK - 1)) * RECORD_SIZE;
+            if (chunk.get(base + STATUS) != USED) {
+                continue;
+            }
+            chunk.get(base, record);
+            byte[] id = new byte[record[ID_LENGTH]];
+            System.arraycopy(record, ID, id, 0, id.length);
+            long newSlot = insert(id);
+            chunk(newSlot).put(offset(newSlot), record);
+        }
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        header.force();
+        headerUnforced = false;
+        oldChannel.close();
+        channel.close();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        open(file);
+    }
+
+    /**
+     * Writes an empty table with the given capacity to a temporary file next to the store.
+     *
+     * @return The temporary file
+     */
+    private static Path create(Path file, int capacity) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(H_MAGIC, MAGIC);
+            header.putInt(H_VERSION, VERSION);
+            header.putInt(H_SNAPSHOT_SIZE, SessionSnapshot.SIZE);
+            header.putInt(H_CAPACITY, capacity);
+            // Sparse: slots read as zero, which is FREE
+            channel.truncate(HEADER_SIZE);
+            channel.write(ByteBuffer.allocate(1), HEADER_SIZE + (long) capacity * RECORD_SIZE - 1);
+            header.force();
+        }
+        return temp;
+    }
+
+    private void open(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        if (header.getInt(H_MAGIC) != MAGIC) {
+            channel.close();
+            throw new IOException(path + " is not a snapshot store");
+        }
+        if (header.getInt(H_VERSION) != VERSION) {
+            channel.close();
+            throw new IOException(path + " holds snapshots in format " + header.getInt(H_VERSION)
+                    + ", not " + VERSION);
+        }
+        if (header.getInt(H_SNAPSHOT_SIZE) != SessionSnapshot.SIZE) {
+            channel.close();
+            throw new IOException(path + " holds snapshots of a different world");
+        }
+        capacity = header.getInt(H_CAPACITY);
+        chunks = new MappedByteBuffer[(int) ((capacity + RECORDS_PER_CHUNK - 1L) >>> CHUNK_SHIFT)];
+        for (int i = 0; i < chunks.length; i++) {
+            long first = (long) i << CHUNK_SHIFT;
+            long records = Math.min(RECORDS_PER_CHUNK, capacity - first);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                    HEADER_SIZE + first * RECORD_SIZE, records * RECORD_SIZE);
+        }
+    }
+
+    private MappedByteBuffer chunk(long slot) {
+        return chunks[(int) (slot >>> CHUNK_SHIFT)];
+    }
+
+    private static int offset(long slot) {
+        return (int) (slot & (RECORDS_PER_CHUNK - 1)) * RECORD_SIZE;
+    }
+
+    private static boolean sameId(MappedByteBuffer chunk, int base, byte[] id) {
+        if (chunk.get(base + ID_LENGTH) != id.length) {
+            return false;
+        }
+        for (int i = 0; i < id.length; i++) {
+            if (chunk.get(base + ID + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash(byte[] id) {
+        int h = 0;
+        for (byte b : id) {
+            h = 31 * h + b;
+        }
+        return (h ^ (h >>> 16)) & 0x7FFFFFFFL;
+    }
+
+    private static byte[] encode(String sessionId) {
+        byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+        if (id.length == 0 || id.length > MAX_ID_LENGTH) {
+            throw new IllegalArgumentException("Session ids are 1 to " + MAX_ID_LENGTH + " bytes: " + sessionId);
+        }
+        return id;
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+}
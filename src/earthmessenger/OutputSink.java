@@ -0,0 +1,243 @@
+package earthmessenger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Where one game's output goes.
+ *
+ * Everything the game says to a player - the text a command returns as well as what items,
+ * aliens and the narrative print along the way - is encoded straight into one reusable
+ * UTF-8 ByteBuffer. Nothing reaches the player until flush(), which hands the whole buffer
+ * to the target in a single write. A server therefore sends each response with one
+ * system call, instead of one per println.
+ *
+ * A GameSession holds the sink's lock while it runs a command, so narrative played from
+ * another thread (see PlaybackScheduler) never lands in the middle of a response.
+ *
+ * Example usage:
+ *   OutputSink out = new OutputSink(socket.getOutputStream());
+ *   out.println("Hello");
+ *   out.print("> ");
+ *   out.flush();          // one write: "Hello\n> "
+ */
+public class OutputSink {
+
+    private static final int INITIAL_CAPACITY = 4096;
+    private static final int MAX_CAPACITY = 1 << 20;   // flush early past 1 MB
+
+    private final OutputStream stream;
+    private final WritableByteChannel channel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private ByteBuffer buffer;
+
+    /**
+     * Creates a sink that writes to a stream (console, socket, ...).
+     *
+     * @param stream The stream each flush is written to
+     */
+    public OutputSink(OutputStream stream) {
+        this.stream = stream;
+        this.channel = null;
+        this.buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a sink that writes to a channel. The buffer is direct, so the channel can
+     * hand it to the operating system without another copy.
+     *
+     * @param channel The channel each flush is written to
+     */
+    public OutputSink(WritableByteChannel channel) {
+        this.stream = null;
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+    }
+
+    /**
+     * @return A sink that prints to the console
+     */
+    public static OutputSink console() {
+        return new OutputSink(System.out);
+    }
+
+    /**
+     * @return A sink that throws everything away, for headless runs
+     */
+    public static OutputSink discard() {
+        return new OutputSink(OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Adds text to the pending output.
+     *
+     * @param text The text to add
+     */
+    public void print(String text) {
+        lock.lock();
+        try {
+            encode(text);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds text and a line break to the pending output.
+     *
+     * @param text The text to add
+     */
+    public void println(String text) {
+        lock.lock();
+        try {
+            encode(text);
+            put((byte) '\n');
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds bytes that are already UTF-8 encoded, such as a RenderCache frame.
+     *
+     * @param bytes The encoded text
+     */
+    public void write(byte[] bytes) {
+        lock.lock();
+        try {
+            ensure(bytes.length);
+            buffer.put(bytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a line break to the pending output.
+     */
+    public void println() {
+        println("");
+    }
+
+    /**
+     * Sends all pending output to the target in one write.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            if (buffer.position() == 0) {
+                return;
+            }
+            buffer.flip();
+            send(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.clear();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands the pending output to the target. Called by flush() with the sink's lock held.
+     * A sink for a non-blocking channel overrides this to queue what the channel does not
+     * take at once (see TelnetServer).
+     *
+     * @param pending The pending output, flipped for reading
+     * @throws IOException If the target cannot be written
+     */
+    void send(ByteBuffer pending) throws IOException {
+        if (channel != null) {
+            while (pending.hasRemaining()) {
+                channel.write(pending);
+            }
+        } else {
+            stream.write(pending.array(), 0, pending.limit());
+            stream.flush();
+        }
+    }
+
+    /**
+     * Keeps other threads from writing until unlock(), so a whole response stays together.
+     */
+    public void lock() {
+        lock.lock();
+    }
+
+    public void unlock() {
+        lock.unlock();
+    }
+
+    /**
+     * @return Number of bytes waiting to be flushed
+     */
+    public int pending() {
+        return buffer.position();
+    }
+
+    /**
+     * Encodes a string as UTF-8 directly into the buffer, without intermediate arrays.
+     */
+    private void encode(String text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                put((byte) c);
+            } else if (c < 0x800) {
+                ensure(2);
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                ensure(4);
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                put((byte) '?');   // unpaired surrogate, same as the JDK encoder
+            } else {
+                ensure(3);
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private void put(byte b) {
+        ensure(1);
+        buffer.put(b);
+    }
+
+    /**
+     * Makes room for more bytes: grows the buffer, or flushes early once it is very large.
+     */
+    private void ensure(int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        if (buffer.capacity() >= MAX_CAPACITY) {
+            flush();
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+        }
+        int capacity = buffer.capacity() * 2;
+        while (capacity - buffer.position() < bytes) {
+            capacity *= 2;
+        }
+        ByteBuffer larger = buffer.isDirect()
+                ? ByteBuffer.allocateDirect(capacity)
+                : ByteBuffer.allocate(capacity);
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+}
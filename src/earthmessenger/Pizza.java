@@ -1,3 +1,5 @@
+package earthmessenger;
+
 /**
  * Represents a pizza item in the game.
  * The pizza starts frozen and must be microwaved before it can be eaten.
@@ -5,9 +7,10 @@
  */
 public class Pizza extends Item {
 
-    private boolean eaten = false;
+    private static final int EATEN = 2;
+    private static final int FROZEN = 4;
+
     private int hungerScore = 5;
-    private boolean isFrozen;
 
     /**
      * Constructs a new Pizza item with a description and graphic.
@@ -16,7 +19,7 @@ public class Pizza extends Item {
     public Pizza() {
         String description = "A frozen meal, ready to eat";
         super("pizza", description, "\uD83C\uDF55");
-        this.isFrozen = true;
+        setState(FROZEN, true);
     }
 
     /**
@@ -25,10 +28,10 @@ public class Pizza extends Item {
      */
     @Override
     public void use(Player player) {
-        if (eaten) {
-            System.out.println("The pizza is already gone.");
+        if (hasState(EATEN)) {
+            player.getGame().getOut().println("The pizza is already gone.");
         } else {
-            eaten = true;
+            setState(EATEN, true);
             player.setHungerLevel(hungerScore);
         }
     }
@@ -39,7 +42,7 @@ public class Pizza extends Item {
      * @return true if the pizza is frozen, false otherwise
      */
     public boolean isFrozen() {
-        return isFrozen;
+        return hasState(FROZEN);
     }
 
     /**
@@ -48,6 +51,6 @@ public class Pizza extends Item {
      * @param frozen true if the pizza should be frozen, false if microwaved
      */
     public void setFrozen(boolean frozen) {
-        isFrozen = frozen;
+        setState(FROZEN, frozen);
     }
 }
\ No newline at end of file
@@ -0,0 +1,101 @@
+package earthmessenger;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays TimedSequences without holding the caller's thread while it waits.
+ *
+ * The shared scheduler keeps a single timer thread for the whole JVM. When a step is due,
+ * the timer hands the printing to a virtual thread, which prints the step and then asks the
+ * timer to wake it for the next one. So the session that started the playback returns
+ * immediately and keeps answering the player's commands while the story plays out, and a
+ * slow client can never stall the timer for everyone else.
+ *
+ * Each step is printed to the game's output as it is when the step is due, not when the
+ * sequence started, so a player who reconnects mid-briefing hears the rest of it.
+ *
+ * The immediate scheduler prints the whole sequence at once with no pauses. It is meant for
+ * headless runs such as load tests and replays, where waiting would only waste time.
+ */
+public class PlaybackScheduler {
+
+    private static final PlaybackScheduler SHARED = new PlaybackScheduler(false);
+    private static final PlaybackScheduler IMMEDIATE = new PlaybackScheduler(true);
+
+    private final boolean immediate;
+    private ScheduledExecutorService timer;
+    private Executor printers;
+
+    private PlaybackScheduler(boolean immediate) {
+        this.immediate = immediate;
+        if (!immediate) {
+            this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "playback-timer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.printers = Executors.newVirtualThreadPerTaskExecutor();
+        }
+    }
+
+    /**
+     * @return The scheduler that plays sequences in real time
+     */
+    public static PlaybackScheduler shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return The scheduler that prints sequences at once, without pauses
+     */
+    public static PlaybackScheduler immediate() {
+        return IMMEDIATE;
+    }
+
+    /**
+     * Starts playing a sequence and returns straight away.
+     *
+     * @param sequence The steps to print
+     * @param game The game whose output they go to
+     */
+    public void play(TimedSequence sequence, EarthMessenger game) {
+        if (sequence.size() == 0) {
+            return;
+        }
+        if (immediate) {
+            OutputSink out = game.getOut();
+            for (int step = 0; step < sequence.size(); step++) {
+                out.print(sequence.getText(step));
+            }
+            out.flush();
+            return;
+        }
+        printers.execute(() -> printStep(sequence, 0, game));
+    }
+
+    /**
+     * Prints one step to the game's current output and schedules the next one after the
+     * step's pause.
+     */
+    private void printStep(TimedSequence sequence, int step, EarthMessenger game) {
+        OutputSink out = game.getOut();
+        // Printing and flushing under the sink's lock keeps the step out of any
+        // response the session is building at the same moment
+        out.lock();
+        try {
+            out.print(sequence.getText(step));
+            out.flush();
+        } finally {
+            out.unlock();
+        }
+
+        int next = step + 1;
+        if (next < sequence.size()) {
+            timer.schedule(() -> printers.execute(() -> printStep(sequence, next, game)),
+                    sequence.getPauseAfter(step), TimeUnit.MILLISECONDS);
+        }
+    }
+}
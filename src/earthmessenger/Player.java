@@ -1,5 +1,4 @@
-import java.util.ArrayList;
-import java.util.List;
+package earthmessenger;
 
 
 /**
@@ -10,13 +9,13 @@ import java.util.List;
 public class Player {
 
     private String name;
-    private List<Item> inventory;
+    private final Inventory inventory;
     private boolean hasListenedToMessage;   // True after using the iPhone
     private int hungerLevel;
     private int maxHungerLevel;
     private int thirstLevel;
     private int maxThirstLevel;
-    private static Location currentLocation;
+    private Location currentLocation;
     private Question currentQuestion;
     private EarthMessenger game;
 
@@ -27,7 +26,7 @@ public class Player {
      * @param name The player's name
      */
     public Player(String name,  EarthMessenger game) {
-        inventory = new ArrayList<>();
+        inventory = new Inventory();
         this.name = name;
         hasListenedToMessage = false;
         hungerLevel = 0;
@@ -45,14 +44,12 @@ public class Player {
      * @param itemToUse The noun representing the item to use
      */
     public void useItem(CommandParser.Noun itemToUse) {
-        Item itemInInventory = inventory.stream()
-                .filter(item -> item.getName().equalsIgnoreCase(itemToUse.toString()))
-                .findFirst().orElse(null);
-        if(inventory.contains(itemInInventory)) {
+        Item itemInInventory = getItem(itemToUse);
+        if(itemInInventory != null) {
             itemInInventory.use(this);
         }
         else{
-            System.out.println("This item is not in your inventory.");
+            game.getOut().println("This item is not in your inventory.");
         }
     }
 
@@ -63,8 +60,11 @@ public class Player {
      */
     public void addItem(Item item) {
         inventory.add(item);
-        System.out.println("Added: " + item.getName());
+        game.getOut().println("Added: " + item.getName());
 }
+    public String getName() {
+        return name;
+    }
     public Question getCurrentQuestion() {
         return currentQuestion;
     }
@@ -79,17 +79,41 @@ public class Player {
      * Removes an item from the player's inventory.
      *
      * @param itemToRemove The noun representing the item to remove
+     * @return The removed item, or null if it was not in the inventory
+     */
+    public Item removeItem(CommandParser.Noun itemToRemove) {
+        ItemType type = itemToRemove.getItemType();
+        return type != null ? inventory.remove(type) : null;
+    }
+
+    /**
+     * Gets an item from the player's inventory.
+     *
+     * @param noun The noun naming the item
+     * @return The item if the player carries it, otherwise null
+     */
+    public Item getItem(CommandParser.Noun noun) {
+        ItemType type = noun.getItemType();
+        return type != null ? inventory.get(type) : null;
+    }
+
+    /**
+     * Checks whether the player carries an item.
+     *
+     * @param noun The noun naming the item
+     * @return true if the item is in the inventory
      */
-    public void removeItem(CommandParser.Noun itemToRemove) {
-        inventory.remove(itemToRemove);
+    public boolean hasItem(CommandParser.Noun noun) {
+        ItemType type = noun.getItemType();
+        return type != null && inventory.contains(type);
     }
 
     /**
-     * Gets the list of items in the player's inventory.
+     * Gets the items in the player's inventory, in the order they were picked up.
      *
-     * @return The inventory list
+     * @return The inventory
      */
-    public List<Item> getInventory() {
+    public Inventory getInventory() {
         return inventory;
     }
 
@@ -147,19 +171,6 @@ public class Player {
         thirstLevel += value;
     }
 
-    /**
-     * Retrieves an item from the player's inventory by name.
-     *
-     * @param itemName The name of the item
-     * @return The item if found, otherwise null
-     */
-    public Item getItemFromInventory(String itemName) {
-        return inventory.stream()
-                .filter(item -> item.getName().equalsIgnoreCase(itemName))
-                .findFirst()
-                .orElse(null);
-    }
-
     /**
      * Sets the player's current location.
      *
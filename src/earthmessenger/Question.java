@@ -0,0 +1,221 @@
+package earthmessenger;
+
+/**
+ * Represents a question that an alien scholar asks the player.
+ *
+ * QUESTION TYPES:
+ * 1. Multiple Choice - Has options (A, B, C, D) for player to choose from
+ * 2. Open Answer (Word Question) - Player types their own answer
+ *
+ * DESIGN PHILOSOPHY:
+ * - All questions use the same class (no subclasses needed)
+ * - Questions differ only in their data (text, options, answers)
+ * - Behavior is identical: display question, check answer
+ *
+ * EXAMPLES:
+ *
+ * Multiple Choice Question:
+ *   new Question(
+ *     "What color is the sky?",
+ *     Arrays.asList("Red", "Blue", "Green"),
+ *     Arrays.asList("b", "blue")
+ *   )
+ *
+ * Open Answer Question:
+ *   new Question(
+ *     "What do humans need to breathe?",
+ *     null,  // No options = open answer
+ *     Arrays.asList("oxygen", "air", "o2")
+ *   )
+ */
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class Question {
+    private String text;
+    private List<String> options; //if it is null or empty: open answer question
+    private List<String> acceptableAnswers;
+    private AnswerIndex answerIndex; // acceptableAnswers, normalized once for fast checking
+    private int typoTolerance;       // 0 = exact answers only
+    private float similarityThreshold;        // 0 = no grading by meaning
+    private volatile SemanticGrader grader;   // built on the first answer that needs it
+    private byte[] questionTextBytes; // getQuestionText(), rendered and UTF-8 encoded once
+
+    /**
+     * Create a new Question
+     * For multiple choice: provide options
+     * For open answer: pass null or empty list for options
+     */
+    public Question(String text, List<String> options, List<String> acceptableAnswers) {
+        this.text = text;
+        this.options = options;
+        this.acceptableAnswers = acceptableAnswers;
+        this.answerIndex = new AnswerIndex(acceptableAnswers);
+        this.typoTolerance = 0;
+        this.questionTextBytes = getQuestionText().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the full question text formatted for display.
+     * For multiple choice questions, adds lettered options (A, B, C, D).
+     * For open answer questions, just shows the question.
+     *
+     * @return Formatted question string ready to display to player
+     */
+    public String getQuestionText() {
+        String result = text + "\n";
+
+        // Check if this is a multiple choice question
+        if (options != null && !options.isEmpty()) {
+            // Add A) B) C) D) labels
+            char letter = 'A';
+            for (String option : options) {
+                result = result + "  " + letter + ") " + option + "\n";
+                letter++;
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Gets the formatted question, rendered once when the question was created.
+     *
+     * @return getQuestionText() as UTF-8 bytes
+     */
+    public byte[] getQuestionTextBytes() {
+        return questionTextBytes;
+    }
+
+    /**
+     * Checks if the player's answer is correct.
+     *
+     * MATCHING RULES:
+     * - Case-insensitive ("Oxygen" = "oxygen" = "OXYGEN")
+     * - Spaces trimmed ("  air  " = "air")
+     * - Must match at least one acceptable answer exactly, unless typo tolerance is on:
+     *   then small misspellings of long answers are forgiven ("comfrot" = "comfort")
+     * - An open answer that does not match can still pass by meaning, if the question has
+     *   a similarity threshold and word vectors are configured ("solace" ~ "comfort")
+     *
+     * For multiple choice: Accepts both letter ("a") and full text ("yes")
+     * For open answer: Accepts any word/phrase in acceptableAnswers list
+     *
+     * @param playerAnswer The answer provided by the player
+     * @return True if answer matches any acceptable answer, false otherwise
+     */
+    public boolean checkAnswer(String playerAnswer) {
+        // Check for empty answer
+        if (playerAnswer == null) {
+            return false;
+        }
+
+        // Clean up the answer (remove spaces, make lowercase)
+        String cleanAnswer = AnswerIndex.normalize(playerAnswer);
+
+        // One lookup in the precomputed answers, however many there are
+        if (answerIndex.matches(cleanAnswer, typoTolerance)) {
+            return true;
+        }
+        SemanticGrader semantic = getGrader();
+        return semantic != null && semantic.score(cleanAnswer) >= similarityThreshold;
+    }
+
+    /**
+     * Gets the grader for answers by meaning, preparing it the first time.
+     *
+     * @return The grader, or null if this question is graded by spelling only
+     */
+    private SemanticGrader getGrader() {
+        if (similarityThreshold <= 0 || isMultipleChoice()) {
+            return null;
+        }
+        SemanticGrader semantic = grader;
+        if (semantic == null) {
+            WordVectors vectors = WordVectors.shared();
+            if (vectors == null) {
+                return null;
+            }
+            // Two threads may both build it; they build the same thing
+            semantic = new SemanticGrader(vectors, acceptableAnswers);
+            grader = semantic;
+        }
+        return semantic;
+    }
+
+    /**
+     * Turns grading by meaning on or off for an open-answer question. An answer passes
+     * if its cosine similarity with some acceptable answer reaches the threshold; 0.6 to
+     * 0.75 suits typical word vectors. Has no effect unless word vectors are configured
+     * with the earthmessenger.vectors system property.
+     *
+     * @param threshold Similarity from 0 to 1 needed to pass; 0 for spelling only
+     */
+    public void setSimilarityThreshold(float threshold) {
+        this.similarityThreshold = threshold;
+    }
+
+    /**
+     * @return Similarity needed to pass by meaning; 0 if answers are graded by spelling only
+     */
+    public float getSimilarityThreshold() {
+        return similarityThreshold;
+    }
+
+    /**
+     * Turns typo-tolerant answer checking on or off.
+     * Only answers of AnswerIndex.MIN_TYPO_LETTERS letters or more, not counting spaces,
+     * forgive typos, one per five letters, so "b", "not" or "hope" still have to match exactly.
+     * A typo is a letter added, dropped, replaced or swapped with its neighbour, or a
+     * dropped space ("comfrot", "the letterm").
+     *
+     * @param maxTypos Largest number of letter edits to forgive; 0 for exact answers only
+     */
+    public void setTypoTolerance(int maxTypos) {
+        this.typoTolerance = maxTypos;
+    }
+
+    /**
+     * @return Largest number of letter edits forgiven in an answer
+     */
+    public int getTypoTolerance() {
+        return typoTolerance;
+    }
+
+    /**
+     * Gets the answers that count as correct.
+     *
+     * @return The acceptable answers as written
+     */
+    public List<String> getAcceptableAnswers() {
+        return acceptableAnswers;
+    }
+
+    /**
+     * Checks if this is a multiple choice question.
+     *
+     * @return True if question has options, false if open answer
+     */
+    public boolean isMultipleChoice() {
+        return options != null && !options.isEmpty();
+    }
+
+    /**
+     * Gets just the question text without options.
+     *
+     * @return The raw question text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Gets the list of multiple choice options.
+     *
+     * @return List of option strings, or null if open answer question
+     */
+    public List<String> getOptions() {
+        return options;
+    }
+}
\ No newline at end of file
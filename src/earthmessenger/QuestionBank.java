@@ -0,0 +1,218 @@
+package earthmessenger;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * All the questions available for one kind of test ("logic", "empathy" or "trust").
+ *
+ * A bank can hold thousands of questions. It is loaded once per JVM from the world file
+ * and shared by every game. An alien that draws from a bank does not get its own list: each
+ * game picks a few indices into the bank with draw(), seeded per game, and looks the
+ * questions up as they are asked.
+ *
+ * Drawn questions keep their bank order, so a bank written from easy to hard gives every
+ * test that shape.
+ *
+ * STORAGE:
+ * Texts, options and answers of all its questions sit in a few flat arrays. get() builds
+ * a Question (with its answer index and rendered text) from them the first time any game
+ * asks it, and every later game shares that one. A bank of thousands of questions
+ * therefore costs a few arrays of shared strings plus the questions that were ever asked,
+ * not a hash set and a tree per question.
+ *
+ * Example usage:
+ *   QuestionBank logic = WorldTemplate.shared().getBank("logic");
+ *   int[] picks = new int[4];
+ *   logic.draw(seed, picks);
+ *   Question first = logic.get(picks[0]);   // built once, then shared by every game
+ */
+public final class QuestionBank {
+
+    private final String role;
+    private int size;
+    private String[] texts = new String[16];
+    private int[] optionStarts = new int[17];   // question i's options are options[optionStarts[i]..optionStarts[i + 1])
+    private String[] options = new String[16];
+    private int[] answerStarts = new int[17];   // likewise for answers
+    private String[] answers = new String[16];
+    private int[] typos = new int[16];
+    private float[] similarities = new float[16];
+    private AtomicReferenceArray<Question> built;   // get()'s questions, by index; sized by trim()
+    private final List<Question> view = new AbstractList<Question>() {
+        @Override
+        public Question get(int index) {
+            return QuestionBank.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    };
+
+    /**
+     * Creates an empty bank for the WorldLoader to fill.
+     *
+     * @param role The kind of test the questions are for
+     */
+    QuestionBank(String role) {
+        this.role = role;
+    }
+
+    /**
+     * Adds a question to the bank. Used by the WorldLoader.
+     *
+     * @param text The question text
+     * @param questionOptions The options of a multiple choice question; empty for an open answer
+     * @param acceptableAnswers The answers that count as correct
+     * @param maxTypos Letter edits forgiven in an answer (see Question.setTypoTolerance)
+     * @param similarity Similarity needed to pass by meaning (see Question.setSimilarityThreshold)
+     */
+    void add(String text, List<String> questionOptions, List<String> acceptableAnswers, int maxTypos, float similarity) {
+        if (size == texts.length) {
+            int capacity = size * 2;
+            texts = Arrays.copyOf(texts, capacity);
+            optionStarts = Arrays.copyOf(optionStarts, capacity + 1);
+            answerStarts = Arrays.copyOf(answerStarts, capacity + 1);
+            typos = Arrays.copyOf(typos, capacity);
+            similarities = Arrays.copyOf(similarities, capacity);
+        }
+        texts[size] = text;
+        options = append(options, optionStarts[size], questionOptions);
+        optionStarts[size + 1] = optionStarts[size] + questionOptions.size();
+        answers = append(answers, answerStarts[size], acceptableAnswers);
+        answerStarts[size + 1] = answerStarts[size] + acceptableAnswers.size();
+        typos[size] = maxTypos;
+        similarities[size] = similarity;
+        size++;
+    }
+
+    private static String[] append(String[] flat, int length, List<String> values) {
+        if (length + values.size() > flat.length) {
+            flat = Arrays.copyOf(flat, Math.max(flat.length * 2, length + values.size()));
+        }
+        for (int i = 0; i < values.size(); i++) {
+            flat[length + i] = values.get(i);
+        }
+        return flat;
+    }
+
+    /**
+     * Drops the spare room left by add() once the bank is complete. Used by the WorldLoader.
+     */
+    void trim() {
+        texts = Arrays.copyOf(texts, size);
+        optionStarts = Arrays.copyOf(optionStarts, size + 1);
+        options = Arrays.copyOf(options, optionStarts[size]);
+        answerStarts = Arrays.copyOf(answerStarts, size + 1);
+        answers = Arrays.copyOf(answers, answerStarts[size]);
+        typos = Arrays.copyOf(typos, size);
+        similarities = Arrays.copyOf(similarities, size);
+        built = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Picks picks.length different questions at random, the same ones for the same seed.
+     * Uses Floyd's algorithm, so it takes exactly picks.length random numbers whatever the
+     * size of the bank, and fills the caller's array instead of allocating.
+     *
+     * @param seed The seed, e.g. the game's seed mixed with the alien's name
+     * @param picks Filled with distinct indices into this bank, in ascending order
+     */
+    public void draw(long seed, int[] picks) {
+        int count = picks.length;
+        if (count > size) {
+            throw new IllegalArgumentException("Cannot draw " + count + " of " + size + " " + role + " questions");
+        }
+        long state = seed;
+        int drawn = 0;
+        for (int j = size - count; j < size; j++) {
+            state += 0x9E3779B97F4A7C15L;
+            int pick = (int) (((mix(state) >>> 32) * (j + 1)) >>> 32); // uniform in [0, j]
+            picks[drawn++] = contains(picks, drawn - 1, pick) ? j : pick;
+        }
+
+        // Insertion sort: a test is only a handful of questions
+        for (int i = 1; i < count; i++) {
+            int value = picks[i];
+            int k = i - 1;
+            while (k >= 0 && picks[k] > value) {
+                picks[k + 1] = picks[k];
+                k--;
+            }
+            picks[k + 1] = value;
+        }
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * SplitMix64's finalizer: turns consecutive states into well-spread random bits.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Gets a question of the bank, building it the first time it is asked for.
+     * Every later call, from any game, returns the same Question.
+     *
+     * @param index Position of the question in the bank
+     * @return The question
+     */
+    public Question get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        Question question = built.get(index);
+        if (question == null) {
+            // Racing threads build equal questions; the first one stored is kept
+            built.compareAndSet(index, null, build(index));
+            question = built.get(index);
+        }
+        return question;
+    }
+
+    private Question build(int index) {
+        List<String> questionOptions = optionStarts[index] == optionStarts[index + 1] ? null
+                : Arrays.asList(options).subList(optionStarts[index], optionStarts[index + 1]);
+        Question question = new Question(texts[index], questionOptions,
+                Arrays.asList(answers).subList(answerStarts[index], answerStarts[index + 1]));
+        question.setTypoTolerance(typos[index]);
+        question.setSimilarityThreshold(similarities[index]);
+        return question;
+    }
+
+    /**
+     * @return Number of questions in the bank
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The kind of test the questions are for
+     */
+    public String getRole() {
+        return role;
+    }
+
+    /**
+     * @return A read-only view of every question in the bank, in bank order, backed by get()
+     */
+    public List<Question> asList() {
+        return view;
+    }
+}
@@ -0,0 +1,148 @@
+package earthmessenger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pre-rendered pieces of the game's screens, already encoded as UTF-8.
+ *
+ * The box-drawing frames and emoji are several bytes per character, and the same frames,
+ * help screens and question cards are sent over and over. They are rendered and encoded
+ * once here and written to an OutputSink as plain byte arrays; only the parts that really
+ * change (which items a player carries, the trust level, ...) are built per response.
+ *
+ * Cached pieces:
+ * - the inventory frame, and one entry line per item
+ * - the complete help screen for each location (static commands + its special actions)
+ * - the "Question N of M" header of question cards (the question bodies are cached by
+ *   each Question itself)
+ */
+public final class RenderCache {
+
+    private static final String RULE = "═══════════════════════════════════════════════════════";
+    private static final String THIN_RULE = "───────────────────────────────────────────────────────";
+    private static final int MAX_CACHED_QUESTIONS = 32;
+
+    public static final byte[] INVENTORY_EMPTY = encode(
+            RULE + "\n" +
+            "                    INVENTORY                          \n" +
+            RULE + "\n" +
+            "   Your inventory is empty.                            \n" +
+            RULE);
+
+    public static final byte[] INVENTORY_HEADER = encode(
+            RULE + "\n" +
+            "                    INVENTORY                          \n" +
+            RULE + "\n");
+
+    public static final byte[] INVENTORY_FOOTER = encode(RULE);
+
+    private static final String HELP_COMMANDS =
+            "\n" + RULE + "\n" +
+            "                 AVAILABLE COMMANDS                    \n" +
+            RULE + "\n\n" +
+            "MOVEMENT:\n" +
+            "  • go [direction] - Move in a direction (north/south/east/west)\n" +
+            "  • enter/exit - Enter or leave a location\n\n" +
+            "ITEMS:\n" +
+            "  • take [item] - Pick up an item\n" +
+            "  • use [item] - Use an item from your inventory\n" +
+            "  • inventory (i) - View what you're carrying\n\n" +
+            "INFORMATION:\n" +
+            "  • look - Examine your surroundings in detail\n" +
+            "  • help - Show this message\n\n";
+
+    private static final byte[][] HELP_BY_LOCATION = renderHelp(WorldTemplate.shared());
+
+    private static final AtomicReferenceArray<byte[][]> QUESTION_HEADERS =
+            new AtomicReferenceArray<>(MAX_CACHED_QUESTIONS + 1);
+
+    private static final ConcurrentHashMap<String, byte[]> ITEM_LINES = new ConcurrentHashMap<>();
+
+    private RenderCache() {
+    }
+
+    /**
+     * Gets the complete help screen for a location.
+     *
+     * @param location The location the player is in
+     * @return The encoded help screen
+     */
+    public static byte[] help(Location location) {
+        return HELP_BY_LOCATION[location.getId()];
+    }
+
+    /**
+     * Gets an item's inventory entry: graphic, name and description.
+     *
+     * @param item The item
+     * @return The encoded entry
+     */
+    public static byte[] inventoryLine(Item item) {
+        return ITEM_LINES.computeIfAbsent(item.getName(), name -> encode(
+                "  " + item.getGraphic() + " " + item.getName() + "\n" +
+                "     " + item.getDescription() + "\n" +
+                "\n"));
+    }
+
+    /**
+     * Gets the header of a question card.
+     *
+     * @param number The question's position, starting at 1
+     * @param total The number of questions in the test
+     * @return The encoded header
+     */
+    public static byte[] questionHeader(int number, int total) {
+        if (total > MAX_CACHED_QUESTIONS || number > total) {
+            return renderQuestionHeader(number, total);
+        }
+        byte[][] headers = QUESTION_HEADERS.get(total);
+        if (headers == null) {
+            headers = new byte[total + 1][];
+            for (int i = 1; i <= total; i++) {
+                headers[i] = renderQuestionHeader(i, total);
+            }
+            // published only once filled; racing threads build identical arrays
+            QUESTION_HEADERS.set(total, headers);
+        }
+        return headers[number];
+    }
+
+    /**
+     * Encodes text as UTF-8.
+     *
+     * @param text The text
+     * @return The bytes
+     */
+    public static byte[] encode(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] renderQuestionHeader(int number, int total) {
+        return encode(THIN_RULE + "\n" +
+                "Question " + number + " of " + total + "\n" +
+                THIN_RULE + "\n");
+    }
+
+    private static byte[][] renderHelp(WorldTemplate world) {
+        byte[][] screens = new byte[world.size()][];
+        for (LocationTemplate location : world.getLocations()) {
+            StringBuilder help = new StringBuilder(HELP_COMMANDS);
+
+            // Show location-specific commands
+            List<String> specialCommands = location.getSpecialCommandDescriptions();
+            if (!specialCommands.isEmpty()) {
+                help.append("SPECIAL ACTIONS (here):\n");
+                for (String cmd : specialCommands) {
+                    help.append("  • ").append(cmd).append("\n");
+                }
+                help.append("\n");
+            }
+            help.append(RULE).append("\n");
+            screens[location.getId()] = encode(help.toString());
+        }
+        return screens;
+    }
+}
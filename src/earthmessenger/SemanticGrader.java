@@ -0,0 +1,142 @@
+package earthmessenger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Grades an open answer by meaning rather than spelling: "solace" or "being there" can
+ * count as "comfort".
+ *
+ * An answer's meaning is the sum of its words' vectors in the WordVectors table. The
+ * acceptable answers' vectors are summed once, scaled to length 1 and kept. A player's
+ * answer scores the best cosine similarity between its vector and any acceptable answer's,
+ * from -1 (opposite) through 0 (unrelated) to 1 (same meaning).
+ *
+ * A score reads each word's row from the table once, adding it into one small array, and
+ * then takes one dot product per acceptable answer on that array, where the Vector API is
+ * fastest. The array (getDimensions() floats) is the only allocation. Words the table does
+ * not know are skipped; an answer with no known words scores 0.
+ *
+ * Example usage:
+ *   SemanticGrader grader = new SemanticGrader(WordVectors.shared(), List.of("comfort", "support"));
+ *   grader.score("solace");   // e.g. 0.71
+ */
+public final class SemanticGrader {
+
+    // Words after this many are ignored, which bounds the time a score takes
+    private static final int MAX_WORDS = 16;
+
+    private final WordVectors vectors;
+    private final float[][] answers;
+
+    /**
+     * Prepares the acceptable answers.
+     *
+     * @param vectors The word vector table
+     * @param acceptableAnswers The answers as written by the content author
+     */
+    public SemanticGrader(WordVectors vectors, Collection<String> acceptableAnswers) {
+        this.vectors = vectors;
+        List<float[]> known = new ArrayList<>();
+        for (String answer : acceptableAnswers) {
+            float[] vector = vectorOf(AnswerIndex.normalize(answer));
+            if (vector != null) {
+                known.add(vector);
+            }
+        }
+        this.answers = known.toArray(new float[0][]);
+    }
+
+    /**
+     * Sums the vectors of a text's words and scales the sum to length 1.
+     *
+     * @return The vector, or null if the table knows none of the words
+     */
+    private float[] vectorOf(String text) {
+        float[] sum = new float[vectors.getDimensions()];
+        if (!addWords(text, sum)) {
+            return null;
+        }
+        double length = 0;
+        for (float value : sum) {
+            length += value * value;
+        }
+        if (length == 0) {
+            return null;
+        }
+        float scale = (float) (1 / Math.sqrt(length));
+        for (int i = 0; i < sum.length; i++) {
+            sum[i] *= scale;
+        }
+        return sum;
+    }
+
+    /**
+     * Scores an answer against the acceptable answers.
+     *
+     * @param cleanAnswer The player's answer, already normalized by AnswerIndex.normalize
+     * @return The best cosine similarity with any acceptable answer; 0 if none can be compared
+     */
+    public float score(String cleanAnswer) {
+        if (answers.length == 0) {
+            return 0;
+        }
+        float[] sum = new float[vectors.getDimensions()];
+        if (!addWords(cleanAnswer, sum)) {
+            return 0;
+        }
+        float squaredLength = vectors.dot(sum, sum);
+        if (squaredLength <= 0) {
+            return 0;
+        }
+        float best = -1;
+        for (float[] answer : answers) {
+            best = Math.max(best, vectors.dot(sum, answer));
+        }
+        return (float) (best / Math.sqrt(squaredLength));
+    }
+
+    /**
+     * Adds the vectors of a text's known words to sum.
+     *
+     * @return true if the table knows at least one of the words
+     */
+    private boolean addWords(String text, float[] sum) {
+        boolean any = false;
+        int words = 0;
+        for (int start = nextWord(text, 0); start < text.length() && words < MAX_WORDS; start = nextWord(text, wordEnd(text, start))) {
+            int row = vectors.find(text, start, wordEnd(text, start));
+            words++;
+            if (row >= 0) {
+                vectors.addTo(row, sum);
+                any = true;
+            }
+        }
+        return any;
+    }
+
+    /**
+     * @return Number of acceptable answers the table knows at least one word of
+     */
+    public int size() {
+        return answers.length;
+    }
+
+    /**
+     * Words are runs of letters and digits; anything else separates them.
+     */
+    private static int nextWord(String text, int from) {
+        while (from < text.length() && !Character.isLetterOrDigit(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int wordEnd(String text, int start) {
+        while (start < text.length() && Character.isLetterOrDigit(text.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+}
@@ -0,0 +1,430 @@
+package earthmessenger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps every session's progress on disk, so games survive a restart of the process.
+ *
+ * Each session has an append-only journal of the commands it has run and a compact
+ * SessionSnapshot of its whole state, kept in a SessionStore: by default every session's
+ * in one MappedSnapshotStore ("snapshots.dat") behind a WriteBehindSessionStore, so
+ * taking a snapshot never waits for the disk. Every snapshotInterval commands a new
+ * snapshot replaces the old one and the journal moves on to a fresh file. Resuming loads
+ * the snapshot and replays only the commands journaled after it, so resuming never costs
+ * much more than snapshotInterval commands, however long the game has been going.
+ *
+ * DURABILITY:
+ * - A command is written to its journal as soon as it has run, so a crashed process loses nothing
+ * - One background thread forces every journal written to since its last pass to disk every
+ *   syncIntervalMillis, so a power cut loses at most that long; 0 forces on every command
+ * - A journal file is only emptied once a snapshot covering it is durable: the journal has
+ *   two files ("id.journal" and "id.journal.1") that take turns, and at each snapshot it
+ *   switches to the other file only if the store no longer has a save of the session
+ *   pending. Otherwise it keeps appending to the current one until a later snapshot
+ *
+ * JOURNAL FORMAT:
+ * One UTF-8 line per command: "sequence command". Sequence numbers keep counting across
+ * snapshots, so entries a snapshot already includes are skipped, and a torn last line
+ * left by a crash is dropped on resume.
+ *
+ * Example usage:
+ *   SessionJournal journal = new SessionJournal(Path.of("saves"));
+ *   GameSession session = journal.resume("ada", out);
+ *   if (session == null) {
+ *       session = new GameSession("Ada", out);
+ *       session.setJournal(journal.create("ada", session.getGame()));
+ *   }
+ */
+public class SessionJournal implements Closeable {
+
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 200;
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 32;
+
+    private static final Pattern SESSION_ID = Pattern.compile("[a-z0-9_-]{1,64}");
+    private static final String JOURNAL = ".journal";
+    private static final String OTHER_JOURNAL = ".journal.1";
+    private static final String SNAPSHOTS = "snapshots.dat";
+
+    private final Path directory;
+    private final long syncIntervalMillis;
+    private final int snapshotInterval;
+    private final SessionStore snapshots;
+    private final Set<Log> unsynced = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService syncer;
+
+    /**
+     * Creates a journal in the given directory with the default sync and snapshot intervals.
+     *
+     * @param directory Where journals and snapshots are kept; created if missing
+     * @throws IOException If the directory cannot be created
+     */
+    public SessionJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SYNC_INTERVAL_MILLIS, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Creates a journal in the given directory.
+     *
+     * @param directory Where journals and snapshots are kept; created if missing
+     * @param syncIntervalMillis How often journals are forced to disk, or 0 to force every command
+     * @param snapshotInterval How many commands a session runs between snapshots
+     * @throws IOException If the directory or the snapshot store cannot be opened
+     */
+    public SessionJournal(Path directory, long syncIntervalMillis, int snapshotInterval) throws IOException {
+        this(directory, syncIntervalMillis, snapshotInterval, new WriteBehindSessionStore(
+                new MappedSnapshotStore(Files.createDirectories(directory).resolve(SNAPSHOTS),
+                        MappedSnapshotStore.DEFAULT_CAPACITY, true)));
+    }
+
+    /**
+     * Creates a journal in the given directory that keeps its snapshots in the given store.
+     *
+     * @param directory Where journals are kept; created if missing
+     * @param syncIntervalMillis How often journals are forced to disk, or 0 to force every command
+     * @param snapshotInterval How many commands a session runs between snapshots
+     * @param snapshots Where snapshots are kept; owned by the journal from now on. Its save
+     *                  runs on the command path, so it should not wait for storage
+     * @throws IOException If the directory cannot be created
+     */
+    public SessionJournal(Path directory, long syncIntervalMillis, int snapshotInterval,
+                          SessionStore snapshots) throws IOException {
+        if (syncIntervalMillis < 0 || snapshotInterval < 1) {
+            throw new IllegalArgumentException("Sync interval must be >= 0 and snapshot interval >= 1");
+        }
+        this.directory = Files.createDirectories(directory);
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.snapshotInterval = snapshotInterval;
+        this.snapshots = snapshots;
+        if (syncIntervalMillis > 0) {
+            syncer = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncer.scheduleWithFixedDelay(this::syncAll, syncIntervalMillis, syncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
+    }
+
+    /**
+     * Turns a player's name into a session id that is safe to use as a file name.
+     *
+     * @param playerName The name the player typed
+     * @return Lowercase letters, digits, '_' and '-' only
+     */
+    public static String toSessionId(String playerName) {
+        String id = playerName.trim().toLowerCase().replaceAll("[^a-z0-9_-]+", "_");
+        if (id.length() > 64) {
+            id = id.substring(0, 64);
+        }
+        return id.isEmpty() ? "player" : id;
+    }
+
+    /**
+     * Checks whether a saved game exists for the session.
+     *
+     * @param sessionId The session id
+     * @return true if it can be resumed
+     * @throws IOException If the snapshot store cannot be read
+     */
+    public boolean exists(String sessionId) throws IOException {
+        return snapshots.contains(checkId(sessionId));
+    }
+
+    /**
+     * Starts a new journal for a session, replacing any saved game it had.
+     * The game's current state is saved right away as the first snapshot, and the session is
+     * flushed so that neither a missing snapshot nor the old game's can shadow the new journal.
+     *
+     * @param sessionId The session id
+     * @param game The session's freshly loaded game
+     * @return The session's journal
+     * @throws IOException If the files cannot be written
+     */
+    public Log create(String sessionId, EarthMessenger game) throws IOException {
+        // The old game's snapshots have higher sequence numbers than the new game's
+        snapshots.delete(sessionId);
+        FileChannel channel = FileChannel.open(journalFile(sessionId), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        FileChannel other;
+        try {
+            other = FileChannel.open(otherJournalFile(sessionId), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        Log log = new Log(sessionId, channel, other, 0, 0, 0);
+        log.snapshot(game);
+        snapshots.flush(sessionId);
+        return log;
+    }
+
+    /**
+     * Resumes a saved game: restores its latest snapshot and silently replays the commands
+     * journaled after it. Everything the game prints from then on goes to the given sink.
+     *
+     * @param sessionId The session id
+     * @param out Where the resumed game prints
+     * @return The resumed session, with its journal attached, or null if there is no saved game
+     * @throws IOException If the saved game cannot be read
+     */
+    public GameSession resume(String sessionId, OutputSink out) throws IOException {
+        SessionSnapshot snapshot = snapshots.load(checkId(sessionId));
+        if (snapshot == null) {
+            return null;
+        }
+
+        FileChannel first = FileChannel.open(journalFile(sessionId), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel second = null;
+        try {
+            second = FileChannel.open(otherJournalFile(sessionId), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long saved = snapshot.getSequence();
+            List<String> firstTail = new ArrayList<>();
+            List<String> secondTail = new ArrayList<>();
+            long firstLast = readTail(journalFile(sessionId), first, saved, firstTail);
+            long secondLast = readTail(otherJournalFile(sessionId), second, saved, secondTail);
+
+            // Every entry of the file written to last comes after every entry of the other
+            boolean secondNewer = secondLast > firstLast;
+            List<String> tail = secondNewer ? firstTail : secondTail;
+            tail.addAll(secondNewer ? secondTail : firstTail);
+            GameSession session = GameSession.restore(snapshot, tail, out);
+            Log log = secondNewer
+                    ? new Log(sessionId, second, first, Math.max(saved, secondLast), firstLast, saved)
+                    : new Log(sessionId, first, second, Math.max(saved, firstLast), secondLast, saved);
+            log.sinceSnapshot = tail.size();
+            session.setJournal(log);
+            return session;
+        } catch (IOException | RuntimeException e) {
+            first.close();
+            if (second != null) {
+                second.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes a session's saved game, flushing the session's delete first so it cannot come back.
+     *
+     * @param sessionId The session id
+     * @throws IOException If the files cannot be deleted
+     */
+    public void delete(String sessionId) throws IOException {
+        snapshots.delete(checkId(sessionId));
+        snapshots.flush(sessionId);
+        Files.deleteIfExists(journalFile(sessionId));
+        Files.deleteIfExists(otherJournalFile(sessionId));
+    }
+
+    /**
+     * Forces every journal written to since the last call to disk.
+     * Runs on the background thread every syncIntervalMillis.
+     */
+    public void syncAll() {
+        for (Log log : unsynced) {
+            unsynced.remove(log);
+            log.sync();
+        }
+    }
+
+    /**
+     * Stops the background thread after one last sync and closes the snapshot store,
+     * which writes out any snapshot still pending. Open logs must not be used afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        if (syncer != null) {
+            syncer.shutdown();
+        }
+        syncAll();
+        snapshots.close();
+    }
+
+    /**
+     * Reads the journal entries that come after a snapshot and cuts off a torn last line.
+     * A line without a sequence number is taken as the end of the journal: it and everything
+     * after it are cut off too, so the entries before it can still be resumed.
+     *
+     * @return The sequence number of the file's last entry, or 0 if it has none
+     */
+    private static long readTail(Path file, FileChannel channel, long snapshotSequence, List<String> tail)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        channel.read(buffer, 0);
+        byte[] bytes = buffer.array();
+
+        long sequence = 0;
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != '\n') {
+                continue;
+            }
+            String line = new String(bytes, start, i - start, StandardCharsets.UTF_8);
+            int space = line.indexOf(' ');
+            long entry;
+            try {
+                entry = Long.parseLong(space < 0 ? line : line.substring(0, space));
+            } catch (NumberFormatException e) {
+                System.err.println("Journal " + file.getFileName() + " is corrupt at byte " + start
+                        + ", dropping the rest");
+                break;
+            }
+            start = i + 1;
+            if (entry > snapshotSequence) {
+                tail.add(space < 0 ? "" : line.substring(space + 1));
+            }
+            sequence = entry;
+        }
+        if (start < bytes.length) {
+            channel.truncate(start); // torn write from a crash, or a corrupt entry
+        }
+        channel.position(start);
+        return sequence;
+    }
+
+    private Path journalFile(String sessionId) {
+        return directory.resolve(checkId(sessionId) + JOURNAL);
+    }
+
+    private Path otherJournalFile(String sessionId) {
+        return directory.resolve(checkId(sessionId) + OTHER_JOURNAL);
+    }
+
+    private static String checkId(String sessionId) {
+        if (!SESSION_ID.matcher(sessionId).matches()) {
+            throw new IllegalArgumentException("Invalid session id: " + sessionId);
+        }
+        return sessionId;
+    }
+
+    /**
+     * One session's journal. Used by that session's thread only, under its output lock.
+     */
+    public class Log implements Closeable {
+
+        private final String sessionId;
+        private FileChannel channel;   // the file being appended to
+        private FileChannel other;     // the file before it, holding entries up to otherLast
+        private long sequence;
+        private long otherLast;
+        private long savedSequence;    // of the last snapshot saved or resumed from
+        private int sinceSnapshot;
+
+        private Log(String sessionId, FileChannel channel, FileChannel other, long sequence,
+                    long otherLast, long savedSequence) {
+            this.sessionId = sessionId;
+            this.channel = channel;
+            this.other = other;
+            this.sequence = sequence;
+            this.otherLast = otherLast;
+            this.savedSequence = savedSequence;
+        }
+
+        /**
+         * Journals a command the session has just run, and takes a snapshot when one is due.
+         *
+         * @param command The command as the player typed it
+         * @param game The session's game, after running the command
+         */
+        public void append(String command, EarthMessenger game) {
+            try {
+                sequence++;
+                String line = sequence + " " + command.replace('\n', ' ') + "\n";
+                ByteBuffer bytes = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+                if (syncIntervalMillis == 0) {
+                    channel.force(false);
+                } else {
+                    unsynced.add(this);
+                }
+                if (++sinceSnapshot >= snapshotInterval) {
+                    snapshot(game);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Saves the game's whole state, and moves on to the other journal file if the last
+         * snapshot is durable, emptying it first.
+         *
+         * @param game The session's game
+         * @throws IOException If the snapshot cannot be saved or the file cannot be emptied
+         */
+        public void snapshot(EarthMessenger game) throws IOException {
+            // The other file only holds entries up to otherLast, which a durable snapshot
+            // covers once savedSequence has reached it and no later save is pending
+            if (otherLast <= savedSequence && !snapshots.isPending(sessionId)) {
+                other.truncate(0);
+                FileChannel current = channel;
+                channel = other;
+                other = current;
+                otherLast = sequence;
+            }
+            snapshots.save(sessionId, SessionSnapshot.capture(game, sequence));
+            savedSequence = sequence;
+            sinceSnapshot = 0;
+        }
+
+        void sync() {
+            try {
+                if (channel.isOpen()) {
+                    channel.force(false);
+                    other.force(false);   // may have been switched away from since the last pass
+                }
+            } catch (IOException e) {
+                System.err.println("Journal sync failed for " + sessionId + ": " + e);
+            }
+        }
+
+        /**
+         * @return The sequence number of the last command journaled
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        /**
+         * Forces what is left to disk and closes the journal file.
+         */
+        @Override
+        public void close() throws IOException {
+            unsynced.remove(this);
+            if (channel.isOpen()) {
+                channel.force(false);
+                other.force(false);
+                channel.close();
+                other.close();
+            }
+        }
+    }
+}
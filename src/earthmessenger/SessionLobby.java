@@ -0,0 +1,101 @@
+package earthmessenger;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Where a player who has just connected and given their name is matched with their game,
+ * whichever front end they came in through (GameServer, TelnetServer or HttpApiServer).
+ *
+ * The player gets their live game if they only disconnected, else their saved game if
+ * the server has a SessionJournal and there is one, else a new game.
+ */
+final class SessionLobby {
+
+    private final SessionJournal journal;
+    private final SessionRegistry registry;
+
+    /**
+     * @param journal Where games are saved and resumed from, or null to keep them in memory only
+     * @param registry Holds the live sessions and passivates idle ones
+     */
+    SessionLobby(SessionJournal journal, SessionRegistry registry) {
+        this.journal = journal;
+        this.registry = registry;
+    }
+
+    /**
+     * Gets the player's game: the live one if they only disconnected, else their saved game
+     * if there is one, else a new one.
+     *
+     * @param sessionId The player's session id
+     * @param playerName The name the player typed
+     * @param out The connection's sink
+     * @return The player's session, attached to this connection
+     * @throws IOException If the journal cannot be read or written, or the session is unavailable
+     */
+    GameSession attach(String sessionId, String playerName, OutputSink out) throws IOException {
+        boolean[] opened = new boolean[1];
+        GameSession session = registry.attach(sessionId, id -> {
+            opened[0] = true;
+            return open(id, playerName, out);
+        });
+        if (!opened[0]) {
+            session.setOut(out);
+            out.println();
+            out.println("Welcome back. Resuming your game where you left off.");
+        }
+        return session;
+    }
+
+    /**
+     * Gets the player's game for a single request, without greeting them again: the live
+     * one, else their saved game, else a new one.
+     *
+     * @param sessionId The player's session id
+     * @param playerName The player's name, for a new game
+     * @param sinks Makes the sink for a game that has to be opened; a live game keeps its own
+     * @return The player's session, attached to the caller until detach()
+     * @throws IOException If the journal cannot be read or written, or the session is unavailable
+     */
+    GameSession claim(String sessionId, String playerName, Supplier<OutputSink> sinks) throws IOException {
+        return registry.attach(sessionId, id -> open(id, playerName, sinks.get()));
+    }
+
+    /**
+     * Lets the registry passivate the session once it has been idle long enough.
+     *
+     * @param sessionId The player's session id
+     */
+    void detach(String sessionId) {
+        registry.detach(sessionId);
+    }
+
+    /**
+     * Resumes the player's saved game if there is one, or starts a new one, journaled if
+     * the server has a journal.
+     *
+     * @param sessionId The player's session id
+     * @param playerName The name the player typed
+     * @param out The connection's sink
+     * @return The player's session
+     * @throws IOException If the journal cannot be read or written
+     */
+    private GameSession open(String sessionId, String playerName, OutputSink out) throws IOException {
+        if (journal == null) {
+            return new GameSession(playerName, out);
+        }
+        GameSession session = journal.resume(sessionId, out);
+        if (session != null && !session.isOver()) {
+            out.println();
+            out.println("Welcome back. Resuming your game where you left off.");
+            return session;
+        }
+        if (session != null) {
+            session.close();
+        }
+        session = new GameSession(playerName, out);
+        session.setJournal(journal.create(sessionId, session.getGame()));
+        return session;
+    }
+}
@@ -0,0 +1,313 @@
+package earthmessenger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The table of live sessions on a server, keyed by session id.
+ *
+ * A session is attached while a connection plays it and detached when the connection
+ * goes away. A detached session stays in memory, so a player who reconnects gets it back
+ * at once. Once it has been idle for idleTimeoutMillis it is passivated: its journal, if
+ * it has one, takes a snapshot and is closed, and the session is dropped. A later
+ * reconnect resumes it from that snapshot (see SessionJournal.resume). A session without
+ * a journal is simply gone.
+ *
+ * CONCURRENCY:
+ * - There is no global lock. The table is a ConcurrentHashMap, and each entry has its own
+ *   lock, held only while that session is being opened, attached, detached or passivated
+ * - Opening a session (e.g. replaying its journal) happens outside the map, so it never
+ *   blocks lookups of other sessions
+ * - At most maxSessions sessions are live. When the registry is full, the detached session
+ *   idle the longest is passivated to make room; if every session is attached, the new one
+ *   is refused
+ *
+ * Nothing is kept for a session once it is dropped, so memory stays flat however many
+ * players come and go.
+ *
+ * Example usage:
+ *   SessionRegistry registry = new SessionRegistry(10_000, 30 * 60 * 1000);
+ *   GameSession session = registry.attach("ada", id -> new GameSession("Ada", out));
+ *   ...
+ *   registry.detach("ada");
+ */
+public class SessionRegistry implements Closeable {
+
+    public static final int DEFAULT_MAX_SESSIONS = 10_000;
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 30 * 60 * 1000;
+
+    /**
+     * Opens a session that is not in the registry, e.g. by resuming it from a journal.
+     */
+    public interface Opener {
+        GameSession open(String sessionId) throws IOException;
+    }
+
+    private final Map<String, Entry> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger live = new AtomicInteger();  // entries in the map, plus reservations
+    private final int maxSessions;
+    private final long idleTimeoutNanos;
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * Creates a registry with the default cap and idle timeout.
+     */
+    public SessionRegistry() {
+        this(DEFAULT_MAX_SESSIONS, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a registry.
+     *
+     * @param maxSessions How many sessions may be live at once
+     * @param idleTimeoutMillis How long a detached session stays in memory
+     */
+    public SessionRegistry(int maxSessions, long idleTimeoutMillis) {
+        if (maxSessions < 1 || idleTimeoutMillis < 1) {
+            throw new IllegalArgumentException("Max sessions and idle timeout must be >= 1");
+        }
+        this.maxSessions = maxSessions;
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Check a few times per timeout, so a session is dropped at most a quarter late
+        long period = Math.max(1, Math.min(idleTimeoutMillis / 4, 60_000));
+        sweeper.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets a session for a connection: the live one with that id, or a new one from the opener.
+     * The caller must detach it when the connection ends.
+     *
+     * @param sessionId The session id
+     * @param opener Opens the session if it is not live; runs without blocking other sessions
+     * @return The session, attached to the caller
+     * @throws SessionUnavailableException If the session is attached elsewhere or the registry is full
+     * @throws IOException If the opener fails
+     */
+    public GameSession attach(String sessionId, Opener opener) throws IOException {
+        while (true) {
+            Entry entry = sessions.get(sessionId);
+            if (entry == null) {
+                if (!reserve()) {
+                    throw new SessionUnavailableException("The server is full. Please try again later.", true);
+                }
+                Entry created = new Entry();
+                created.lock.lock();
+                try {
+                    entry = sessions.putIfAbsent(sessionId, created);
+                    if (entry == null) {
+                        return open(sessionId, created, opener);
+                    }
+                } finally {
+                    created.lock.unlock();
+                }
+                live.decrementAndGet(); // another connection opened it first
+            }
+
+            entry.lock.lock();
+            try {
+                if (entry.dropped) {
+                    continue; // passivated meanwhile; open it again
+                }
+                if (entry.attached) {
+                    throw new SessionUnavailableException("That game is already being played from another connection.");
+                }
+                entry.attached = true;
+                entry.touch();
+                return entry.session;
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    private GameSession open(String sessionId, Entry entry, Opener opener) throws IOException {
+        try {
+            entry.session = opener.open(sessionId);
+        } catch (IOException | RuntimeException e) {
+            entry.dropped = true;
+            sessions.remove(sessionId, entry);
+            live.decrementAndGet();
+            throw e;
+        }
+        entry.attached = true;
+        entry.touch();
+        return entry.session;
+    }
+
+    /**
+     * Hands a session back when its connection ends. It stays live until it has been idle
+     * for the timeout, unless the game is over, in which case it is closed now.
+     *
+     * @param sessionId The session id
+     */
+    public void detach(String sessionId) {
+        Entry entry = sessions.get(sessionId);
+        if (entry == null) {
+            return;
+        }
+        entry.lock.lock();
+        try {
+            entry.attached = false;
+            entry.touch();
+            if (!entry.dropped && entry.session.isOver()) {
+                drop(sessionId, entry, false);
+            }
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * Passivates every detached session that has been idle for the timeout.
+     * Runs on the background thread.
+     */
+    public void evictIdle() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, Entry> e : sessions.entrySet()) {
+            Entry entry = e.getValue();
+            if (!entry.attached && now - entry.lastActive >= idleTimeoutNanos) {
+                tryPassivate(e.getKey(), entry, false, now - idleTimeoutNanos);
+            }
+        }
+    }
+
+    /**
+     * Takes a slot for a new session, passivating the longest-idle detached session if
+     * the registry is full.
+     *
+     * @return False if every live session is attached
+     */
+    private boolean reserve() {
+        while (true) {
+            int count = live.get();
+            if (count < maxSessions) {
+                if (live.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+                continue;
+            }
+            // Full: one scan over the table, which only happens at the cap
+            String idlest = null;
+            Entry idlestEntry = null;
+            for (Map.Entry<String, Entry> e : sessions.entrySet()) {
+                Entry entry = e.getValue();
+                if (!entry.attached && entry.session != null
+                        && (idlestEntry == null || entry.lastActive - idlestEntry.lastActive < 0)) {
+                    idlest = e.getKey();
+                    idlestEntry = entry;
+                }
+            }
+            if (idlestEntry == null) {
+                return false;
+            }
+            tryPassivate(idlest, idlestEntry, true, 0);
+        }
+    }
+
+    /**
+     * Passivates a session if it is still detached and, unless forced, was last active
+     * before the deadline. Skips it if another thread is using the entry.
+     *
+     * @param force True to passivate however recently the session was active
+     * @param activeBefore The deadline, in System.nanoTime() terms; ignored when forced
+     */
+    private void tryPassivate(String sessionId, Entry entry, boolean force, long activeBefore) {
+        if (!entry.lock.tryLock()) {
+            return;
+        }
+        try {
+            if (!entry.dropped && !entry.attached && entry.session != null
+                    && (force || activeBefore - entry.lastActive >= 0)) {
+                drop(sessionId, entry, true);
+            }
+        } finally {
+            entry.lock.unlock();
+        }
+    }
+
+    /**
+     * Closes a session and removes it from the table. Called with the entry's lock held,
+     * so a reconnect waits for the snapshot before resuming from it.
+     */
+    private void drop(String sessionId, Entry entry, boolean snapshot) {
+        try {
+            SessionJournal.Log journal = entry.session.getJournal();
+            if (snapshot && journal != null) {
+                journal.snapshot(entry.session.getGame());
+            }
+            entry.session.close();
+        } catch (IOException e) {
+            // The journal still holds every command, so the game is not lost
+            System.err.println("Could not passivate session " + sessionId + ": " + e);
+        }
+        entry.dropped = true;
+        sessions.remove(sessionId, entry);
+        live.decrementAndGet();
+    }
+
+    /**
+     * @param sessionId The session id
+     * @return True if the session is live, attached or not
+     */
+    public boolean contains(String sessionId) {
+        return sessions.containsKey(sessionId);
+    }
+
+    /**
+     * @return Number of live sessions
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    public int getMaxSessions() {
+        return maxSessions;
+    }
+
+    /**
+     * Stops the background thread and passivates every session, attached or not.
+     */
+    @Override
+    public void close() {
+        sweeper.shutdown();
+        for (Map.Entry<String, Entry> e : sessions.entrySet()) {
+            Entry entry = e.getValue();
+            entry.lock.lock();
+            try {
+                if (!entry.dropped && entry.session != null) {
+                    drop(e.getKey(), entry, true);
+                }
+            } finally {
+                entry.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * One live session. The fields are only written under the lock; the sweeper reads
+     * attached and lastActive without it to skip busy entries cheaply.
+     */
+    private static final class Entry {
+        final ReentrantLock lock = new ReentrantLock();
+        volatile GameSession session;   // null while it is being opened
+        volatile boolean attached;
+        volatile boolean dropped;
+        volatile long lastActive = System.nanoTime();
+
+        void touch() {
+            lastActive = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package earthmessenger;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * A compact copy of everything that changes while one player plays: where the player
+ * is, hunger and thirst, the inventory, every location's flags and every alien's test
+ * progress.
+ *
+ * Everything else (descriptions, connections, questions) comes from the shared
+ * WorldTemplate, so it is never saved. A snapshot also remembers the journal sequence
+ * number of the last command it includes, so a resumed game only replays the commands
+ * that came after it.
+ *
+ * A snapshot is nothing but a fixed-layout record of SIZE bytes, so it can be copied in
+ * and out of a MappedSnapshotStore without any parsing:
+ *
+ *   0  long   journal sequence
+ *   8  int    CRC32C of the rest of the record
+ *  12  int    current location id
+ *  16  int    id + 1 of the location whose question is pending, 0 for none
+ *  20  int    chambers passed (informational; restore recounts it from the locations)
+ *  24  short  hunger level
+ *  26  short  thirst level
+ *  28  byte   flags: listened to message (1), game over (2)
+ *  29  byte   name length, then up to 31 bytes of the player's name in UTF-8
+ *  64  long   the seed the game's aliens draw their questions with
+ *  72  4 bytes per location: flags, alien's questions answered, alien's trust level (short);
+ *      locations the game had not created yet are saved as untouched and stay uncreated
+ *  ..  8 bytes per ItemType: where the item is (int: a location id, or a negative value for
+ *      the inventory or gone), its position there, state bits, two unused
+ *
+ * The world has one item of each ItemType, so each type has a fixed slot saying whether
+ * it is in the inventory, in a location or gone, and in which order.
+ *
+ * Example usage:
+ *   SessionSnapshot snapshot = SessionSnapshot.capture(game, 42);
+ *   store.save("ada", snapshot);
+ *   ...
+ *   store.load("ada").restore(freshGame);
+ */
+public class SessionSnapshot {
+
+    private static final int SEQUENCE = 0;
+    private static final int CHECKSUM = 8;
+    private static final int LOCATION = 12;
+    private static final int QUESTION_LOCATION = 16;
+    private static final int CHAMBERS_PASSED = 20;
+    private static final int HUNGER = 24;
+    private static final int THIRST = 26;
+    private static final int FLAGS = 28;
+    private static final int NAME = 29;
+    private static final int NAME_BYTES = 31;
+    private static final int SEED = 64;
+    private static final int LOCATIONS = 72;
+    private static final int ITEMS = LOCATIONS + 4 * WorldTemplate.shared().size();
+    private static final int ITEM_BYTES = 8;
+    private static final int ITEM_POSITION = 4;
+    private static final int ITEM_STATE = 5;
+
+    /** The size of one snapshot in bytes, fixed for a given world. */
+    public static final int SIZE = ITEMS + ITEM_BYTES * ItemType.values().length;
+
+    // Game flags
+    private static final int LISTENED = 1;
+    private static final int GAME_OVER = 2;
+
+    // Location flags: SessionState's seven flags, plus
+    private static final int STATE_FLAGS = 0x7F;
+    private static final int CREATED = 128;     // the game had created this location
+
+    // Where an item is: a location id, or one of these, which no location id can be
+    private static final int IN_INVENTORY = -1;
+    private static final int GONE = -2;
+    private static final int ITEM_AVAILABLE = 0x80;
+
+    // The state bits of each ItemType as first created, for locations the game never created
+    private static final int[] NEW_ITEM_STATE = new int[ItemType.values().length];
+    static {
+        for (ItemType type : ItemType.values()) {
+            NEW_ITEM_STATE[type.ordinal()] = type.create().getStateBits();
+        }
+    }
+
+    private final ByteBuffer record;
+
+    private SessionSnapshot(ByteBuffer record) {
+        this.record = record;
+    }
+
+    /**
+     * Copies the mutable state of a game.
+     *
+     * @param game The game to copy
+     * @param sequence The journal sequence number of the last command the game has run
+     * @return The snapshot
+     */
+    public static SessionSnapshot capture(EarthMessenger game, long sequence) {
+        ByteBuffer record = ByteBuffer.allocate(SIZE);
+        Player player = game.getPlayer();
+        record.putLong(SEQUENCE, sequence);
+        record.putInt(LOCATION, player.getCurrentLocation().getId());
+        record.put(FLAGS, (byte) ((player.hasListenedToMessage() ? LISTENED : 0)
+                | (game.isGameOver() ? GAME_OVER : 0)));
+        record.putInt(CHAMBERS_PASSED, game.getChambersPassed());
+        record.putShort(HUNGER, (short) player.getHungerLevel());
+        record.putShort(THIRST, (short) player.getThirstLevel());
+        putName(record, player.getName());
+        record.putLong(SEED, game.getSeed());
+
+        for (int i = 0; i < ItemType.values().length; i++) {
+            record.putInt(ITEMS + ITEM_BYTES * i, GONE);
+        }
+        putItems(record, player.getInventory(), null, IN_INVENTORY);
+
+        // Location and alien progress is copied straight from the game's packed words
+        SessionState state = game.getState();
+        int size = WorldTemplate.shared().size();
+        for (int id = 0; id < size; id++) {
+            Location location = game.getLocationIfCreated(id);
+            if (location == null) {
+                putStartingItems(record, WorldTemplate.shared().getLocation(id));
+                continue;
+            }
+            int offset = LOCATIONS + 4 * id;
+            record.put(offset, (byte) (CREATED | (state.getLocationWord(id) & STATE_FLAGS)));
+            record.put(offset + 1, (byte) state.getQuestionsAnswered(id));
+            record.putShort(offset + 2, (short) state.getTrustLevel(id));
+
+            Question pending = player.getCurrentQuestion();
+            if (pending != null && location.hasOccupant() && pending == location.getOccupant().getCurrentQuestion()) {
+                record.putInt(QUESTION_LOCATION, id + 1);
+            }
+            putItems(record, location.getItems(), location.getAvailableItems(), id);
+        }
+
+        record.putInt(CHECKSUM, checksum(record));
+        return new SessionSnapshot(record);
+    }
+
+    /**
+     * Wraps a record read from storage.
+     *
+     * @param record SIZE bytes holding a snapshot
+     * @return The snapshot, or null if the record is damaged (e.g. half written)
+     */
+    public static SessionSnapshot wrap(byte[] record) {
+        if (record.length != SIZE) {
+            throw new IllegalArgumentException("A snapshot is " + SIZE + " bytes, not " + record.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        return buffer.getInt(CHECKSUM) == checksum(buffer) ? new SessionSnapshot(buffer) : null;
+    }
+
+    /**
+     * Puts a freshly loaded game into the state this snapshot was taken in.
+     *
+     * @param game A game that has just been loaded and has not run any command
+     */
+    public void restore(EarthMessenger game) {
+        Player player = game.getPlayer();
+        int gameFlags = record.get(FLAGS);
+        // Before any alien is created, so each draws the same questions as in the saved game
+        game.setSeed(record.getLong(SEED));
+        player.setCurrentLocation(game.getLocation(record.getInt(LOCATION)));
+        // A new player starts at 0 and these setters add to the level
+        player.setHungerLevel(record.getShort(HUNGER));
+        player.setThirstLevel(record.getShort(THIRST));
+        player.setHasListenedToMessage((gameFlags & LISTENED) != 0);
+        game.setGameOver((gameFlags & GAME_OVER) != 0);
+
+        // Create the locations first: a new location's starting items take over their
+        // types' slots in the SessionState, so items are only restored once all exist
+        SessionState state = game.getState();
+        int size = WorldTemplate.shared().size();
+        for (int id = 0; id < size; id++) {
+            int offset = LOCATIONS + 4 * id;
+            int flags = record.get(offset);
+            if ((flags & CREATED) == 0) {
+                continue; // untouched: the game creates it fresh if the player gets there
+            }
+            game.getLocation(id);
+            // The location and its alien are views over this word
+            state.setLocationWord(id, flags & STATE_FLAGS);
+            state.setQuestionsAnswered(id, record.get(offset + 1) & 0xFF);
+            state.setTrustLevel(id, record.getShort(offset + 2));
+        }
+
+        player.getInventory().clear();
+        restoreItems(state, player.getInventory(), null, IN_INVENTORY);
+        for (int id = 0; id < size; id++) {
+            Location location = game.getLocationIfCreated(id);
+            if (location != null) {
+                location.getItems().clear();
+                location.getAvailableItems().clear();
+                restoreItems(state, location.getItems(), location.getAvailableItems(), id);
+            }
+        }
+
+        // Completion counts are derived from the locations' flags, not stored
+        game.getTracker().recount();
+
+        int questionLocation = record.getInt(QUESTION_LOCATION) - 1;
+        player.setCurrentQuestion(questionLocation >= 0
+                ? game.getLocation(questionLocation).getOccupant().getCurrentQuestion()
+                : null);
+    }
+
+    /**
+     * Records where each item of a list is. A list may hold at most one item of each type.
+     */
+    private static void putItems(ByteBuffer record, List<Item> items, List<Item> available, int place) {
+        for (int position = 0; position < items.size(); position++) {
+            Item item = items.get(position);
+            int offset = ITEMS + ITEM_BYTES * ItemType.of(item).ordinal();
+            if (record.getInt(offset) != GONE) {
+                throw new IllegalStateException("A snapshot holds one item of each type, found two: " + item);
+            }
+            record.putInt(offset, place);
+            record.put(offset + ITEM_POSITION, (byte) position);
+            record.put(offset + ITEM_STATE, (byte) ((item.getStateBits() & ~ITEM_AVAILABLE)
+                    | (available != null && available.contains(item) ? ITEM_AVAILABLE : 0)));
+        }
+    }
+
+    /**
+     * Records the items a location the game has not created yet will start with.
+     */
+    private static void putStartingItems(ByteBuffer record, LocationTemplate template) {
+        List<ItemType> items = template.getItems();
+        for (int position = 0; position < items.size(); position++) {
+            ItemType type = items.get(position);
+            int offset = ITEMS + ITEM_BYTES * type.ordinal();
+            if (record.getInt(offset) != GONE) {
+                throw new IllegalStateException("A snapshot holds one item of each type, found two: " + type);
+            }
+            record.putInt(offset, template.getId());
+            record.put(offset + ITEM_POSITION, (byte) position);
+            record.put(offset + ITEM_STATE, (byte) (NEW_ITEM_STATE[type.ordinal()]
+                    | (template.isItemAvailable(position) ? ITEM_AVAILABLE : 0)));
+        }
+    }
+
+    /**
+     * Recreates the items that were at the given place, in their original order.
+     */
+    private void restoreItems(SessionState gameState, List<Item> items, List<Item> available, int place) {
+        ItemType[] types = ItemType.values();
+        for (int position = 0; position < types.length; position++) {
+            for (ItemType type : types) {
+                int offset = ITEMS + ITEM_BYTES * type.ordinal();
+                if (record.getInt(offset) != place || record.get(offset + ITEM_POSITION) != position) {
+                    continue;
+                }
+                int state = record.get(offset + ITEM_STATE) & 0xFF;
+                Item item = type.create(gameState);
+                item.setStateBits(state & ~ITEM_AVAILABLE);
+                items.add(item);
+                if (available != null && (state & ITEM_AVAILABLE) != 0) {
+                    available.add(item);
+                }
+            }
+        }
+    }
+
+    private static void putName(ByteBuffer record, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, NAME_BYTES);
+        // Never cut a multi-byte character in half
+        while (length > 0 && length < bytes.length && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        record.put(NAME, (byte) length);
+        record.put(NAME + 1, bytes, 0, length);
+    }
+
+    private static int checksum(ByteBuffer record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), SEQUENCE, CHECKSUM - SEQUENCE);
+        crc.update(record.array(), LOCATION, SIZE - LOCATION);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * @return The record's bytes; callers must not modify them
+     */
+    public byte[] toBytes() {
+        return record.array();
+    }
+
+    /**
+     * @return The journal sequence number of the last command included in this snapshot
+     */
+    public long getSequence() {
+        return record.getLong(SEQUENCE);
+    }
+
+    /**
+     * @return The name of the player the game belongs to, cut to 31 bytes
+     */
+    public String getPlayerName() {
+        return new String(record.array(), NAME + 1, record.get(NAME), StandardCharsets.UTF_8);
+    }
+}
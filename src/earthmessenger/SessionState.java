@@ -0,0 +1,182 @@
+package earthmessenger;
+
+import java.util.Arrays;
+
+/**
+ * Every flag and counter one game changes as it is played, packed into a single int[].
+ *
+ * Location, Alien and Item keep none of this themselves: they are views that read and
+ * write their word here. So a game's progress is one small array instead of booleans
+ * spread over dozens of objects, and copying or comparing two games' progress is an
+ * array copy or compare.
+ *
+ * LAYOUT (one int per slot):
+ * - One slot per location, indexed by location id:
+ *     bits 0-6   VISITED, PLAYER_ENTERED, SEARCHED, PASSED, COMPLETED, ALIEN_MET, ALIEN_TESTED
+ *     bits 8-15  questions the location's alien has asked and had answered
+ *     bits 16-31 the alien's trust level, signed
+ * - Then one slot per ItemType, holding that item's state bits (see Item.getStateBits).
+ *   The world has one item of each type, so the slot belongs to whichever item of that type
+ *   the game created
+ *
+ * Everything starts at zero: not visited, no questions answered, trust 0.
+ *
+ * Example usage:
+ *   SessionState state = game.getState();
+ *   state.is(nexusId, SessionState.VISITED);
+ *   SessionState saved = state.copy();
+ */
+public final class SessionState {
+
+    // Location flags
+    public static final int VISITED = 1;
+    public static final int PLAYER_ENTERED = 2;
+    public static final int SEARCHED = 4;
+    public static final int PASSED = 8;
+    public static final int COMPLETED = 16;
+    public static final int ALIEN_MET = 32;
+    public static final int ALIEN_TESTED = 64;
+
+    private static final int ANSWERED_SHIFT = 8;
+    private static final int ANSWERED_MASK = 0xFF << ANSWERED_SHIFT;
+    private static final int TRUST_SHIFT = 16;
+
+    private final int[] words;
+    private final int locations;
+
+    /**
+     * Creates the state of a game that has not started.
+     *
+     * @param locations Number of locations in the world
+     */
+    public SessionState(int locations) {
+        this.locations = locations;
+        this.words = new int[locations + ItemType.values().length];
+    }
+
+    private SessionState(SessionState other) {
+        this.locations = other.locations;
+        this.words = other.words.clone();
+    }
+
+    /**
+     * @param location A location id
+     * @param flag One of the location flags, e.g. VISITED
+     * @return True if the flag is set
+     */
+    public boolean is(int location, int flag) {
+        return (words[location] & flag) != 0;
+    }
+
+    /**
+     * @param location A location id
+     * @param flag One of the location flags, e.g. VISITED
+     * @param on Whether to set or clear it
+     */
+    public void set(int location, int flag, boolean on) {
+        words[location] = on ? words[location] | flag : words[location] & ~flag;
+    }
+
+    /**
+     * @param location A location id
+     * @return How many questions the location's alien has had answered
+     */
+    public int getQuestionsAnswered(int location) {
+        return (words[location] & ANSWERED_MASK) >>> ANSWERED_SHIFT;
+    }
+
+    /**
+     * @param location A location id
+     * @param answered How many questions the location's alien has had answered (0-255)
+     */
+    public void setQuestionsAnswered(int location, int answered) {
+        if (answered < 0 || answered > 0xFF) {
+            throw new IllegalArgumentException("Questions answered out of range: " + answered);
+        }
+        words[location] = (words[location] & ~ANSWERED_MASK) | (answered << ANSWERED_SHIFT);
+    }
+
+    /**
+     * @param location A location id
+     * @return The trust level of the location's alien
+     */
+    public int getTrustLevel(int location) {
+        return words[location] >> TRUST_SHIFT;
+    }
+
+    /**
+     * @param location A location id
+     * @param trustLevel The trust level of the location's alien (fits in a short)
+     */
+    public void setTrustLevel(int location, int trustLevel) {
+        if (trustLevel < Short.MIN_VALUE || trustLevel > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Trust level out of range: " + trustLevel);
+        }
+        words[location] = (words[location] & 0xFFFF) | (trustLevel << TRUST_SHIFT);
+    }
+
+    /**
+     * @param location A location id
+     * @return The location's whole word: flags, questions answered and trust level
+     */
+    public int getLocationWord(int location) {
+        return words[location];
+    }
+
+    /**
+     * Overwrites a location's whole word, e.g. when restoring a saved game.
+     *
+     * @param location A location id
+     * @param word The word from getLocationWord()
+     */
+    public void setLocationWord(int location, int word) {
+        words[location] = word;
+    }
+
+    /**
+     * @param type An item type
+     * @return The state bits of the game's item of that type
+     */
+    public int getItemBits(ItemType type) {
+        return words[itemSlot(type)];
+    }
+
+    /**
+     * @param type An item type
+     * @return Where the item's bits are kept in words()
+     */
+    int itemSlot(ItemType type) {
+        return locations + type.ordinal();
+    }
+
+    /**
+     * @return The packed words, for the views to read and write in place
+     */
+    int[] words() {
+        return words;
+    }
+
+    /**
+     * @return An independent copy, e.g. to compare against later
+     */
+    public SessionState copy() {
+        return new SessionState(this);
+    }
+
+    /**
+     * @return Number of bytes of progress, excluding the array header
+     */
+    public int size() {
+        return words.length * Integer.BYTES;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof SessionState && Arrays.equals(words, ((SessionState) other).words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+}
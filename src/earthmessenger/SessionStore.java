@@ -0,0 +1,87 @@
+package earthmessenger;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Somewhere to keep the latest SessionSnapshot of each session: the player, the flags of
+ * every location and every alien's progress, keyed by session id.
+ *
+ * Implementations:
+ * - MappedSnapshotStore: one memory-mapped file on the local disk
+ * - InMemorySessionStore: a map on the heap, gone when the process exits
+ * - WriteBehindSessionStore: wraps another store, so saves return at once and reach it in
+ *   batches from a background thread
+ *
+ * A store may be used from many threads, but each session must only be saved or deleted
+ * by one thread at a time.
+ */
+public interface SessionStore extends Closeable {
+
+    /**
+     * Loads a session's latest snapshot.
+     *
+     * @param sessionId The session id
+     * @return The snapshot, or null if the session has none
+     * @throws IOException If the store cannot be read
+     */
+    SessionSnapshot load(String sessionId) throws IOException;
+
+    /**
+     * Saves a session's snapshot, replacing the one it had.
+     *
+     * @param sessionId The session id
+     * @param snapshot The snapshot to save
+     * @throws IOException If the store cannot be written
+     */
+    void save(String sessionId, SessionSnapshot snapshot) throws IOException;
+
+    /**
+     * Checks whether a session has a snapshot.
+     *
+     * @param sessionId The session id
+     * @return true if load would find one
+     * @throws IOException If the store cannot be read
+     */
+    boolean contains(String sessionId) throws IOException;
+
+    /**
+     * Removes a session's snapshot.
+     *
+     * @param sessionId The session id
+     * @return true if the session had one; a store that only parks the delete, without
+     *         reading what it wraps, returns true if the session may have had one
+     * @throws IOException If the store cannot be written
+     */
+    boolean delete(String sessionId) throws IOException;
+
+    /**
+     * Checks whether a save or delete of the session has been accepted but has not reached
+     * durable storage yet. Stores that write through before returning never have one.
+     *
+     * @param sessionId The session id
+     * @return true if the session's last save or delete could still be lost by a crash
+     */
+    default boolean isPending(String sessionId) {
+        return false;
+    }
+
+    /**
+     * Makes every save and delete that has returned durable.
+     *
+     * @throws IOException If the store cannot be written
+     */
+    default void flush() throws IOException {
+    }
+
+    /**
+     * Makes every save and delete of one session that has returned durable. Stores that
+     * cannot single one out flush everything.
+     *
+     * @param sessionId The session id
+     * @throws IOException If the store cannot be written
+     */
+    default void flush(String sessionId) throws IOException {
+        flush();
+    }
+}
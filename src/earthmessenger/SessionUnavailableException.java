@@ -0,0 +1,37 @@
+package earthmessenger;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a SessionRegistry cannot hand out a session: the registry is full of
+ * sessions still in use, or the session is already being played from another connection.
+ *
+ * The message is meant for the player.
+ */
+public class SessionUnavailableException extends IOException {
+
+    private final boolean serverFull;
+
+    /**
+     * @param message Why the session cannot be had, in words the player understands
+     */
+    public SessionUnavailableException(String message) {
+        this(message, false);
+    }
+
+    /**
+     * @param message Why the session cannot be had, in words the player understands
+     * @param serverFull True if the registry is full, false if the session is in use
+     */
+    public SessionUnavailableException(String message, boolean serverFull) {
+        super(message);
+        this.serverFull = serverFull;
+    }
+
+    /**
+     * @return True if the registry is full, false if the session is in use elsewhere
+     */
+    public boolean isServerFull() {
+        return serverFull;
+    }
+}
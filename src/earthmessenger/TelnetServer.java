@@ -0,0 +1,628 @@
+package earthmessenger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Hosts many Earth Messenger games over telnet on a handful of threads.
+ *
+ * GameServer gives every connection a thread. This server instead has a few event loops,
+ * each with its own Selector, and spreads the connections over them. An idle player costs
+ * a socket, a selection key and their game, but no thread and no read buffer. One thread
+ * accepts connections and hands them to the loops in turn.
+ *
+ * INPUT:
+ * Each loop reads into one direct buffer that all of its connections share. Lines are found
+ * in that buffer and decoded from it straight into the command's String, without copying
+ * the bytes first. Only the start of a line whose end has not arrived yet is kept between
+ * reads, in a direct line buffer borrowed from the loop's pool and returned once the line
+ * is complete. A line longer than MAX_LINE_BYTES is thrown away with a warning, so a client
+ * cannot make the server hold or decode more than that. Lines end with CR, LF or CR LF.
+ * Telnet option negotiation (IAC ...) and control characters are skipped; the server
+ * agrees to no options, so clients stay in their default line mode.
+ *
+ * OUTPUT:
+ * A connection's OutputSink writes each flush to the socket at once if the socket takes it.
+ * Anything the socket does not take is queued. When the socket can take more, the loop
+ * sends everything queued with one gathering write. A client that leaves more than
+ * MAX_QUEUED_BYTES unread is disconnected.
+ *
+ * COMMANDS:
+ * The loop threads only move bytes. A complete line is queued on its connection, and the
+ * connection's lines run one at a time, in order, on a virtual thread: claiming or resuming
+ * the session, the command itself, journaling it, and detaching the session once the
+ * connection is gone. So a slow disk holds up one player, never a loop and every
+ * connection on it. While MAX_WAITING_LINES lines of a connection wait to run, the loop
+ * stops reading from it. A command that fails is reported to the player, and the
+ * connection stays open. Narrative is printed by the PlaybackScheduler as usual. The
+ * protocol, the SessionRegistry and the SessionJournal work as they do with GameServer.
+ *
+ * Try it with:  telnet localhost 7777
+ */
+public class TelnetServer {
+
+    public static final int MAX_LINE_BYTES = 1024;
+    public static final int MAX_QUEUED_BYTES = 256 * 1024;
+    public static final int MAX_WAITING_LINES = 16;
+
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    private static final int BACKLOG = 1024;
+
+    // Telnet commands: "interpret as command", and the ones that take more bytes after it
+    private static final int IAC = 255;
+    private static final int SB = 250;
+    private static final int SE = 240;
+    private static final int WILL = 251;
+    private static final int DONT = 254;
+
+    // Queued in place of a line that was too long; compared by identity
+    private static final String TOO_LONG = new String("");
+
+    private final int port;
+    private final SessionLobby lobby;
+    private final int loops;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Creates a server that will listen on the given port of the loopback interface.
+     *
+     * @param port The TCP port to listen on
+     * @param journal Where games are saved and resumed from, or null to keep them in memory only
+     * @param registry Holds the live sessions and passivates idle ones
+     * @param loops Number of event loop threads
+     */
+    public TelnetServer(int port, SessionJournal journal, SessionRegistry registry, int loops) {
+        if (loops < 1) {
+            throw new IllegalArgumentException("A server needs at least one loop, not " + loops);
+        }
+        this.port = port;
+        this.lobby = new SessionLobby(journal, registry);
+        this.loops = loops;
+    }
+
+    /**
+     * Starts the event loops and accepts connections forever on the calling thread.
+     *
+     * @throws IOException If the server socket or a selector cannot be opened
+     */
+    public void run() throws IOException {
+        Loop[] workers = new Loop[loops];
+        for (int i = 0; i < loops; i++) {
+            workers[i] = new Loop();
+            Thread thread = new Thread(workers[i], "telnet-loop-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+            System.out.println("Earth Messenger telnet server listening on port " + port + " with " + loops + " loops");
+            CommandMetrics.registerMBean();
+            Runtime.getRuntime().addShutdownHook(new Thread(
+                    () -> System.err.print(CommandMetrics.shared().dump()), "metrics-dump"));
+            int next = 0;
+            while (server.isOpen()) {
+                SocketChannel channel = server.accept();
+                workers[next].add(channel);
+                next = (next + 1) % loops;
+            }
+        }
+    }
+
+    /**
+     * One event loop: a Selector and the connections registered with it. Everything here
+     * runs on the loop's thread, apart from add(), what a Connection runs on its worker and
+     * the output a PlaybackScheduler thread flushes.
+     */
+    private final class Loop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        private final Queue<Connection> closable = new ConcurrentLinkedQueue<>();   // closed by other threads
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private final ArrayDeque<ByteBuffer> lineBuffers = new ArrayDeque<>();
+        private final char[] chars = new char[MAX_LINE_BYTES];
+        private final Consumer<SelectionKey> ready = this::ready;
+
+        Loop() throws IOException {
+            this.selector = Selector.open();
+        }
+
+        /**
+         * Hands a newly accepted connection to this loop. Called by the accepting thread.
+         */
+        void add(SocketChannel channel) {
+            accepted.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select(ready);
+                } catch (IOException e) {
+                    System.err.println("Telnet loop stopped: " + e);
+                    return;
+                }
+                SocketChannel channel;
+                while ((channel = accepted.poll()) != null) {
+                    open(channel);
+                }
+                Connection connection;
+                while ((connection = closable.poll()) != null) {
+                    close(connection);
+                }
+            }
+        }
+
+        private void open(SocketChannel channel) {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                Connection connection = new Connection(channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                EarthMessenger.printWelcome(connection.out);
+                connection.out.flush();
+            } catch (IOException | UncheckedIOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already gone
+                }
+            }
+        }
+
+        private void ready(SelectionKey key) {
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isValid() && key.isWritable()) {
+                    connection.writeQueued();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    read(connection);
+                }
+            } catch (IOException | UncheckedIOException e) {
+                // The connection dropped; the session waits in the registry for the player
+                close(connection);
+            } catch (RuntimeException e) {
+                System.err.println("Connection ended by error: " + e);
+                close(connection);
+            }
+        }
+
+        /**
+         * Reads what the client sent and queues every complete line in it.
+         */
+        private void read(Connection connection) throws IOException {
+            ByteBuffer in = readBuffer;
+            in.clear();
+            if (connection.channel.read(in) < 0) {
+                close(connection);
+                return;
+            }
+            if (connection.closing) {
+                return;   // the game is over; only the last output is still going out
+            }
+            int limit = in.position();
+            int from = 0;
+            for (int i = 0; i < limit; i++) {
+                byte b = in.get(i);
+                if (b == '\r' || b == '\n') {
+                    boolean secondHalf = b == '\n' && connection.afterCr;
+                    connection.afterCr = b == '\r';
+                    if (!secondHalf) {
+                        line(connection, in, from, i);
+                        if (connection.closing || connection.overflowed) {
+                            return;
+                        }
+                    }
+                    from = i + 1;
+                } else if (b == 0 && connection.afterCr) {
+                    // Telnet sends CR NUL for a bare carriage return
+                    connection.afterCr = false;
+                    from = i + 1;
+                } else {
+                    connection.afterCr = false;
+                }
+            }
+            if (from < limit) {
+                keep(connection, in, from, limit);
+            }
+        }
+
+        /**
+         * Queues one line, from..to (exclusive) of the read buffer, after any start of it
+         * kept from earlier reads.
+         */
+        private void line(Connection connection, ByteBuffer in, int from, int to) {
+            if (connection.discarding) {
+                connection.discarding = false;
+                connection.submit(TOO_LONG);
+                return;
+            }
+            ByteBuffer partial = connection.partial;
+            if (partial == null) {
+                connection.submit(to - from > MAX_LINE_BYTES ? TOO_LONG : decode(in, from, to));
+                return;
+            }
+            if (partial.remaining() < to - from) {
+                release(connection);
+                connection.submit(TOO_LONG);
+                return;
+            }
+            partial.put(partial.position(), in, from, to - from);
+            String text = decode(partial, 0, partial.position() + to - from);
+            release(connection);
+            connection.submit(text);
+        }
+
+        /**
+         * Keeps the start of a line until the rest of it arrives.
+         */
+        private void keep(Connection connection, ByteBuffer in, int from, int to) {
+            if (connection.discarding) {
+                return;
+            }
+            if (connection.partial == null) {
+                ByteBuffer buffer = lineBuffers.poll();
+                connection.partial = buffer != null ? buffer : ByteBuffer.allocateDirect(MAX_LINE_BYTES);
+            }
+            ByteBuffer partial = connection.partial;
+            if (partial.remaining() < to - from) {
+                release(connection);
+                connection.discarding = true;
+                return;
+            }
+            partial.put(partial.position(), in, from, to - from);
+            partial.position(partial.position() + to - from);
+        }
+
+        private void release(Connection connection) {
+            if (connection.partial != null) {
+                connection.partial.clear();
+                lineBuffers.push(connection.partial);
+                connection.partial = null;
+            }
+        }
+
+        /**
+         * Decodes UTF-8 into a String, leaving out telnet commands and control characters.
+         * Malformed bytes become U+FFFD.
+         */
+        private String decode(ByteBuffer bytes, int from, int to) {
+            int length = 0;
+            int i = from;
+            while (i < to) {
+                int b = bytes.get(i) & 0xFF;
+                if (b == IAC) {
+                    i = skipCommand(bytes, i, to);
+                } else if (b < 0x80) {
+                    if (b >= 0x20 && b != 0x7F || b == '\t') {
+                        chars[length++] = (char) b;
+                    }
+                    i++;
+                } else {
+                    int size = b >= 0xF0 ? 4 : b >= 0xE0 ? 3 : b >= 0xC0 ? 2 : 0;
+                    int codePoint = size == 4 ? b & 0x07 : size == 3 ? b & 0x0F : b & 0x1F;
+                    boolean valid = size > 0 && i + size <= to;
+                    for (int k = 1; valid && k < size; k++) {
+                        int next = bytes.get(i + k) & 0xFF;
+                        valid = (next & 0xC0) == 0x80;
+                        codePoint = codePoint << 6 | next & 0x3F;
+                    }
+                    if (valid && Character.isValidCodePoint(codePoint)) {
+                        length += Character.toChars(codePoint, chars, length);
+                        i += size;
+                    } else {
+                        chars[length++] = '\uFFFD';
+                        i++;
+                    }
+                }
+            }
+            return new String(chars, 0, length);
+        }
+
+        /**
+         * @return The index just past the telnet command starting at i
+         */
+        private int skipCommand(ByteBuffer bytes, int i, int to) {
+            if (i + 1 >= to) {
+                return to;
+            }
+            int command = bytes.get(i + 1) & 0xFF;
+            if (command >= WILL && command <= DONT) {
+                return Math.min(i + 3, to);
+            }
+            if (command == SB) {
+                // Subnegotiation runs to IAC SE
+                for (int k = i + 2; k + 1 < to; k++) {
+                    if ((bytes.get(k) & 0xFF) == IAC && (bytes.get(k + 1) & 0xFF) == SE) {
+                        return k + 2;
+                    }
+                }
+                return to;
+            }
+            return i + 2;
+        }
+
+        private void close(Connection connection) {
+            if (connection.closed) {
+                return;
+            }
+            synchronized (connection) {
+                connection.closed = true;
+                connection.queued.clear();
+            }
+            connection.key.cancel();
+            try {
+                connection.channel.close();
+            } catch (IOException ignored) {
+                // Closing anyway
+            }
+            release(connection);
+            connection.schedule();   // its worker detaches the session
+        }
+
+        /**
+         * One client connection and, once the player has given their name, their session.
+         */
+        private final class Connection {
+            final SocketChannel channel;
+            final OutputSink out;
+            SelectionKey key;
+
+            // Input, touched only by the loop thread
+            ByteBuffer partial;       // start of a line still arriving, or null
+            boolean discarding;       // the line being read is too long and is being skipped
+            boolean afterCr;          // the last byte was CR, so a LF or NUL after it is not a new line
+
+            // Lines waiting for the worker, which runs them one at a time
+            final Queue<String> lines = new ConcurrentLinkedQueue<>();
+            final AtomicInteger waiting = new AtomicInteger();
+            final AtomicBoolean scheduled = new AtomicBoolean();
+            String sessionId;         // touched only by the worker
+            GameSession session;
+            volatile boolean closing; // close once the queued output has been sent
+
+            // Output and interest ops, touched by any thread; guarded by this
+            final ArrayDeque<ByteBuffer> queued = new ArrayDeque<>();
+            int queuedBytes;
+            boolean readPaused;       // MAX_WAITING_LINES lines are waiting
+            volatile boolean overflowed;
+            volatile boolean closed;
+
+            Connection(SocketChannel channel) {
+                this.channel = channel;
+                this.out = new OutputSink(channel) {
+                    @Override
+                    void send(ByteBuffer pending) throws IOException {
+                        Connection.this.send(pending);
+                    }
+                };
+            }
+
+            /**
+             * Queues a line for the worker. Called by the loop thread.
+             */
+            void submit(String line) {
+                lines.add(line);
+                if (waiting.incrementAndGet() >= MAX_WAITING_LINES) {
+                    synchronized (this) {
+                        if (waiting.get() >= MAX_WAITING_LINES) {
+                            readPaused = true;
+                            interest();
+                        }
+                    }
+                }
+                schedule();
+            }
+
+            /**
+             * Makes sure a worker will run what is queued, or detach the session of a
+             * closed connection.
+             */
+            void schedule() {
+                if (scheduled.compareAndSet(false, true)) {
+                    workers.execute(this::work);
+                }
+            }
+
+            /**
+             * Runs the queued lines in order, then detaches the session if the connection
+             * has closed. Only one worker runs a connection at a time.
+             */
+            private void work() {
+                do {
+                    String line;
+                    while ((line = lines.poll()) != null) {
+                        if (!closing && !closed) {
+                            run(line);
+                        }
+                        waiting.decrementAndGet();
+                        synchronized (this) {
+                            if (readPaused && waiting.get() < MAX_WAITING_LINES) {
+                                readPaused = false;
+                                interest();
+                                selector.wakeup();
+                            }
+                        }
+                    }
+                    if (closed && session != null) {
+                        lobby.detach(sessionId);
+                        session = null;
+                    }
+                    scheduled.set(false);
+                } while ((!lines.isEmpty() || closed && session != null) && scheduled.compareAndSet(false, true));
+            }
+
+            private void run(String line) {
+                try {
+                    if (line == TOO_LONG) {
+                        reply("That line is too long; nothing was done.");
+                    } else {
+                        handle(line);
+                    }
+                } catch (IOException | UncheckedIOException e) {
+                    // The connection dropped; the session waits in the registry for the player
+                    closable.add(this);
+                    selector.wakeup();
+                } catch (RuntimeException e) {
+                    System.err.println("Command \"" + line + "\" failed: " + e);
+                    reply("Sorry, that command could not be run.");
+                }
+            }
+
+            private void reply(String message) {
+                out.lock();
+                try {
+                    out.println(message);
+                    if (session != null) {
+                        out.print("> ");
+                    }
+                    out.flush();
+                } finally {
+                    out.unlock();
+                }
+            }
+
+            /**
+             * Runs a line of input: the player's name first, then commands.
+             */
+            private void handle(String input) throws IOException {
+                if (session == null) {
+                    attach(input.trim());
+                } else {
+                    session.handle(input);
+                }
+                if (session != null && session.isOver()) {
+                    finish();
+                }
+            }
+
+            private void attach(String playerName) throws IOException {
+                sessionId = SessionJournal.toSessionId(playerName);
+                try {
+                    session = lobby.attach(sessionId, playerName, out);
+                } catch (SessionUnavailableException e) {
+                    out.println(e.getMessage());
+                    out.flush();
+                    finish();
+                    return;
+                }
+                session.setPrompt("> ");
+                out.println();
+                out.println(session.getGame().getPlayer().getCurrentLocation().getLongDescription());
+                out.print("> ");
+                out.flush();
+            }
+
+            /**
+             * Closes the connection once everything queued for it has been sent.
+             */
+            private void finish() {
+                closing = true;
+                synchronized (this) {
+                    if (!queued.isEmpty()) {
+                        return;   // writeQueued() closes it
+                    }
+                }
+                closable.add(this);
+                selector.wakeup();
+            }
+
+            /**
+             * Writes a flush of the sink: straight to the socket, behind anything already
+             * queued, and queues what the socket does not take. Called with the sink's lock
+             * held, from the loop thread or a PlaybackScheduler thread.
+             */
+            void send(ByteBuffer pending) throws IOException {
+                synchronized (this) {
+                    if (closed || overflowed) {
+                        pending.position(pending.limit());
+                        return;
+                    }
+                    if (queued.isEmpty()) {
+                        channel.write(pending);
+                    } else {
+                        gather(pending);
+                    }
+                    if (!pending.hasRemaining()) {
+                        return;
+                    }
+                    if (queuedBytes + pending.remaining() > MAX_QUEUED_BYTES) {
+                        // The client is not reading, so its socket may never be writable
+                        // again; the loop closes the connection as soon as it wakes up
+                        overflowed = true;
+                        pending.position(pending.limit());
+                        closable.add(this);
+                    } else {
+                        ByteBuffer copy = ByteBuffer.allocate(pending.remaining());
+                        copy.put(pending).flip();
+                        queued.add(copy);
+                        queuedBytes += copy.remaining();
+                        interest();
+                    }
+                    selector.wakeup();
+                }
+            }
+
+            /**
+             * Sends what is queued, once the socket can take more. Runs on the loop thread.
+             */
+            void writeQueued() throws IOException {
+                synchronized (this) {
+                    gather(null);
+                    if (!queued.isEmpty()) {
+                        return;
+                    }
+                    interest();
+                }
+                if (closing) {
+                    close(this);
+                }
+            }
+
+            /**
+             * Asks the selector for reads unless they are paused, and for writability while
+             * output is queued. Called with this held.
+             */
+            private void interest() {
+                if (!closed) {
+                    key.interestOps((readPaused ? 0 : SelectionKey.OP_READ)
+                            | (queued.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+                }
+            }
+
+            /**
+             * Writes the queue, then the pending flush if there is one, in one gathering
+             * write, and drops the buffers it sent in full from the queue.
+             */
+            private void gather(ByteBuffer pending) throws IOException {
+                int count = queued.size() + (pending != null ? 1 : 0);
+                ByteBuffer[] buffers = queued.toArray(new ByteBuffer[count]);
+                if (pending != null) {
+                    buffers[count - 1] = pending;
+                }
+                channel.write(buffers);
+                while (!queued.isEmpty() && !queued.peek().hasRemaining()) {
+                    queuedBytes -= queued.poll().capacity();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package earthmessenger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A piece of narrative that is printed in timed steps, like the iPhone mission briefing.
+ *
+ * A sequence is a list of steps; each step is a block of lines followed by a pause.
+ * Sequences are pure data: they are built once (usually in a static field), shared by
+ * every session and played by a PlaybackScheduler, which does the waiting.
+ *
+ * Example usage:
+ *   TimedSequence countdown = new TimedSequence()
+ *           .lines("Three...").pause(1000)
+ *           .lines("Two...").pause(1000)
+ *           .lines("One!");
+ *   game.getPlayback().play(countdown, game);
+ */
+public class TimedSequence {
+
+    private final List<String> texts;
+    private final List<Integer> pauses;   // milliseconds to wait after each step
+
+    /**
+     * Creates an empty sequence. Add steps with lines() and pause().
+     */
+    public TimedSequence() {
+        this.texts = new ArrayList<>();
+        this.pauses = new ArrayList<>();
+    }
+
+    /**
+     * Adds a step that prints the given lines, each followed by a line break.
+     *
+     * @param lines The lines to print together
+     * @return This sequence, to keep adding steps
+     */
+    public TimedSequence lines(String... lines) {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append("\n");
+        }
+        texts.add(text.toString());
+        pauses.add(0);
+        return this;
+    }
+
+    /**
+     * Waits before the next step is printed.
+     *
+     * @param milliseconds How long to wait after the last step
+     * @return This sequence, to keep adding steps
+     */
+    public TimedSequence pause(int milliseconds) {
+        int last = pauses.size() - 1;
+        pauses.set(last, pauses.get(last) + milliseconds);
+        return this;
+    }
+
+    /**
+     * @return Number of steps in the sequence
+     */
+    public int size() {
+        return texts.size();
+    }
+
+    /**
+     * @param step The step index
+     * @return The text printed by the step
+     */
+    public String getText(int step) {
+        return texts.get(step);
+    }
+
+    /**
+     * @param step The step index
+     * @return Milliseconds to wait after the step before printing the next one
+     */
+    public int getPauseAfter(int step) {
+        return pauses.get(step);
+    }
+}
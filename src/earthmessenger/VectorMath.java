@@ -0,0 +1,79 @@
+package earthmessenger;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+
+/**
+ * Dot products over float vectors stored in memory segments, for WordVectors.
+ *
+ * This class is the plain loop. create() returns VectorizedMath instead when the
+ * jdk.incubator.vector module is present, so the game still runs, only slower, when
+ * it is started without --add-modules jdk.incubator.vector.
+ */
+class VectorMath {
+
+    // Word vector files are little-endian; reads need not be aligned
+    static final ValueLayout.OfFloat FLOAT = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * @return The fastest implementation this JVM can run
+     */
+    static VectorMath create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return new VectorizedMath();
+        }
+        return new VectorMath();
+    }
+
+    /**
+     * @param a The segment holding the first vector
+     * @param aOffset Byte offset of the first vector
+     * @param b The segment holding the second vector
+     * @param bOffset Byte offset of the second vector
+     * @param length Number of floats in each vector
+     * @return The dot product
+     */
+    float dot(MemorySegment a, long aOffset, MemorySegment b, long bOffset, int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a.get(FLOAT, aOffset + (long) i * Float.BYTES) * b.get(FLOAT, bOffset + (long) i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    /**
+     * @param a The first vector
+     * @param b The second vector
+     * @param length Number of floats in each vector
+     * @return The dot product
+     */
+    float dot(float[] a, float[] b, int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Adds a vector stored in a segment to an array, in place.
+     *
+     * @param a The segment holding the vector
+     * @param aOffset Byte offset of the vector
+     * @param sum The array added to
+     * @param length Number of floats in the vector
+     */
+    void add(MemorySegment a, long aOffset, float[] sum, int length) {
+        for (int i = 0; i < length; i++) {
+            sum[i] += a.get(FLOAT, aOffset + (long) i * Float.BYTES);
+        }
+    }
+
+    /**
+     * @return true if this implementation uses the Vector API
+     */
+    boolean isVectorized() {
+        return false;
+    }
+}
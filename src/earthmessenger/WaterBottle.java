@@ -1,10 +1,13 @@
+package earthmessenger;
+
 /**
  * Represents a water bottle item in the game.
  * Drinking from the water bottle reduces the player's thirst level.
  */
 public class WaterBottle extends Item {
 
-    private boolean empty = false;
+    private static final int EMPTY = 2;
+
     private int thirstScore = 5;
 
     /**
@@ -22,11 +25,11 @@ public class WaterBottle extends Item {
      */
     @Override
     public void use(Player player) {
-        if (empty) {
-            System.out.println("The bottle is empty.");
+        if (hasState(EMPTY)) {
+            player.getGame().getOut().println("The bottle is empty.");
         } else {
-            System.out.println("You drink the water.");
-            empty = true;
+            player.getGame().getOut().println("You drink the water.");
+            setState(EMPTY, true);
             player.setThirstLevel(thirstScore);
         }
     }
@@ -0,0 +1,309 @@
+package earthmessenger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A table of word vectors, memory-mapped from a file built ahead of time.
+ *
+ * Each word of the vocabulary has a vector of the same length, scaled to length 1, so the
+ * cosine similarity of two words is their dot product. Words with related meanings
+ * ("comfort", "solace", "kindness") have vectors pointing in similar directions.
+ *
+ * Only the words are read onto the heap, into an open-addressing hash table. The vectors,
+ * which make up almost all of the file, stay in the mapped file and are paged in by the
+ * OS as they are used. A lookup hashes the characters of a word in place and allocates
+ * nothing.
+ *
+ * Dot products run on the Vector API when the jdk.incubator.vector module is present
+ * (java --add-modules jdk.incubator.vector ...) and on a plain loop otherwise.
+ *
+ * FILE FORMAT (little-endian):
+ *   int    magic "EMWV" (0x454D5756)
+ *   int    dimensions
+ *   int    number of words
+ *   int    offset of the vectors from the start of the file, a multiple of 64
+ *   then   for each word: a short byte length and the word in lower-case UTF-8
+ *   then   at the offset, each word's vector as dimensions floats, in word order
+ *
+ * Build one from a text file of vectors in GloVe format ("word 0.1 -0.3 ..." per line,
+ * most frequent words first):
+ *   java -cp earthmessenger.jar earthmessenger.WordVectors glove.6B.100d.txt vectors.bin [--limit 100000]
+ *
+ * Example usage:
+ *   WordVectors vectors = WordVectors.open(Path.of("vectors.bin"));
+ *   int comfort = vectors.find("comfort", 0, 7);
+ *   int solace = vectors.find("solace", 0, 6);
+ *   float similarity = vectors.dot(comfort, solace);
+ */
+public final class WordVectors {
+
+    public static final String VECTORS_PROPERTY = "earthmessenger.vectors";
+
+    private static final int MAGIC = 0x454D5756;
+    private static final int HEADER_SIZE = 16;
+    private static final int ALIGNMENT = 64;
+
+    private final MemorySegment vectors;
+    private final int dimensions;
+    private final String[] words;
+    private final int[] table;      // row + 1 at each word's slot, 0 for empty
+    private final int mask;
+    private final VectorMath math;
+
+    private WordVectors(MemorySegment file) throws IOException {
+        if (file.byteSize() < HEADER_SIZE || file.get(ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN), 0) != MAGIC) {
+            throw new IOException("Not a word vector file");
+        }
+        ByteBuffer header = file.asByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        dimensions = header.getInt(4);
+        int count = header.getInt(8);
+        long vectorsOffset = header.getInt(12) & 0xFFFFFFFFL;
+        if (dimensions <= 0 || count < 0 || vectorsOffset + (long) count * dimensions * Float.BYTES > file.byteSize()) {
+            throw new IOException("Corrupt word vector file");
+        }
+        vectors = file.asSlice(vectorsOffset, (long) count * dimensions * Float.BYTES);
+
+        words = new String[count];
+        table = new int[Integer.highestOneBit(Math.max(1, count) * 2) << 1];
+        mask = table.length - 1;
+        ByteBuffer wordList = file.asSlice(HEADER_SIZE, vectorsOffset - HEADER_SIZE).asByteBuffer().order(ByteOrder.LITTLE_ENDIAN);
+        for (int row = 0; row < count; row++) {
+            byte[] bytes = new byte[wordList.getShort() & 0xFFFF];
+            wordList.get(bytes);
+            String word = new String(bytes, StandardCharsets.UTF_8);
+            words[row] = word;
+            int slot = hash(word, 0, word.length()) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = row + 1;
+        }
+        math = VectorMath.create();
+    }
+
+    /**
+     * Maps a word vector file.
+     *
+     * @param file The file, built by main()
+     * @return The table
+     * @throws IOException if the file cannot be read or is not a word vector file
+     */
+    public static WordVectors open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping outlives the channel and is released when the table is collected
+            return new WordVectors(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), Arena.ofAuto()));
+        }
+    }
+
+    /**
+     * Gets the table named by the earthmessenger.vectors system property, mapping it on
+     * first use.
+     *
+     * @return The shared table, or null if no table is configured
+     */
+    public static WordVectors shared() {
+        return Shared.INSTANCE;
+    }
+
+    // Mapped by the JVM's class initialization the first time shared() is called
+    private static final class Shared {
+        private static final WordVectors INSTANCE = openShared();
+    }
+
+    private static WordVectors openShared() {
+        String file = System.getProperty(VECTORS_PROPERTY);
+        if (file == null) {
+            return null;
+        }
+        try {
+            return open(Path.of(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load the word vectors " + file, e);
+        }
+    }
+
+    /**
+     * Finds a word, reading it straight from a longer text. Case must already be lower.
+     *
+     * @param text The text the word is in
+     * @param start Where the word starts
+     * @param end Where the word ends (exclusive)
+     * @return The word's row, or -1 if it is not in the vocabulary
+     */
+    public int find(CharSequence text, int start, int end) {
+        int length = end - start;
+        int slot = hash(text, start, end) & mask;
+        int row;
+        while ((row = table[slot] - 1) >= 0) {
+            String word = words[row];
+            if (word.length() == length && regionEquals(word, text, start)) {
+                return row;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(String word, CharSequence text, int start) {
+        for (int i = 0; i < word.length(); i++) {
+            if (word.charAt(i) != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @param a A word's row
+     * @param b Another word's row
+     * @return The cosine similarity of the two words, from -1 to 1
+     */
+    public float dot(int a, int b) {
+        return math.dot(vectors, rowOffset(a), vectors, rowOffset(b), dimensions);
+    }
+
+    /**
+     * @param a A vector of getDimensions() floats
+     * @param b Another vector of getDimensions() floats
+     * @return The dot product of the two vectors
+     */
+    public float dot(float[] a, float[] b) {
+        return math.dot(a, b, dimensions);
+    }
+
+    /**
+     * Adds a word's vector to a vector.
+     *
+     * @param row The word's row
+     * @param sum A vector of getDimensions() floats, added to in place
+     */
+    public void addTo(int row, float[] sum) {
+        math.add(vectors, rowOffset(row), sum, dimensions);
+    }
+
+    private long rowOffset(int row) {
+        if (row < 0 || row >= words.length) {
+            throw new IndexOutOfBoundsException(row);
+        }
+        return (long) row * dimensions * Float.BYTES;
+    }
+
+    /**
+     * @return The length of every vector
+     */
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @return Number of words in the vocabulary
+     */
+    public int size() {
+        return words.length;
+    }
+
+    /**
+     * @return true if dot products run on the Vector API
+     */
+    public boolean isVectorized() {
+        return math.isVectorized();
+    }
+
+    /**
+     * Builds a word vector file from a text file in GloVe format.
+     *
+     * Usage: WordVectors INPUT OUTPUT [--limit N]
+     * Keeps the first N words (GloVe files list the most frequent first) and scales every
+     * vector to length 1.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && !(args.length == 4 && args[2].equals("--limit"))) {
+            System.err.println("Usage: WordVectors INPUT OUTPUT [--limit N]");
+            System.exit(2);
+        }
+        int limit = args.length == 4 ? Integer.parseInt(args[3]) : Integer.MAX_VALUE;
+        List<String> words = new ArrayList<>();
+        List<float[]> rows = new ArrayList<>();
+        int dimensions = -1;
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(args[0]), StandardCharsets.UTF_8)) {
+            String line;
+            while (words.size() < limit && (line = reader.readLine()) != null) {
+                String[] fields = line.trim().split(" ");
+                if (fields.length < 2) {
+                    continue;
+                }
+                if (dimensions < 0) {
+                    dimensions = fields.length - 1;
+                } else if (fields.length - 1 != dimensions) {
+                    throw new IOException("Line " + (words.size() + 1) + " has " + (fields.length - 1)
+                            + " numbers, expected " + dimensions);
+                }
+                float[] vector = new float[dimensions];
+                double length = 0;
+                for (int i = 0; i < dimensions; i++) {
+                    vector[i] = Float.parseFloat(fields[i + 1]);
+                    length += vector[i] * vector[i];
+                }
+                if (length == 0) {
+                    continue;
+                }
+                float scale = (float) (1 / Math.sqrt(length));
+                for (int i = 0; i < dimensions; i++) {
+                    vector[i] *= scale;
+                }
+                words.add(fields[0].toLowerCase());
+                rows.add(vector);
+            }
+        }
+        if (dimensions < 0) {
+            throw new IOException("No vectors in " + args[0]);
+        }
+
+        int wordBytes = 0;
+        for (String word : words) {
+            wordBytes += 2 + word.getBytes(StandardCharsets.UTF_8).length;
+        }
+        int vectorsOffset = (HEADER_SIZE + wordBytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+        ByteBuffer head = ByteBuffer.allocate(vectorsOffset).order(ByteOrder.LITTLE_ENDIAN);
+        head.putInt(MAGIC).putInt(dimensions).putInt(words.size()).putInt(vectorsOffset);
+        for (String word : words) {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            head.putShort((short) bytes.length).put(bytes);
+        }
+        head.clear();
+
+        try (FileChannel out = FileChannel.open(Path.of(args[1]), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            out.write(head);
+            ByteBuffer row = ByteBuffer.allocate(dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (float[] vector : rows) {
+                row.clear();
+                row.asFloatBuffer().put(vector);
+                out.write(row);
+            }
+        }
+        System.out.println("Wrote " + words.size() + " words of " + dimensions + " dimensions to " + args[1]);
+    }
+}
@@ -0,0 +1,32 @@
+package earthmessenger;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when a world content file cannot be loaded because of mistakes in it.
+ *
+ * The loader reads the whole file before giving up, so one exception reports every
+ * mistake at once, each as "source:line: message".
+ */
+public class WorldFileException extends IOException {
+
+    private final List<String> errors;
+
+    /**
+     * @param source The name of the file that was loaded
+     * @param errors Every mistake found, each prefixed with its source and line number
+     */
+    public WorldFileException(String source, List<String> errors) {
+        super(errors.size() + " error(s) in " + source + ":\n" + String.join("\n", errors));
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * @return Every mistake found, in the order they appear in the file
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,606 @@
+package earthmessenger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a WorldTemplate from a content file (see world.txt for the format).
+ *
+ * The file is streamed through one byte buffer: each line is found by scanning for its
+ * newline, its directive is read as plain ASCII and only the text after it is decoded from
+ * UTF-8, so every byte is looked at once and nothing but the world itself is kept in memory.
+ * References that may point further down the file - connections, occupants and the banks
+ * aliens draw from - are remembered with their line number and resolved at the end.
+ *
+ * Mistakes do not stop the loader: it reads to the end and then throws one
+ * WorldFileException listing every error with its line number, e.g.
+ *   world.txt:42: connect: unknown location 'The Nexsu'
+ *
+ * Example usage:
+ *   WorldTemplate world = WorldLoader.load(Path.of("world.txt"));
+ */
+public final class WorldLoader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private final String source;
+    private final WorldTemplate world = new WorldTemplate();
+    private final List<Error> errors = new ArrayList<>();
+
+    // The stream is read into buffer; [position, limit) has not been parsed yet
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    private int lineNumber;
+
+    private int typos;
+    private final int[] itemLines = new int[ItemType.values().length];   // where each type is placed, 0 if nowhere
+    private float similarity;
+    private final Map<String, AlienTemplate> aliensByName = new HashMap<>();
+    private final List<Reference> connections = new ArrayList<>();
+    private final List<Reference> occupants = new ArrayList<>();
+    private final List<Reference> drawingAliens = new ArrayList<>();
+    private int startLine;
+
+    // The block being read
+    private LocationTemplate location;
+    private StringBuilder longDescription;
+    private StringBuilder shortDescription;
+    private int locationLine;
+    private String alienName;
+    private String alienRole;
+    private List<Question> questions;
+    private int draw;
+    private int alienLine;
+    private QuestionBank bank;
+    private String questionText;
+    private List<String> options;
+    private List<String> answers;
+    private int questionLine;
+
+    private WorldLoader(InputStream in, String source) {
+        this.in = in;
+        this.source = source;
+    }
+
+    /**
+     * Loads a world from a file.
+     *
+     * @param file The content file
+     * @return The world
+     * @throws WorldFileException If the file has mistakes in it
+     * @throws IOException If the file cannot be read
+     */
+    public static WorldTemplate load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return load(in, file.getFileName().toString());
+        }
+    }
+
+    /**
+     * Loads a world from a stream of content-file bytes (UTF-8).
+     *
+     * @param in The content; not closed
+     * @param source The name used in error messages
+     * @return The world
+     * @throws WorldFileException If the content has mistakes in it
+     * @throws IOException If the stream cannot be read
+     */
+    public static WorldTemplate load(InputStream in, String source) throws IOException {
+        return new WorldLoader(in, source).read();
+    }
+
+    private WorldTemplate read() throws IOException {
+        fill();
+        // Skip a UTF-8 byte order mark written by some editors
+        if (limit - position >= 3 && buffer[0] == (byte) 0xEF && buffer[1] == (byte) 0xBB
+                && buffer[2] == (byte) 0xBF) {
+            position = 3;
+        }
+
+        int end;
+        while ((end = nextLine()) >= 0) {
+            int start = position;
+            position = end + 1;
+            if (end > start && buffer[end - 1] == '\r') {
+                end--;
+            }
+            while (start < end && (buffer[start] == ' ' || buffer[start] == '\t')) {
+                start++;
+            }
+            if (start < end && buffer[start] != '#') {
+                directive(start, end);
+            }
+        }
+        endBlock();
+        resolve();
+
+        if (!errors.isEmpty()) {
+            // References are checked last; report everything in file order
+            errors.sort((a, b) -> Integer.compare(a.line, b.line));
+            List<String> messages = new ArrayList<>(errors.size());
+            for (Error error : errors) {
+                messages.add(source + ":" + error.line + ": " + error.message);
+            }
+            throw new WorldFileException(source, messages);
+        }
+        return world;
+    }
+
+    /**
+     * Finds the end of the next line, reading more of the stream as needed.
+     *
+     * @return The index of the line's '\n' (or of the end of the input for a last line
+     *         without one), or -1 once every line has been read
+     */
+    private int nextLine() throws IOException {
+        int scanned = position;
+        while (true) {
+            for (int i = scanned; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    lineNumber++;
+                    return i;
+                }
+            }
+            scanned = limit;
+            if (endOfInput) {
+                if (position < limit) {
+                    lineNumber++;
+                    return limit;
+                }
+                return -1;
+            }
+            // Keep the partial line: slide it to the front, or grow the buffer for a long line
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                scanned -= position;
+                limit -= position;
+                position = 0;
+            } else if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            fill();
+        }
+    }
+
+    private void fill() throws IOException {
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    /**
+     * Handles one non-blank, non-comment line, from its first character to its end.
+     */
+    private void directive(int start, int end) {
+        int space = start;
+        while (space < end && buffer[space] != ' ') {
+            space++;
+        }
+        String keyword = new String(buffer, start, space - start, StandardCharsets.ISO_8859_1);
+        String value = space < end ? new String(buffer, space + 1, end - space - 1, StandardCharsets.UTF_8) : "";
+
+        switch (keyword) {
+            case "location":
+                startLocation(value.trim());
+                break;
+            case "outside":
+                if (inLocation(keyword)) {
+                    location.setOutside(true);
+                }
+                break;
+            case "long":
+                if (inLocation(keyword)) {
+                    longDescription = appendLine(longDescription, value);
+                }
+                break;
+            case "short":
+                if (inLocation(keyword)) {
+                    shortDescription = appendLine(shortDescription, value);
+                }
+                break;
+            case "command": {
+                String[] parts = split(keyword, value, " = ");
+                if (parts != null && inLocation(keyword)) {
+                    location.addSpecialCommand(parts[0], parts[1]);
+                }
+                break;
+            }
+            case "item": {
+                String[] parts = words(value);
+                boolean hidden = parts.length == 2 && parts[1].equals("hidden");
+                if (parts.length == 0 || parts.length > 2 || (parts.length == 2 && !hidden)) {
+                    error("item: expected 'item TYPE [hidden]'");
+                } else if (inLocation(keyword)) {
+                    ItemType type;
+                    try {
+                        type = ItemType.valueOf(parts[0]);
+                    } catch (IllegalArgumentException e) {
+                        error("item: unknown item type '" + parts[0] + "', expected one of "
+                                + Arrays.toString(ItemType.values()));
+                        break;
+                    }
+                    // Each type has one slot in a game's SessionState and SessionSnapshot
+                    if (itemLines[type.ordinal()] != 0) {
+                        error("item: " + type + " is already placed on line " + itemLines[type.ordinal()]
+                                + "; a world holds one item of each type");
+                    } else {
+                        itemLines[type.ordinal()] = lineNumber;
+                        location.addItem(type, !hidden);
+                    }
+                }
+                break;
+            }
+            case "connect": {
+                String[] parts = split(keyword, value, " = ");
+                if (parts != null && inLocation(keyword)) {
+                    connections.add(new Reference(location, parts[0], parts[1], lineNumber));
+                }
+                break;
+            }
+            case "occupant":
+                if (inLocation(keyword)) {
+                    occupants.add(new Reference(location, null, value.trim(), lineNumber));
+                }
+                break;
+            case "start":
+                if (inLocation(keyword)) {
+                    if (world.getStart() != null) {
+                        error("start: the world already starts in '" + world.getStart().getName()
+                                + "' (line " + startLine + ")");
+                    } else {
+                        world.setStart(location);
+                        startLine = lineNumber;
+                    }
+                }
+                break;
+            case "alien":
+                startAlien(value.trim());
+                break;
+            case "draw":
+                if (inAlien(keyword)) {
+                    try {
+                        draw = Integer.parseInt(value.trim());
+                        if (draw <= 0) {
+                            error("draw: an alien must ask at least one question");
+                        }
+                    } catch (NumberFormatException e) {
+                        error("draw: not a number: '" + value + "'");
+                    }
+                }
+                break;
+            case "bank":
+                startBank(value.trim());
+                break;
+            case "question":
+                if (inQuestionList(keyword)) {
+                    endQuestion();
+                    questionText = value;
+                    options = new ArrayList<>();
+                    answers = null;
+                    similarity = 0;
+                    typos = 0;
+                    questionLine = lineNumber;
+                }
+                break;
+            case "option":
+                if (inQuestion(keyword)) {
+                    options.add(value);
+                }
+                break;
+            case "answers":
+                if (inQuestion(keyword)) {
+                    answers = answerList(value);
+                    if (answers.contains("")) {
+                        error("answers: expected 'answers A | B | ...' with no empty answer");
+                    }
+                }
+                break;
+            case "typos":
+                if (inQuestion(keyword)) {
+                    try {
+                        typos = Integer.parseInt(value.trim());
+                        if (typos < 0) {
+                            error("typos: expected a number of letters >= 0, not '" + value + "'");
+                            typos = 0;
+                        }
+                    } catch (NumberFormatException e) {
+                        error("typos: not a number: '" + value + "'");
+                    }
+                }
+                break;
+            case "similar":
+                if (inQuestion(keyword)) {
+                    try {
+                        similarity = Float.parseFloat(value.trim());
+                        if (!(similarity > 0 && similarity <= 1)) {
+                            error("similar: expected a similarity above 0 and at most 1, not '" + value + "'");
+                            similarity = 0;
+                        }
+                    } catch (NumberFormatException e) {
+                        error("similar: not a number: '" + value + "'");
+                    }
+                }
+                break;
+            default:
+                error("unknown directive '" + keyword + "'");
+        }
+    }
+
+    private void startLocation(String name) {
+        endBlock();
+        if (name.isEmpty()) {
+            error("location: missing name");
+            return;
+        }
+        if (world.getLocation(name) != null) {
+            error("location: '" + name + "' is already defined");
+            return;
+        }
+        location = world.add(false, name);
+        locationLine = lineNumber;
+    }
+
+    private void startAlien(String value) {
+        endBlock();
+        String[] parts = words(value);
+        if (parts.length != 2) {
+            error("alien: expected 'alien NAME ROLE'");
+            return;
+        }
+        if (aliensByName.containsKey(parts[0])) {
+            error("alien: '" + parts[0] + "' is already defined");
+            return;
+        }
+        alienName = parts[0];
+        alienRole = parts[1];
+        questions = new ArrayList<>();
+        draw = 0;
+        alienLine = lineNumber;
+    }
+
+    private void startBank(String role) {
+        endBlock();
+        if (role.isEmpty() || role.indexOf(' ') >= 0) {
+            error("bank: expected 'bank ROLE'");
+            return;
+        }
+        // A role's questions may be split over several bank blocks
+        bank = world.bank(role);
+    }
+
+    /**
+     * Finishes whichever location, alien or bank was being read.
+     */
+    private void endBlock() {
+        if (location != null) {
+            if (longDescription == null) {
+                error(locationLine, "location '" + location.getName() + "' has no long description");
+            } else {
+                location.setLongDescription(longDescription.toString());
+                location.setShortDescription(shortDescription != null
+                        ? shortDescription.toString() : longDescription.toString());
+            }
+            location = null;
+            longDescription = null;
+            shortDescription = null;
+        }
+        if (alienName != null) {
+            endQuestion();
+            if (draw > 0) {
+                if (!questions.isEmpty()) {
+                    error(alienLine, "alien '" + alienName + "' both lists questions and draws them from a bank");
+                }
+                aliensByName.put(alienName, new AlienTemplate(alienName, alienRole, world.bank(alienRole), draw));
+                drawingAliens.add(new Reference(null, alienName, alienRole, alienLine));
+            } else {
+                if (questions.isEmpty()) {
+                    error(alienLine, "alien '" + alienName + "' has no questions");
+                }
+                aliensByName.put(alienName, new AlienTemplate(alienName, alienRole, questions));
+            }
+            alienName = null;
+            questions = null;
+        }
+        if (bank != null) {
+            endQuestion();
+            bank = null;
+        }
+    }
+
+    private void endQuestion() {
+        if (questionText == null) {
+            return;
+        }
+        if (answers == null) {
+            error(questionLine, "question has no answers");
+        } else {
+            if (typos > 0 && !options.isEmpty()) {
+                error(questionLine, "typos: only open-answer questions forgive misspellings");
+            }
+            if (similarity > 0 && !options.isEmpty()) {
+                error(questionLine, "similar: only open-answer questions can be graded by meaning");
+            }
+            if (bank != null) {
+                // The bank keeps the question as plain data and builds it when it is drawn
+                bank.add(questionText, options, answers, typos, similarity);
+            } else {
+                Question question = new Question(questionText, options.isEmpty() ? null : options, answers);
+                question.setTypoTolerance(typos);
+                question.setSimilarityThreshold(similarity);
+                questions.add(question);
+            }
+        }
+        questionText = null;
+    }
+
+    /**
+     * Points connections and occupants at what they name, now that everything is defined.
+     */
+    private void resolve() {
+        for (Reference reference : connections) {
+            LocationTemplate target = world.getLocation(reference.target);
+            if (target == null) {
+                error(reference.line, "connect: unknown location '" + reference.target + "'");
+            } else {
+                reference.from.addConnection(reference.key, target);
+            }
+        }
+        for (Reference reference : occupants) {
+            AlienTemplate alien = aliensByName.get(reference.target);
+            if (alien == null) {
+                error(reference.line, "occupant: unknown alien '" + reference.target + "'");
+            } else {
+                reference.from.addOccupant(alien);
+            }
+        }
+        for (Reference reference : drawingAliens) {
+            AlienTemplate alien = aliensByName.get(reference.key);
+            if (alien.getBank().size() == 0) {
+                error(reference.line, "alien '" + reference.key + "': there is no " + reference.target + " bank to draw from");
+            } else if (alien.getBank().size() < alien.getTestSize()) {
+                error(reference.line, "alien '" + reference.key + "' draws " + alien.getTestSize() + " questions but the "
+                        + reference.target + " bank only has " + alien.getBank().size());
+            }
+        }
+        for (QuestionBank questionBank : world.getBanks()) {
+            questionBank.trim();
+        }
+        if (world.size() == 0) {
+            error(lineNumber, "the world has no locations");
+        } else if (world.getStart() == null) {
+            error(lineNumber, "no location is marked 'start'");
+        }
+    }
+
+    private boolean inLocation(String keyword) {
+        if (location == null) {
+            error(keyword + ": only allowed inside a location");
+            return false;
+        }
+        return true;
+    }
+
+    private boolean inAlien(String keyword) {
+        if (alienName == null) {
+            error(keyword + ": only allowed inside an alien");
+            return false;
+        }
+        return true;
+    }
+
+    private boolean inQuestionList(String keyword) {
+        if (alienName == null && bank == null) {
+            error(keyword + ": only allowed inside an alien or a bank");
+            return false;
+        }
+        return true;
+    }
+
+    private boolean inQuestion(String keyword) {
+        if (questionText == null) {
+            error(keyword + ": only allowed after a question");
+            return false;
+        }
+        return true;
+    }
+
+    private String[] split(String keyword, String value, String separator) {
+        int at = value.indexOf(separator);
+        if (at <= 0 || at + separator.length() >= value.length()) {
+            error(keyword + ": expected '" + keyword + " A" + separator + "B'");
+            return null;
+        }
+        return new String[] {value.substring(0, at).trim(), value.substring(at + separator.length()).trim()};
+    }
+
+    /**
+     * Splits on runs of spaces; faster than a regular expression for the many short lines of a big world.
+     */
+    private static String[] words(String value) {
+        List<String> words = new ArrayList<>(2);
+        int start = -1;
+        for (int i = 0; i <= value.length(); i++) {
+            boolean space = i == value.length() || value.charAt(i) == ' ';
+            if (!space && start < 0) {
+                start = i;
+            } else if (space && start >= 0) {
+                words.add(value.substring(start, i));
+                start = -1;
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * Splits "a | b | c" into its trimmed answers.
+     */
+    private static List<String> answerList(String value) {
+        List<String> answers = new ArrayList<>();
+        int start = 0;
+        for (int bar = value.indexOf('|'); bar >= 0; bar = value.indexOf('|', start)) {
+            answers.add(value.substring(start, bar).trim());
+            start = bar + 1;
+        }
+        answers.add(value.substring(start).trim());
+        return answers;
+    }
+
+    private static StringBuilder appendLine(StringBuilder text, String line) {
+        if (text == null) {
+            return new StringBuilder(line);
+        }
+        return text.append('\n').append(line);
+    }
+
+    private void error(String message) {
+        error(lineNumber, message);
+    }
+
+    private void error(int line, String message) {
+        errors.add(new Error(line, message));
+    }
+
+    /**
+     * A mistake found in the file.
+     */
+    private static final class Error {
+        final int line;
+        final String message;
+
+        Error(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+    }
+
+    /**
+     * A name in the file that is looked up once the whole file has been read.
+     */
+    private static final class Reference {
+        final LocationTemplate from;
+        final String key;
+        final String target;
+        final int line;
+
+        Reference(LocationTemplate from, String key, String target, int line) {
+            this.from = from;
+            this.key = key;
+            this.target = target;
+            this.line = line;
+        }
+    }
+}
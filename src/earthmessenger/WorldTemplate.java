@@ -0,0 +1,180 @@
+package earthmessenger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * The game world every session plays in: the locations and how they connect, their
+ * descriptions and special commands, the items they start with, and the aliens with
+ * their questions or the banks of questions they draw from.
+ *
+ * None of this changes while people play, so it is loaded exactly once per JVM and
+ * shared by all games. The content lives in world.txt next to this class (see WorldLoader);
+ * run with -Dearthmessenger.world=path/to/world.txt to play a different world without
+ * rebuilding. What does change - visited/searched/completed flags, where the
+ * items are, each alien's test progress - lives in the per-game Location and Alien
+ * objects that EarthMessenger.load() lays over this template.
+ *
+ * Example usage:
+ *   WorldTemplate world = WorldTemplate.shared();
+ *   LocationTemplate start = world.getStart();   // the spaceship
+ */
+public final class WorldTemplate {
+
+    public static final String WORLD_PROPERTY = "earthmessenger.world";
+    private static final String WORLD_RESOURCE = "/earthmessenger/world.txt";
+
+    private final List<LocationTemplate> locations;
+    private final Map<String, LocationTemplate> locationsByName;
+    private final Map<String, QuestionBank> banks;
+    private LocationTemplate start;
+    private int chamberCount = -1;  // counted on first use, once the world is complete
+
+    /**
+     * Creates an empty world for the WorldLoader to fill.
+     */
+    WorldTemplate() {
+        this.locations = new ArrayList<>();
+        this.locationsByName = new HashMap<>();
+        this.banks = new HashMap<>();
+    }
+
+    /**
+     * Gets the world shared by all games, loading it on first use.
+     *
+     * @return The shared world
+     */
+    public static WorldTemplate shared() {
+        return Shared.INSTANCE;
+    }
+
+    // Loaded by the JVM's class initialization the first time shared() is called
+    private static final class Shared {
+        private static final WorldTemplate INSTANCE = loadShared();
+    }
+
+    /**
+     * @return Every location, in id order
+     */
+    public List<LocationTemplate> getLocations() {
+        return Collections.unmodifiableList(locations);
+    }
+
+    /**
+     * @param id The location id
+     * @return The location with that id
+     */
+    public LocationTemplate getLocation(int id) {
+        return locations.get(id);
+    }
+
+    /**
+     * @param name The location name
+     * @return The location with that name, or null if there is none
+     */
+    public LocationTemplate getLocation(String name) {
+        return locationsByName.get(name);
+    }
+
+    /**
+     * @return The location every game starts in
+     */
+    public LocationTemplate getStart() {
+        return start;
+    }
+
+    /**
+     * @return Number of locations in the world
+     */
+    public int size() {
+        return locations.size();
+    }
+
+    /**
+     * @return Number of chambers: locations with an alien
+     */
+    public int getChamberCount() {
+        if (chamberCount < 0) {
+            int count = 0;
+            for (LocationTemplate location : locations) {
+                if (location.getOccupant() != null) {
+                    count++;
+                }
+            }
+            chamberCount = count;
+        }
+        return chamberCount;
+    }
+
+    /**
+     * @param role The type of test ("logic", "empathy", or "trust")
+     * @return The bank of questions for that role, or null if the world has none
+     */
+    public QuestionBank getBank(String role) {
+        return banks.get(role);
+    }
+
+    /**
+     * Gets the bank for a role, creating an empty one the first time. Used by the WorldLoader.
+     *
+     * @param role The type of test
+     * @return The bank
+     */
+    QuestionBank bank(String role) {
+        return banks.computeIfAbsent(role, QuestionBank::new);
+    }
+
+    /**
+     * @return Every question bank in the world
+     */
+    Collection<QuestionBank> getBanks() {
+        return banks.values();
+    }
+
+    /**
+     * Creates a location and gives it the next free id. Used by the WorldLoader.
+     *
+     * @param isOutside True if the location is outdoors
+     * @param name The location name
+     * @return The new location
+     */
+    LocationTemplate add(boolean isOutside, String name) {
+        LocationTemplate location = new LocationTemplate(locations.size(), isOutside, name);
+        locations.add(location);
+        locationsByName.put(name, location);
+        return location;
+    }
+
+    /**
+     * Chooses the location every game starts in. Used by the WorldLoader.
+     *
+     * @param start The starting location
+     */
+    void setStart(LocationTemplate start) {
+        this.start = start;
+    }
+
+    /**
+     * Loads the world from the file named by the earthmessenger.world system property,
+     * or from the world.txt shipped with the game.
+     */
+    private static WorldTemplate loadShared() {
+        String file = System.getProperty(WORLD_PROPERTY);
+        try {
+            if (file != null) {
+                return WorldLoader.load(Path.of(file));
+            }
+            try (InputStream in = WorldTemplate.class.getResourceAsStream(WORLD_RESOURCE)) {
+                if (in == null) {
+                    throw new IOException("Missing resource " + WORLD_RESOURCE);
+                }
+                return WorldLoader.load(in, WORLD_RESOURCE);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load the game world", e);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package earthmessenger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Wraps another SessionStore so that saving never waits for it: a save or delete is
+ * parked in a map and returns at once, and a background thread writes what is parked to
+ * the wrapped store in batches.
+ *
+ * COALESCING:
+ * Only the latest save of a session is parked, so a session saved ten times between two
+ * flushes is written once. A delete followed by a save is written as both, in that order,
+ * so the wrapped store never mixes an old game with a new one. Memory is bounded by the
+ * number of sessions, not the number of saves.
+ *
+ * FLUSHING:
+ * - Every flushIntervalMillis, or as soon as batchSize sessions are parked
+ * - batchSize sessions at a time, each batch ending with a flush of the wrapped store
+ * - A session is only unparked once it has been written, and only if it was not saved
+ *   again meanwhile, so load and contains always see the latest save
+ * - A write that fails is logged and retried on the next pass
+ *
+ * isPending tells whether a session's last save has reached the wrapped store, e.g. so a
+ * journal only drops commands a durable snapshot covers. flush(sessionId) writes one
+ * session at once, for the rare save that must be durable before the caller goes on; it
+ * runs beside a batch being written, waiting at most for that one session's write.
+ * close() writes everything that is parked and closes the wrapped store.
+ *
+ * Wrap a MappedSnapshotStore opened with deferForces, so it forces a batch to disk in
+ * one flush instead of on every save.
+ *
+ * Example usage:
+ *   SessionStore store = new WriteBehindSessionStore(new MappedSnapshotStore(
+ *           Path.of("saves/snapshots.dat"), MappedSnapshotStore.DEFAULT_CAPACITY, true));
+ *   store.save("ada", SessionSnapshot.capture(game, sequence));  // returns without touching the disk
+ */
+public class WriteBehindSessionStore implements SessionStore {
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final SessionStore store;
+    private final int batchSize;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final Object flushLock = new Object();   // one batch writer at a time
+    private final Set<String> writing = new HashSet<>();   // sessions being written right now; guarded by itself
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * Wraps a store with the default flush interval and batch size.
+     *
+     * @param store The store to write to; owned by this one from now on
+     */
+    public WriteBehindSessionStore(SessionStore store) {
+        this(store, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Wraps a store.
+     *
+     * @param store The store to write to; owned by this one from now on
+     * @param flushIntervalMillis How long a save may stay parked
+     * @param batchSize How many sessions are written between flushes of the wrapped store,
+     *                  and how many parked sessions start a flush early
+     */
+    public WriteBehindSessionStore(SessionStore store, long flushIntervalMillis, int batchSize) {
+        if (flushIntervalMillis < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Flush interval and batch size must be >= 1");
+        }
+        this.store = store;
+        this.batchSize = batchSize;
+        flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "session-store-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public SessionSnapshot load(String sessionId) throws IOException {
+        Pending parked = pending.get(sessionId);
+        if (parked != null) {
+            return parked.snapshot;
+        }
+        return store.load(sessionId);
+    }
+
+    /**
+     * Parks the snapshot, replacing any save of the session that is still parked.
+     * Never touches the wrapped store.
+     */
+    @Override
+    public void save(String sessionId, SessionSnapshot snapshot) {
+        pending.compute(sessionId, (id, parked) -> new Pending(snapshot, parked != null && parked.replace));
+        kick();
+    }
+
+    @Override
+    public boolean contains(String sessionId) throws IOException {
+        Pending parked = pending.get(sessionId);
+        if (parked != null) {
+            return parked.snapshot != null;
+        }
+        return store.contains(sessionId);
+    }
+
+    /**
+     * Parks the delete, dropping any save of the session that is still parked.
+     * Never touches the wrapped store, so unless a save was parked it cannot tell whether
+     * the session had a snapshot, and returns true.
+     */
+    @Override
+    public boolean delete(String sessionId) {
+        Pending parked = pending.put(sessionId, new Pending(null, true));
+        kick();
+        return parked == null || parked.snapshot != null;
+    }
+
+    @Override
+    public boolean isPending(String sessionId) {
+        return pending.containsKey(sessionId);
+    }
+
+    /**
+     * Writes everything parked to the wrapped store and flushes it.
+     *
+     * @throws IOException If a session cannot be written; it stays parked
+     */
+    @Override
+    public void flush() throws IOException {
+        flushQueued.set(false);
+        synchronized (flushLock) {
+            IOException failure = null;
+            List<String> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            for (String sessionId : pending.keySet()) {
+                batch.add(sessionId);
+                if (batch.size() == batchSize) {
+                    failure = write(batch, failure);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                failure = write(batch, failure);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Writes one session's parked save or delete to the wrapped store and flushes it,
+     * without waiting for the next batch or for one being written.
+     *
+     * @throws IOException If the session cannot be written; it stays parked
+     */
+    @Override
+    public void flush(String sessionId) throws IOException {
+        // A batch that wrote the session but has not flushed yet leaves it parked, so it is
+        // simply written again here
+        Pending parked;
+        claim(sessionId);
+        try {
+            parked = pending.get(sessionId);
+            if (parked == null) {
+                return;
+            }
+            write(sessionId, parked);
+        } finally {
+            release(sessionId);
+        }
+        store.flush(sessionId);
+        pending.remove(sessionId, parked);
+    }
+
+    /**
+     * @return How many sessions have a save or delete that is not written yet
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Stops the background thread, writes everything parked and closes the wrapped store.
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } finally {
+            store.close();
+        }
+    }
+
+    /**
+     * Writes one batch, then flushes the wrapped store and unparks the sessions written.
+     *
+     * @return The first failure so far
+     */
+    private IOException write(List<String> batch, IOException failure) {
+        List<String> written = new ArrayList<>(batch.size());
+        List<Pending> writes = new ArrayList<>(batch.size());
+        for (String sessionId : batch) {
+            try {
+                claim(sessionId);
+                try {
+                    Pending parked = pending.get(sessionId);
+                    if (parked == null) {
+                        continue;
+                    }
+                    write(sessionId, parked);
+                    written.add(sessionId);
+                    writes.add(parked);
+                } finally {
+                    release(sessionId);
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Saving session " + sessionId + " failed, will retry: " + e);
+                if (failure == null) {
+                    failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                }
+            }
+        }
+        try {
+            store.flush();
+        } catch (IOException e) {
+            System.err.println("Flushing the session store failed, will retry: " + e);
+            return failure != null ? failure : e;
+        }
+        for (int i = 0; i < written.size(); i++) {
+            // A session saved again meanwhile stays parked with its newer snapshot
+            pending.remove(written.get(i), writes.get(i));
+        }
+        return failure;
+    }
+
+    /**
+     * Waits until no other thread is writing the session, then marks it as being written:
+     * the wrapped store takes each session's saves from one thread at a time.
+     */
+    private void claim(String sessionId) throws InterruptedIOException {
+        synchronized (writing) {
+            while (!writing.add(sessionId)) {
+                try {
+                    writing.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted before writing session " + sessionId);
+                }
+            }
+        }
+    }
+
+    private void release(String sessionId) {
+        synchronized (writing) {
+            writing.remove(sessionId);
+            writing.notifyAll();
+        }
+    }
+
+    private void write(String sessionId, Pending parked) throws IOException {
+        if (parked.replace) {
+            store.delete(sessionId);
+        }
+        if (parked.snapshot != null) {
+            store.save(sessionId, parked.snapshot);
+        }
+    }
+
+    /**
+     * Starts a flush early once enough sessions are parked.
+     */
+    private void kick() {
+        if (pending.size() >= batchSize && flushQueued.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                flushQueued.set(false);   // closing; close() writes what is parked
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            // Already logged per session; the next pass retries
+        }
+    }
+
+    /**
+     * The latest save or delete of a session that is not written yet.
+     */
+    private static final class Pending {
+        final SessionSnapshot snapshot;   // null for a delete
+        final boolean replace;            // delete what the wrapped store has first
+
+        Pending(SessionSnapshot snapshot, boolean replace) {
+            this.snapshot = snapshot;
+            this.replace = replace;
+        }
+    }
+}